@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import utils.RestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность пакетных запросов и тех же изменений отдельными запросами, в элементах в секунду:
+ * POST /films, POST /users, PUT /films/{id}/like/{userId} и PUT /users/{id}/friends/{friendId}
+ * против POST /films/batch, POST /users/batch, PUT /films/likes/batch и PUT /users/friends/batch.
+ * Запросы идут к запущенному приложению через общий клиент с пулом keep-alive соединений
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(BatchBenchmark.BATCH)
+public class BatchBenchmark {
+
+    static final int BATCH = 100;
+    private static final String URL = "http://localhost:8080";
+    private static final Map<String, String> JSON = Map.of("Content-Type", "application/json; charset=UTF-8");
+    private static final int FILMS = 1_000;
+    private static final int USERS = 10_000;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private ConfigurableApplicationContext context;
+    private int nextUser;
+
+    @Setup
+    public void setUp() {
+        context = SpringApplication.run(FilmorateApplication.class, "--logging.level.root=WARN");
+        RestUtils.setRestAssuredConfigPooled(1);
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(BenchmarkData.film(i));
+        }
+        RestUtils.post(URL + "/films/batch", films, JSON);
+        List<User> users = new ArrayList<>(USERS);
+        for (nextUser = 0; nextUser < USERS; nextUser++) {
+            users.add(BenchmarkData.user(nextUser));
+        }
+        RestUtils.post(URL + "/users/batch", users, JSON);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RestUtils.setRestAssuredConfigHttp();
+        context.close();
+    }
+
+    @Benchmark
+    public void addFilmsOneByOne(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(RestUtils.post(URL + "/films", BenchmarkData.film(i), JSON));
+        }
+    }
+
+    @Benchmark
+    public Response addFilmsBatch() {
+        List<Film> films = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            films.add(BenchmarkData.film(i));
+        }
+        return RestUtils.post(URL + "/films/batch", films, JSON);
+    }
+
+    @Benchmark
+    public void addUsersOneByOne(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(RestUtils.post(URL + "/users", BenchmarkData.user(nextUser++), JSON));
+        }
+    }
+
+    @Benchmark
+    public Response addUsersBatch() {
+        List<User> users = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            users.add(BenchmarkData.user(nextUser++));
+        }
+        return RestUtils.post(URL + "/users/batch", users, JSON);
+    }
+
+    @Benchmark
+    public void addLikesOneByOne(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            String url = String.format("%s/films/%d/like/%d", URL, 1 + random.nextInt(FILMS),
+                    1 + random.nextInt(USERS));
+            blackhole.consume(RestUtils.put(url, ContentType.JSON, JSON));
+        }
+    }
+
+    @Benchmark
+    public Response addLikesBatch() {
+        List<FilmLike> likes = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            likes.add(new FilmLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS)));
+        }
+        return RestUtils.put(URL + "/films/likes/batch", likes, JSON);
+    }
+
+    @Benchmark
+    public void addFriendsOneByOne(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            int id = 1 + random.nextInt(USERS);
+            String url = String.format("%s/users/%d/friends/%d", URL, id, 1 + (id + random.nextInt(USERS - 1)) % USERS);
+            blackhole.consume(RestUtils.put(url, ContentType.JSON, JSON));
+        }
+    }
+
+    @Benchmark
+    public Response addFriendsBatch() {
+        List<Friendship> friendships = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            int id = 1 + random.nextInt(USERS);
+            friendships.add(new Friendship(id, 1 + (id + random.nextInt(USERS - 1)) % USERS));
+        }
+        return RestUtils.put(URL + "/users/friends/batch", friendships, JSON);
+    }
+}
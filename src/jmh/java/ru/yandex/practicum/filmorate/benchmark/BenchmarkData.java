@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Общие фабрики тестовых данных для бенчмарков
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Film film(int number) {
+        return Film.builder()
+                .name("Фильм " + number)
+                .description("Описание фильма " + number)
+                .releaseDate(LocalDate.of(1900 + number % 120, 1 + number % 12, 1 + number % 28))
+                .duration(60 + number % 120)
+                .build();
+    }
+
+    static User user(int number) {
+        return User.builder()
+                .email(String.format("user%d@example.com", number))
+                .login("user" + number)
+                .birthday(LocalDate.of(1950 + number % 60, 1 + number % 12, 1 + number % 28))
+                .build();
+    }
+
+    static EntityValidator validator() {
+        return new EntityValidator(Validation.buildDefaultValidatorFactory().getValidator(), new SimpleMeterRegistry());
+    }
+
+    static void deleteDirectory(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
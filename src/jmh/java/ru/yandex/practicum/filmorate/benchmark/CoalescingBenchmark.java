@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+import ru.yandex.practicum.filmorate.storage.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.JdbcUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Всплеск одинаковых запросов рейтинга к хранилищу в H2, где рейтинг - агрегат по всем лайкам:
+ * каждый поток строит рейтинг сам или присоединяется к уже идущему вычислению
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CoalescingBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+
+    @Param({"false", "true"})
+    private boolean coalesced;
+
+    private EmbeddedDatabase database;
+    private JdbcFilmStorage filmStorage;
+    private SingleFlight<Integer, List<Integer>> flight;
+
+    @Setup
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        filmStorage = new JdbcFilmStorage(jdbcTemplate, namedJdbcTemplate);
+        JdbcUserStorage userStorage = new JdbcUserStorage(jdbcTemplate, namedJdbcTemplate);
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(BenchmarkData.film(i));
+        }
+        filmStorage.addFilms(films);
+        List<User> users = new ArrayList<>(USERS);
+        List<FilmLike> likes = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int user = 1; user <= USERS; user++) {
+            users.add(BenchmarkData.user(user));
+            for (int i = 0; i < 20; i++) {
+                likes.add(new FilmLike(1 + random.nextInt(FILMS), user));
+            }
+        }
+        userStorage.addUsers(users);
+        filmStorage.addLikes(likes);
+        flight = new SingleFlight<>("popular");
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Integer> popularFilms() {
+        if (coalesced) {
+            return flight.execute(10, () -> filmStorage.getPopularFilmIds(10));
+        }
+        return filmStorage.getPopularFilmIds(10);
+    }
+}
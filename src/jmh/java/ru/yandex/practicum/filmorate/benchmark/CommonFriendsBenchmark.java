@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья двух пользователей с friends и otherFriends друзьями
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFriendsBenchmark {
+
+    private static final int USERS = 200_000;
+
+    @Param({"100", "10000", "50000"})
+    private int friends;
+
+    @Param({"100", "50000"})
+    private int otherFriends;
+
+    private UserService userService;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS; i++) {
+            userStorage.addUser(BenchmarkData.user(i));
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < friends; i++) {
+            userStorage.addFriend(1, 3 + random.nextInt(USERS - 2));
+        }
+        for (int i = 0; i < otherFriends; i++) {
+            userStorage.addFriend(2, 3 + random.nextInt(USERS - 2));
+        }
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        FilmService filmService = new FilmService(filmStorage, userStorage, BenchmarkData.validator(),
+                new FilmRecommender(filmStorage, userStorage, 20), new TrendingFilms(filmStorage, Duration.ofDays(1)),
+                new FilmSearchIndex(filmStorage));
+        userService = new UserService(userStorage, BenchmarkData.validator(), new FriendRecommender(userStorage, 500),
+                filmService);
+    }
+
+    @Benchmark
+    public List<Integer> getCommonFriendsList() {
+        return userService.getCommonFriendsList(1, 2);
+    }
+
+    @Benchmark
+    public Map<String, Integer> getCommonFriendsCount() {
+        return userService.getCommonFriendsCount(1, 2);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность хранилищ при параллельных изменениях связей.
+ * Масштабирование проверяется запуском с разным количеством потоков: -t 1, -t 2, -t 4 и т.д.
+ * Конкуренция задается числом активных пользователей: при hotUsers = 1 все потоки меняют связи
+ * одного пользователя и ждут одну полосу блокировок, при hotUsers = USERS изменения расходятся по полосам
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentStorageBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+
+    @Param({"100000", "64", "1"})
+    private int hotUsers;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.addFilm(BenchmarkData.film(i));
+        }
+        for (int i = 0; i < USERS; i++) {
+            userStorage.addUser(BenchmarkData.user(i));
+        }
+    }
+
+    @Benchmark
+    public boolean toggleLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(FILMS);
+        int userId = 1 + random.nextInt(hotUsers);
+        return filmStorage.addLike(filmId, userId) && filmStorage.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public boolean toggleFriendship() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = 1 + random.nextInt(hotUsers);
+        int friendId = 1 + random.nextInt(USERS);
+        if (id == friendId) {
+            return false;
+        }
+        return userStorage.addFriend(id, friendId) && userStorage.deleteFriend(id, friendId);
+    }
+}
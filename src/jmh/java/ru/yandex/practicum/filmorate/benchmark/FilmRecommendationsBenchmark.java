@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Модель рекомендаций фильмов в зависимости от размера каталога при USERS * LIKES_PER_USER лайках:
+ * build - полное построение, recommend и toggleLike - запрос и инкрементальное обновление готовой модели.
+ * Память, занятая построенной моделью, выводится в лог при подготовке
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FilmRecommendationsBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int LIKES_PER_USER = 20;
+    private static final int NEIGHBORS = 20;
+
+    @Param({"1000", "10000", "100000"})
+    private int films;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private FilmRecommender recommender;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        List<Film> catalog = new ArrayList<>(films);
+        for (int i = 0; i < films; i++) {
+            catalog.add(BenchmarkData.film(i));
+        }
+        filmStorage.addFilms(catalog);
+        random = new SplittableRandom(42);
+        List<FilmLike> likes = new ArrayList<>(USERS * LIKES_PER_USER);
+        for (int user = 1; user <= USERS; user++) {
+            userStorage.addUser(BenchmarkData.user(user));
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                likes.add(new FilmLike(randomFilm(), user));
+            }
+        }
+        filmStorage.addLikes(likes);
+        long before = usedMemory();
+        recommender = new FilmRecommender(filmStorage, userStorage, NEIGHBORS);
+        recommender.rebuild();
+        System.out.printf("%nМодель для %d фильмов занимает %d МБ%n", films, (usedMemory() - before) >> 20);
+    }
+
+    @Benchmark
+    public FilmRecommender build() {
+        FilmRecommender built = new FilmRecommender(filmStorage, userStorage, NEIGHBORS);
+        built.rebuild();
+        return built;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public int[] recommend() {
+        return recommender.recommend(1 + random.nextInt(USERS), 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public boolean toggleLike() {
+        int filmId = randomFilm();
+        int userId = 1 + random.nextInt(USERS);
+        boolean added = filmStorage.addLike(filmId, userId) || filmStorage.deleteLike(filmId, userId);
+        recommender.likesChanged(userId);
+        return added;
+    }
+
+    // Популярность фильмов неравномерна: фильмы с меньшими id лайкают чаще
+    private int randomFilm() {
+        double position = random.nextDouble();
+        return 1 + (int) (films * position * position);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
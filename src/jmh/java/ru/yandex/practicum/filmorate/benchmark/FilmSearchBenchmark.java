@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по каталогу из films фильмов со случайными названиями и описаниями.
+ * Частоты слов убывают по степенному закону, как в обычном тексте; query задает вид запроса:
+ * rare - редкое слово, common - самое частое слово, and - два слова средней частоты,
+ * prefix - начало слова из трех букв
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class FilmSearchBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "ту", "ле", "на", "зо", "ви", "ша", "де",
+            "пу", "ло", "ри", "са", "бе", "го"};
+
+    @Param({"100000", "1000000"})
+    private int films;
+
+    @Param({"rare", "common", "and", "prefix"})
+    private String query;
+
+    @Param({"false", "true"})
+    private boolean byLikes;
+
+    private FilmSearchIndex index;
+    private String queryText;
+
+    @Setup
+    public void setUp() {
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(i);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Film> catalog = new ArrayList<>(films);
+        for (int i = 0; i < films; i++) {
+            catalog.add(Film.builder()
+                    .name(text(words, random, 1 + random.nextInt(4)))
+                    .description(text(words, random, 8 + random.nextInt(13)))
+                    .releaseDate(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28))
+                    .duration(60 + i % 120)
+                    .build());
+        }
+        filmStorage.addFilms(catalog);
+        for (int i = 0; i < films; i++) {
+            filmStorage.addLike(1 + random.nextInt(films), 1 + random.nextInt(films));
+        }
+        index = new FilmSearchIndex(filmStorage);
+        index.rebuild();
+        System.out.printf("%nИндекс %d фильмов: %d МБ списков вхождений%n", index.getIndexedFilms(),
+                index.sizeInBytes() >> 20);
+        queryText = switch (query) {
+            case "rare" -> words[VOCABULARY / 2];
+            case "common" -> words[0];
+            case "and" -> words[20] + " " + words[200];
+            case "prefix" -> words[50].substring(0, 3);
+            default -> throw new IllegalArgumentException(query);
+        };
+    }
+
+    @Benchmark
+    public List<Integer> search() {
+        return index.search(queryText, 20, byLikes);
+    }
+
+    // Слово по номеру в системе счисления по слогам, поэтому все слова разные
+    private static String word(int number) {
+        StringBuilder word = new StringBuilder();
+        int rest = number;
+        do {
+            word.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        } while (rest > 0);
+        return word.toString();
+    }
+
+    // Чем меньше номер слова, тем оно чаще
+    private static String text(String[] words, SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double position = random.nextDouble();
+            text.append(i == 0 ? "" : " ").append(words[(int) (words.length * position * position * position)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайки одному фильму из многих потоков: каждый поток ставит и снимает лайк случайного пользователя.
+ * Масштабирование видно при запуске с разным числом потоков, например -t 1, -t 8, -t 32, -t 64:
+ * лайки разных пользователей не ждут друг друга, и пропускная способность должна расти с числом потоков
+ * до числа ядер, а не упираться в блокировку фильма.
+ * storage - только хранилище, service - весь путь запроса через FilmService с построенной моделью
+ * рекомендаций и популярным за последнее время
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Threads(32)
+public class HotFilmLikesBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int FILMS = 1000;
+    private static final int HOT_FILM = 1;
+
+    @Param({"storage", "service"})
+    private String path;
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.addFilm(BenchmarkData.film(i));
+        }
+        if (path.equals("service")) {
+            for (int i = 0; i < USERS; i++) {
+                userStorage.addUser(BenchmarkData.user(i));
+            }
+        }
+        // Половина пользователей уже лайкнула фильм, поэтому множество лайков большое с самого начала
+        for (int userId = 2; userId <= USERS; userId += 2) {
+            filmStorage.addLike(HOT_FILM, userId);
+        }
+        FilmRecommender filmRecommender = new FilmRecommender(filmStorage, userStorage, 20);
+        filmService = new FilmService(filmStorage, userStorage, BenchmarkData.validator(), filmRecommender,
+                new TrendingFilms(filmStorage, Duration.ofDays(1)), new FilmSearchIndex(filmStorage));
+        if (path.equals("service")) {
+            filmRecommender.rebuild();
+        }
+    }
+
+    @Benchmark
+    public boolean toggleLike() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        if (path.equals("service")) {
+            boolean liked = filmStorage.getFilms().get(HOT_FILM).getLikes().contains(userId);
+            if (liked) {
+                filmService.deleteLike(HOT_FILM, userId);
+            }
+            filmService.addLike(HOT_FILM, userId);
+            if (!liked) {
+                filmService.deleteLike(HOT_FILM, userId);
+            }
+            return liked;
+        }
+        if (filmStorage.addLike(HOT_FILM, userId)) {
+            return filmStorage.deleteLike(HOT_FILM, userId);
+        }
+        return filmStorage.deleteLike(HOT_FILM, userId) && filmStorage.addLike(HOT_FILM, userId);
+    }
+}
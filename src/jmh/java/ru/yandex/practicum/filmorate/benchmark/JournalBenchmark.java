@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.DurableStore;
+import ru.yandex.practicum.filmorate.storage.journal.FsyncPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность изменений с журналом при разных политиках сброса на диск.
+ * Эффект группового коммита для ALWAYS виден при запуске с несколькими потоками: -t 1, -t 8, -t 32
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+
+    @Param({"ALWAYS", "INTERVAL", "NEVER"})
+    private FsyncPolicy policy;
+
+    private Path dir;
+    private DurableStore store;
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("filmorate-journal-benchmark");
+        filmStorage = new InMemoryFilmStorage();
+        store = DurableStore.open(dir, filmStorage, policy, Duration.ofMillis(100));
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(BenchmarkData.film(i));
+        }
+        filmStorage.addFilms(films);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        BenchmarkData.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public boolean toggleLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(FILMS);
+        int userId = 1 + random.nextInt(USERS);
+        return filmStorage.addLike(filmId, userId) && filmStorage.deleteLike(filmId, userId);
+    }
+}
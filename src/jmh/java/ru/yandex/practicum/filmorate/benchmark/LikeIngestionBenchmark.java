@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.exceptions.QueueFullException;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Всплеск лайков нескольким популярным фильмам из многих потоков: синхронное применение каждого лайка
+ * и асинхронный прием с применением пачками. При заполненной очереди поток повторяет лайк, поэтому
+ * пропускная способность приема не может надолго превысить скорость применения пачек
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(16)
+public class LikeIngestionBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 200_000;
+
+    @Param({"false", "true"})
+    private boolean async;
+
+    // Сколько фильмов получают все лайки всплеска
+    @Param({"1", "16"})
+    private int hotFilms;
+
+    private FilmService filmService;
+    private LikeIngestion likeIngestion;
+
+    @Setup
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS; i++) {
+            userStorage.addUser(BenchmarkData.user(i));
+        }
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.addFilm(BenchmarkData.film(i));
+        }
+        FilmRecommender filmRecommender = new FilmRecommender(filmStorage, userStorage, 20);
+        TrendingFilms trendingFilms = new TrendingFilms(filmStorage, Duration.ofDays(1));
+        filmService = new FilmService(filmStorage, userStorage, BenchmarkData.validator(), filmRecommender,
+                trendingFilms, new FilmSearchIndex(filmStorage));
+        likeIngestion = new LikeIngestion(filmStorage, userStorage, filmService, async, 65536, 4096);
+        likeIngestion.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        likeIngestion.stop();
+    }
+
+    @Benchmark
+    public Map<String, String> like() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(hotFilms);
+        int userId = 1 + random.nextInt(USERS);
+        if (!async) {
+            return filmService.addLike(filmId, userId);
+        }
+        while (true) {
+            try {
+                return likeIngestion.submit(filmId, userId);
+            } catch (QueueFullException e) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение топа популярных фильмов и изменение лайков в зависимости от размера каталога.
+ * Время обеих операций не должно заметно расти вместе с films.
+ * sortCatalog - прежний способ: количество лайков всех фильмов в TreeMap и сортировка всего каталога,
+ * с ним сравнивается время getPopularFilms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopularFilmsBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int films;
+
+    @Param({"10"})
+    private int count;
+
+    private FilmStorage filmStorage;
+    private FilmService filmService;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        this.filmStorage = filmStorage;
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS; i++) {
+            userStorage.addUser(BenchmarkData.user(i));
+        }
+        for (int i = 0; i < films; i++) {
+            filmStorage.addFilm(BenchmarkData.film(i));
+        }
+        for (int i = 0; i < films * 3; i++) {
+            filmStorage.addLike(1 + random.nextInt(films), 1 + random.nextInt(USERS));
+        }
+        filmService = new FilmService(filmStorage, userStorage, BenchmarkData.validator(),
+                new FilmRecommender(filmStorage, userStorage, 20), new TrendingFilms(filmStorage, Duration.ofDays(1)),
+                new FilmSearchIndex(filmStorage));
+    }
+
+    @Benchmark
+    public List<Integer> getPopularFilms() {
+        return filmService.getPopularFilms(count);
+    }
+
+    @Benchmark
+    public List<Integer> sortCatalog() {
+        Map<Integer, Integer> filmIdLikes = new TreeMap<>();
+        filmStorage.getFilms().forEach((filmId, film) -> filmIdLikes.put(filmId, film.getLikesCount()));
+        return filmIdLikes.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Benchmark
+    public Map<String, String> toggleLike() {
+        int filmId = 1 + random.nextInt(films);
+        int userId = 1 + random.nextInt(USERS);
+        filmService.addLike(filmId, userId);
+        return filmService.deleteLike(filmId, userId);
+    }
+}
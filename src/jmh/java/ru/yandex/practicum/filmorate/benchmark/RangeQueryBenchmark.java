@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.KeyRange;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выборка по диапазонам полей перебором всех сущностей и по вторичным индексам.
+ * query задает условие на фильмы: year - вышедшие за один год (1/120 каталога),
+ * short - не длиннее 70 минут (11/120 каталога), both - оба условия сразу.
+ * Для пользователей ищутся именинники одного дня среди users пользователей
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RangeQueryBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final MonthDay BIRTHDAY = MonthDay.of(4, 26);
+
+    @Param({"100000", "1000000"})
+    private int films;
+
+    @Param({"year", "short", "both"})
+    private String query;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private KeyRange<LocalDate> releaseDate;
+    private KeyRange<Long> duration;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        List<Film> catalog = new ArrayList<>(films);
+        for (int i = 0; i < films; i++) {
+            catalog.add(BenchmarkData.film(i));
+        }
+        filmStorage.addFilms(catalog);
+        userStorage = new InMemoryUserStorage();
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(BenchmarkData.user(i));
+        }
+        userStorage.addUsers(users);
+        KeyRange<LocalDate> year = KeyRange.of(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 12, 31));
+        KeyRange<Long> shortFilms = KeyRange.of(null, 70L);
+        releaseDate = query.equals("short") ? KeyRange.all() : year;
+        duration = query.equals("year") ? KeyRange.all() : shortFilms;
+    }
+
+    @Benchmark
+    public List<Film> scanFilms() {
+        return filmStorage.getAllFilms().stream()
+                .filter(film -> releaseDate.contains(film.getReleaseDate()) && duration.contains(film.getDuration()))
+                .toList();
+    }
+
+    @Benchmark
+    public List<Film> indexFilms() {
+        return filmStorage.findFilms(releaseDate, duration, 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<User> scanBirthdays() {
+        return userStorage.getAllUsers().stream()
+                .filter(user -> MonthDay.from(user.getBirthday()).equals(BIRTHDAY))
+                .toList();
+    }
+
+    @Benchmark
+    public List<User> indexBirthdays() {
+        return userStorage.findUsers(KeyRange.all(), KeyRange.of(BIRTHDAY, BIRTHDAY), 0, Integer.MAX_VALUE);
+    }
+}
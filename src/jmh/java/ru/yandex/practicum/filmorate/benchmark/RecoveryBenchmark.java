@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.DurableStore;
+import ru.yandex.practicum.filmorate.storage.journal.FsyncPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время восстановления хранилища фильмов после перезапуска:
+ * journal - проигрывание всего журнала, snapshot - загрузка снимка того же состояния
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RecoveryBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 1_000_000;
+
+    @Param({"1000000", "10000000"})
+    private int events;
+
+    @Param({"journal", "snapshot"})
+    private String source;
+
+    private Path dir;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("filmorate-recovery-benchmark");
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        try (DurableStore store = DurableStore.open(dir, filmStorage, FsyncPolicy.NEVER, Duration.ZERO)) {
+            List<Film> films = new ArrayList<>(FILMS);
+            for (int i = 0; i < FILMS; i++) {
+                films.add(BenchmarkData.film(i));
+            }
+            filmStorage.addFilms(films);
+            Random random = new Random(42);
+            for (int i = FILMS; i < events; i++) {
+                filmStorage.addLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+            }
+            if (source.equals("snapshot")) {
+                store.snapshot();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public InMemoryFilmStorage recover() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        DurableStore.open(dir, filmStorage, FsyncPolicy.NEVER, Duration.ZERO).close();
+        return filmStorage;
+    }
+}
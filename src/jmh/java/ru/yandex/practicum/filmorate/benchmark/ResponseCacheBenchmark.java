@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.controller.JsonResponseCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ GET /films/popular: построение и сериализация при каждом запросе,
+ * готовые байты из кэша ответов и 304 по совпавшему ETag.
+ * 10 000 фильмов и пользователей, по 20 лайков на пользователя
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCacheBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+
+    @Param({"10", "100"})
+    private int count;
+
+    private ObjectMapper objectMapper;
+    private FilmService filmService;
+    private InMemoryFilmStorage filmStorage;
+    private JsonResponseCache responseCache;
+    private WebRequest plainRequest;
+    private WebRequest conditionalRequest;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(BenchmarkData.film(i));
+        }
+        filmStorage.addFilms(films);
+        List<FilmLike> likes = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int user = 1; user <= USERS; user++) {
+            userStorage.addUser(BenchmarkData.user(user));
+            for (int i = 0; i < 20; i++) {
+                likes.add(new FilmLike(1 + random.nextInt(FILMS), user));
+            }
+        }
+        filmStorage.addLikes(likes);
+        filmService = new FilmService(filmStorage, userStorage, BenchmarkData.validator(),
+                new FilmRecommender(filmStorage, userStorage, 20), new TrendingFilms(filmStorage, Duration.ofDays(1)),
+                new FilmSearchIndex(filmStorage));
+        responseCache = new JsonResponseCache(objectMapper, DataSize.ofMegabytes(64));
+        plainRequest = request(null);
+        conditionalRequest = request(cached().getHeaders().getETag());
+    }
+
+    @Benchmark
+    public byte[] uncached() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(popular());
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> cached() {
+        return responseCache.get("films/popular?count=" + count, filmStorage.getVersions().getCollectionVersion(),
+                plainRequest, this::popular);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> notModified() {
+        return responseCache.get("films/popular?count=" + count, filmStorage.getVersions().getCollectionVersion(),
+                conditionalRequest, this::popular);
+    }
+
+    private List<Film> popular() {
+        return filmService.getFilmsByListIDs(filmService.getPopularFilms(count));
+    }
+
+    // Из запроса кэшу нужен только заголовок If-None-Match
+    private static WebRequest request(String ifNoneMatch) {
+        return (WebRequest) Proxy.newProxyInstance(WebRequest.class.getClassLoader(), new Class<?>[]{WebRequest.class},
+                (proxy, method, args) -> method.getName().equals("getHeader")
+                        && HttpHeaders.IF_NONE_MATCH.equals(args[0]) ? ifNoneMatch : null);
+    }
+}
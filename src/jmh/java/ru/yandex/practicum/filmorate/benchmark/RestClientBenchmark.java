@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.restassured.RestAssured;
+import io.restassured.config.LogConfig;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import utils.RestUtils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы GET /users/1 к запущенному приложению через RestUtils.
+ * default - текущий режим функциональных тестов: новый http-клиент на каждый запрос и полное логирование,
+ * pooled - общий клиент с пулом keep-alive соединений без логирования успешных запросов.
+ * Лог пишется в пустой поток: в сравнение входит формирование лога, но не вывод в консоль
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 6, time = 5)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestClientBenchmark {
+
+    private static final String URL = "http://localhost:8080/users/1";
+    private static final int ASYNC_BATCH = 64;
+
+    @Param({"default", "pooled"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup
+    public void setUp() {
+        context = SpringApplication.run(FilmorateApplication.class, "--logging.level.root=WARN");
+        if ("pooled".equals(mode)) {
+            RestUtils.setRestAssuredConfigPooled(ASYNC_BATCH);
+        } else {
+            RestUtils.setRestAssuredConfigHttp();
+            RestUtils.setLogMode(RestUtils.LogMode.ALL);
+        }
+        RestAssured.config = RestAssured.config.logConfig(LogConfig.logConfig()
+                .defaultStream(new PrintStream(OutputStream.nullOutputStream())));
+        RestUtils.post("http://localhost:8080/users", BenchmarkData.user(1),
+                Map.of("Content-Type", "application/json; charset=UTF-8"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        RestUtils.setRestAssuredConfigHttp();
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Response get() {
+        return RestUtils.get(URL, ContentType.JSON.toString());
+    }
+
+    // Пачка одновременных запросов в виртуальных потоках
+    @Benchmark
+    @OperationsPerInvocation(ASYNC_BATCH)
+    public int asyncBatch() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[ASYNC_BATCH];
+        for (int i = 0; i < ASYNC_BATCH; i++) {
+            responses[i] = RestUtils.async(() -> RestUtils.get(URL, ContentType.JSON.toString()));
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+}
@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка типичных запросов к хранилищу в памяти и к хранилищу в H2 на одинаковых данных:
+ * 10 000 фильмов и пользователей, по 20 лайков и 10 друзей на пользователя.
+ * JDBC-хранилища создаются без прокси Spring, каждый запрос выполняется в режиме автофиксации.
+ * jdbc-cached - те же хранилища за кэшем сущностей, вмещающим все фильмы и пользователей
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageLatencyBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+    private static final int LIKES_PER_USER = 20;
+    private static final int FRIENDS_PER_USER = 10;
+
+    @Param({"memory", "jdbc", "jdbc-cached"})
+    private String storage;
+
+    private EmbeddedDatabase database;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (storage.startsWith("jdbc")) {
+            database = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true)
+                    .addScript("schema.sql")
+                    .build();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+            NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+            filmStorage = new JdbcFilmStorage(jdbcTemplate, namedJdbcTemplate);
+            userStorage = new JdbcUserStorage(jdbcTemplate, namedJdbcTemplate);
+            if (storage.equals("jdbc-cached")) {
+                filmStorage = new CachingFilmStorage(filmStorage, FILMS, Duration.ofMinutes(5), Duration.ofSeconds(5));
+                userStorage = new CachingUserStorage(userStorage, USERS, Duration.ofMinutes(5), Duration.ofSeconds(5));
+            }
+        } else {
+            filmStorage = new InMemoryFilmStorage();
+            userStorage = new InMemoryUserStorage();
+        }
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(BenchmarkData.film(i));
+        }
+        filmStorage.addFilms(films);
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(BenchmarkData.user(i));
+        }
+        userStorage.addUsers(users);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<FilmLike> likes = new ArrayList<>();
+        List<Friendship> friendships = new ArrayList<>();
+        for (int user = 1; user <= USERS; user++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                likes.add(new FilmLike(1 + random.nextInt(FILMS), user));
+            }
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                int friend = 1 + random.nextInt(USERS);
+                if (friend != user) {
+                    friendships.add(new Friendship(user, friend));
+                }
+            }
+        }
+        filmStorage.addLikes(likes);
+        userStorage.addFriends(friendships);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilms().get(1 + ThreadLocalRandom.current().nextInt(FILMS));
+    }
+
+    // Проверки существования из FilmService.validateIds
+    @Benchmark
+    public boolean validateIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userStorage.getUsers().containsKey(1 + random.nextInt(USERS))
+                && filmStorage.getFilms().containsKey(1 + random.nextInt(FILMS));
+    }
+
+    @Benchmark
+    public List<Film> getManyFilms() {
+        List<Integer> ids = new ArrayList<>(20);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20; i++) {
+            ids.add(1 + random.nextInt(FILMS));
+        }
+        return filmStorage.getMany(ids);
+    }
+
+    @Benchmark
+    public boolean toggleLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(FILMS);
+        int userId = 1 + random.nextInt(USERS);
+        return filmStorage.addLike(filmId, userId) || filmStorage.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public List<Integer> popularFilms() {
+        return filmStorage.getPopularFilmIds(10);
+    }
+
+    @Benchmark
+    public int[] commonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userStorage.getCommonFriendIds(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+    }
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.collections;
+
+import java.util.Arrays;
+
+/**
+ * Список вхождений для поискового индекса: id по возрастанию и вес от 0 до 255 для каждого id.
+ * Хранятся разности соседних id в varint и байт веса, поэтому плотный список занимает 2-3 байта
+ * на id вместо 8. Каждые SKIP_INTERVAL id запоминается смещение, чтобы курсор мог перескакивать
+ * через блоки при пересечении с коротким списком. Добавление id больше последнего - O(1),
+ * вставка в середину и удаление перекодируют весь список. Класс не потокобезопасен
+ */
+public class CompressedPostings {
+
+    private static final int MAX_WEIGHT = 255;
+    private static final int SKIP_INTERVAL = 64;
+    private static final int[] NO_SKIPS = new int[0];
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int size;
+    private int lastId;
+    // Для каждого блока: id перед блоком и смещение его начала
+    private int[] skipIds = NO_SKIPS;
+    private int[] skipOffsets = NO_SKIPS;
+    private int skips;
+
+    /**
+     * Добавление id или замена его веса
+     *
+     * @param id     - id больше 0
+     * @param weight - вес, ограничивается значением 255
+     */
+    public void put(int id, int weight) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("id должен быть положительным: " + id);
+        }
+        if (id > lastId) {
+            append(id, weight);
+            return;
+        }
+        int[] ids = new int[size + 1];
+        int[] weights = new int[size + 1];
+        int count = 0;
+        boolean placed = false;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (!placed && cursor.id() >= id) {
+                ids[count] = id;
+                weights[count++] = weight;
+                placed = true;
+                if (cursor.id() == id) {
+                    continue;
+                }
+            }
+            ids[count] = cursor.id();
+            weights[count++] = cursor.weight();
+        }
+        encode(ids, weights, count);
+    }
+
+    public boolean remove(int id) {
+        if (id > lastId) {
+            return false;
+        }
+        int[] ids = new int[size];
+        int[] weights = new int[size];
+        int count = 0;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (cursor.id() != id) {
+                ids[count] = cursor.id();
+                weights[count++] = cursor.weight();
+            }
+        }
+        if (count == size) {
+            return false;
+        }
+        encode(ids, weights, count);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Последовательное чтение списка. Курсор видит список на момент создания
+     * и становится некорректным после изменения списка
+     *
+     * @return Cursor курсор перед первым id
+     */
+    public Cursor cursor() {
+        return new Cursor(data, length, skipIds, skipOffsets, skips);
+    }
+
+    public int sizeInBytes() {
+        return length;
+    }
+
+    private void encode(int[] ids, int[] weights, int count) {
+        data = new byte[Math.max(8, count * 2)];
+        length = 0;
+        size = 0;
+        lastId = 0;
+        skipIds = NO_SKIPS;
+        skipOffsets = NO_SKIPS;
+        skips = 0;
+        for (int i = 0; i < count; i++) {
+            append(ids[i], weights[i]);
+        }
+    }
+
+    private void append(int id, int weight) {
+        if (size > 0 && size % SKIP_INTERVAL == 0) {
+            if (skips == skipIds.length) {
+                skipIds = Arrays.copyOf(skipIds, Math.max(4, skips * 2));
+                skipOffsets = Arrays.copyOf(skipOffsets, skipIds.length);
+            }
+            skipIds[skips] = lastId;
+            skipOffsets[skips++] = length;
+        }
+        if (length + 6 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        int delta = id - lastId;
+        while ((delta & ~0x7F) != 0) {
+            data[length++] = (byte) (delta & 0x7F | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+        data[length++] = (byte) Math.min(weight, MAX_WEIGHT);
+        lastId = id;
+        size++;
+    }
+
+    public static final class Cursor {
+
+        private final byte[] data;
+        private final int end;
+        private final int[] skipIds;
+        private final int[] skipOffsets;
+        private final int skips;
+        private int skip;
+        private int position;
+        private int id;
+        private int weight;
+        private boolean positioned;
+
+        private Cursor(byte[] data, int end, int[] skipIds, int[] skipOffsets, int skips) {
+            this.data = data;
+            this.end = end;
+            this.skipIds = skipIds;
+            this.skipOffsets = skipOffsets;
+            this.skips = skips;
+        }
+
+        /**
+         * Переход к первому id, не меньшему target. Курсор движется только вперед
+         *
+         * @param target - искомый id
+         * @return boolean false, если такого id нет
+         */
+        public boolean advance(int target) {
+            if (positioned && id >= target) {
+                return true;
+            }
+            while (skip < skips && skipIds[skip] < target) {
+                if (skipOffsets[skip] > position) {
+                    position = skipOffsets[skip];
+                    id = skipIds[skip];
+                }
+                skip++;
+            }
+            while (next()) {
+                if (id >= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean next() {
+            if (position >= end) {
+                positioned = false;
+                return false;
+            }
+            int delta = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = data[position++];
+                delta |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            id += delta;
+            weight = data[position++] & 0xFF;
+            positioned = true;
+            return true;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public int weight() {
+            return weight;
+        }
+    }
+}
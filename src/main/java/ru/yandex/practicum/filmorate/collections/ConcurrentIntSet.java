@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.collections;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Потокобезопасное множество идентификаторов из полос IntSortedSet: id попадает в полосу по младшим битам
+ * своего перемешанного значения, у каждой полосы своя блокировка, поэтому добавление и удаление id разных полос из многих потоков
+ * почти не мешают друг другу. Элементы не упаковываются в Integer: около 5 байт на id против ~58
+ * у ConcurrentHashMap.newKeySet(). Множество начинается с одной полосы и удваивает их, когда полоса
+ * вырастает больше SPLIT_SIZE, так что вставка в полосу сдвигает не больше нескольких килобайт,
+ * а маленькое множество не платит за полосы. Размер множество не ведет - количество элементов,
+ * если оно нужно часто, владелец считает отдельно. Обход и toArray дают слабо согласованный снимок
+ */
+public class ConcurrentIntSet {
+
+    private static final int SPLIT_SIZE = 1024;
+    private static final int MAX_SHARDS = 1024;
+
+    // Заменяется целиком при удвоении под блокировками всех полос
+    private volatile IntSortedSet[] shards = {new IntSortedSet()};
+
+    public boolean add(int id) {
+        while (true) {
+            IntSortedSet[] current = shards;
+            IntSortedSet shard = current[shard(id, current.length)];
+            boolean added;
+            boolean full;
+            synchronized (shard) {
+                // Полосы удвоились, пока поток ждал блокировку: id теперь в другой полосе
+                if (shards != current) {
+                    continue;
+                }
+                added = shard.add(id);
+                full = shard.size() > SPLIT_SIZE;
+            }
+            if (full && current.length < MAX_SHARDS) {
+                split(current);
+            }
+            return added;
+        }
+    }
+
+    public boolean remove(int id) {
+        while (true) {
+            IntSortedSet[] current = shards;
+            IntSortedSet shard = current[shard(id, current.length)];
+            synchronized (shard) {
+                if (shards == current) {
+                    return shard.remove(id);
+                }
+            }
+        }
+    }
+
+    public boolean contains(int id) {
+        while (true) {
+            IntSortedSet[] current = shards;
+            IntSortedSet shard = current[shard(id, current.length)];
+            synchronized (shard) {
+                if (shards == current) {
+                    return shard.contains(id);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (IntSortedSet shard : shards) {
+            synchronized (shard) {
+                if (!shard.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (IntSortedSet shard : shards) {
+            int[] snapshot;
+            synchronized (shard) {
+                snapshot = shard.toArray();
+            }
+            for (int id : snapshot) {
+                action.accept(id);
+            }
+        }
+    }
+
+    // id по возрастанию
+    public int[] toArray() {
+        IntSortedSet[] current = shards;
+        int[][] snapshots = new int[current.length][];
+        int size = 0;
+        for (int i = 0; i < current.length; i++) {
+            synchronized (current[i]) {
+                snapshots[i] = current[i].toArray();
+            }
+            size += snapshots[i].length;
+        }
+        if (current.length == 1) {
+            return snapshots[0];
+        }
+        int[] ids = new int[size];
+        int position = 0;
+        for (int[] snapshot : snapshots) {
+            System.arraycopy(snapshot, 0, ids, position, snapshot.length);
+            position += snapshot.length;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private void split(IntSortedSet[] current) {
+        lockAndSplit(current, 0);
+    }
+
+    // Мониторы полос захватываются по порядку вложенными synchronized, удвоение выполняется под всеми
+    private void lockAndSplit(IntSortedSet[] current, int index) {
+        synchronized (current[index]) {
+            if (shards != current) {
+                return;
+            }
+            if (index + 1 < current.length) {
+                lockAndSplit(current, index + 1);
+                return;
+            }
+            IntSortedSet[] doubled = new IntSortedSet[current.length * 2];
+            for (int i = 0; i < doubled.length; i++) {
+                doubled[i] = new IntSortedSet();
+            }
+            // Полоса i делится на полосы i и i + current.length, id в каждой добавляются по возрастанию
+            for (IntSortedSet shard : current) {
+                shard.forEach(id -> doubled[shard(id, doubled.length)].add(id));
+            }
+            shards = doubled;
+        }
+    }
+
+    // Перемешивание разносит по полосам и id с общим шагом, например только четные
+    private static int shard(int id, int shards) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & (shards - 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof ConcurrentIntSet other && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.collections;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Счетчики по положительным int-ключам: открытая адресация с линейным пробированием, без упаковки в Integer.
+ * Число ключей ограничено maxSize: новый ключ при заполненной карте отбрасывается.
+ * Счетчик, опустившийся до нуля, удаляется. Класс не потокобезопасен
+ */
+public class IntCounterMap {
+
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int maxSize;
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    public IntCounterMap(int maxSize) {
+        this.maxSize = maxSize;
+        this.keys = new int[MIN_CAPACITY];
+        this.counts = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * Изменение счетчика
+     *
+     * @param key   - ключ, больше 0
+     * @param delta - приращение; уменьшение отсутствующего счетчика игнорируется
+     * @return boolean false, если новый ключ не поместился в карту
+     */
+    public boolean add(int key, int delta) {
+        if (key <= EMPTY) {
+            throw new IllegalArgumentException("Ключ должен быть положительным: " + key);
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            counts[slot] += delta;
+            if (counts[slot] <= 0) {
+                removeAt(slot);
+            }
+            return true;
+        }
+        if (delta <= 0) {
+            return true;
+        }
+        if (size == maxSize) {
+            return false;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+            slot = find(key);
+        }
+        keys[slot] = key;
+        counts[slot] = delta;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int key) {
+        int slot = find(key);
+        if (keys[slot] != key) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    public int get(int key) {
+        int slot = find(key);
+        return keys[slot] == key ? counts[slot] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    public void forEach(EntryConsumer action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                action.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Ключи с наибольшими счетчиками, при равенстве - с меньшим ключом
+     *
+     * @param limit   - максимальное количество ключей
+     * @param exclude - ключи, которые не попадают в результат
+     * @return int[] ключи по убыванию счетчика
+     */
+    public int[] top(int limit, IntPredicate exclude) {
+        // Счетчик в старших битах, инвертированный ключ в младших: сортировка по возрастанию дает нужный порядок
+        long[] ranked = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && !exclude.test(keys[slot])) {
+                ranked[count++] = (long) counts[slot] << 32 | (Integer.MAX_VALUE - keys[slot]);
+            }
+        }
+        Arrays.sort(ranked, 0, count);
+        int[] result = new int[Math.min(limit, count)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Integer.MAX_VALUE - (int) ranked[count - 1 - i];
+        }
+        return result;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Удаление со сдвигом следующих ключей цепочки, чтобы не оставлять пометок об удалении
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                counts[hole] = counts[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(int key, int count);
+    }
+}
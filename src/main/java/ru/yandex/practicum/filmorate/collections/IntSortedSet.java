@@ -0,0 +1,216 @@
+package ru.yandex.practicum.filmorate.collections;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Компактное множество идентификаторов: отсортированный массив int без упаковки в Integer.
+ * Занимает 4 байта на элемент (плюс запас на рост), поиск - O(log n), вставка и удаление - O(n).
+ * Класс не потокобезопасен: изменения выполняются под блокировкой владельца,
+ * чтение без блокировки (например, при сериализации) дает приблизительный снимок.
+ */
+public class IntSortedSet {
+
+    private static final int[] EMPTY = new int[0];
+    // При таком и большем соотношении размеров поиск галопом выгоднее последовательного слияния
+    private static final int GALLOP_RATIO = 16;
+
+    private int[] elements;
+    private int size;
+
+    public IntSortedSet() {
+        this.elements = EMPTY;
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static IntSortedSet of(int... ids) {
+        IntSortedSet set = new IntSortedSet();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    /**
+     * Множество поверх уже отсортированного массива без копирования
+     *
+     * @param sorted - id строго по возрастанию; массив переходит во владение множества
+     * @return IntSortedSet множество
+     */
+    public static IntSortedSet ofSorted(int[] sorted) {
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1] >= sorted[i]) {
+                throw new IllegalArgumentException("Массив id должен быть строго возрастающим");
+            }
+        }
+        IntSortedSet set = new IntSortedSet();
+        set.elements = sorted;
+        set.size = sorted.length;
+        return set;
+    }
+
+    public boolean add(int id) {
+        int index = Arrays.binarySearch(elements, 0, size, id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(elements, insertAt, elements, insertAt + 1, size - insertAt);
+        elements[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int id) {
+        int index = Arrays.binarySearch(elements, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(elements, 0, size, id) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        elements = EMPTY;
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    @JsonValue
+    public int[] toArray() {
+        int[] snapshot = elements;
+        return Arrays.copyOf(snapshot, Math.min(size, snapshot.length));
+    }
+
+    /**
+     * Пересечение двух множеств. Обход ведется по меньшему множеству
+     *
+     * @param first  - первое множество
+     * @param second - второе множество
+     * @return int[] общие элементы по возрастанию
+     */
+    public static int[] intersect(IntSortedSet first, IntSortedSet second) {
+        IntSortedSet small = first.size <= second.size ? first : second;
+        IntSortedSet large = small == first ? second : first;
+        int[] out = new int[small.size];
+        int count = intersect(small.elements, small.size, large.elements, large.size, out);
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Размер пересечения двух множеств без построения самого пересечения
+     *
+     * @param first  - первое множество
+     * @param second - второе множество
+     * @return int количество общих элементов
+     */
+    public static int intersectionSize(IntSortedSet first, IntSortedSet second) {
+        IntSortedSet small = first.size <= second.size ? first : second;
+        IntSortedSet large = small == first ? second : first;
+        return intersect(small.elements, small.size, large.elements, large.size, null);
+    }
+
+    // Общие элементы записываются в out, если он передан; возвращается их количество
+    private static int intersect(int[] small, int smallSize, int[] large, int largeSize, int[] out) {
+        if (smallSize == 0) {
+            return 0;
+        }
+        if (largeSize / smallSize >= GALLOP_RATIO) {
+            return gallop(small, smallSize, large, largeSize, out);
+        }
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < smallSize && j < largeSize) {
+            int a = small[i];
+            int b = large[j];
+            if (a == b) {
+                if (out != null) {
+                    out[count] = a;
+                }
+                count++;
+            }
+            // Указатели сдвигаются без ветвлений, при равенстве элементов - оба сразу
+            i += a <= b ? 1 : 0;
+            j += b <= a ? 1 : 0;
+        }
+        return count;
+    }
+
+    // Для каждого элемента меньшего массива позиция в большем ищется экспоненциальным шагом
+    // от предыдущей найденной позиции, затем бинарным поиском: O(m log(n / m))
+    private static int gallop(int[] small, int smallSize, int[] large, int largeSize, int[] out) {
+        int count = 0;
+        int low = 0;
+        for (int i = 0; i < smallSize && low < largeSize; i++) {
+            int target = small[i];
+            int step = 1;
+            int high = low;
+            while (high < largeSize && large[high] < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(large, low, Math.min(high + 1, largeSize), target);
+            if (index >= 0) {
+                if (out != null) {
+                    out[count] = target;
+                }
+                count++;
+                low = index + 1;
+            } else {
+                low = -index - 1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntSortedSet other)) {
+            return false;
+        }
+        return Arrays.equals(elements, 0, size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + elements[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.collections;
+
+import java.util.Arrays;
+
+/**
+ * Карта положительных long-ключей в long-значения: открытая адресация с линейным пробированием,
+ * без упаковки в Long. Класс не потокобезопасен
+ */
+public class LongLongMap {
+
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongLongMap() {
+        this.keys = new long[MIN_CAPACITY];
+        this.values = new long[MIN_CAPACITY];
+    }
+
+    /**
+     * Запись значения ключа
+     *
+     * @param key   - ключ, больше 0
+     * @param value - значение, заменяет прежнее
+     */
+    public void put(long key, long value) {
+        if (key <= EMPTY) {
+            throw new IllegalArgumentException("Ключ должен быть положительным: " + key);
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            values[slot] = value;
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+            slot = find(key);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        int slot = find(key);
+        return keys[slot] == key && key != EMPTY ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return key != EMPTY && keys[find(key)] == key;
+    }
+
+    public boolean remove(long key) {
+        int slot = find(key);
+        if (key == EMPTY || keys[slot] != key) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Удаление ключа, только если он все еще связан с этим значением
+     *
+     * @param key   - ключ
+     * @param value - ожидаемое значение
+     * @return boolean true, если ключ удален
+     */
+    public boolean remove(long key, long value) {
+        int slot = find(key);
+        if (key == EMPTY || keys[slot] != key || values[slot] != value) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Удаление со сдвигом следующих ключей цепочки, чтобы не оставлять пометок об удалении
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.collections;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченная очередь для многих производителей и одного потребителя на кольцевом массиве.
+ * Каждая ячейка хранит номер хода, для которого она свободна (номер + 1 - заполнена):
+ * производитель занимает ячейку одним CAS по хвосту, без блокировок, и при заполненной очереди
+ * сразу получает отказ. Потребитель забирает элементы пачкой без CAS - голова принадлежит только ему
+ */
+public class MpscArrayQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Изменяется только потребителем, volatile - для приблизительного размера из других потоков
+    private volatile long head;
+
+    public MpscArrayQueue(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Емкость очереди должна быть степенью двойки: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Добавление элемента, может вызываться из любого потока
+     *
+     * @param element - элемент, не null
+     * @return boolean false, если очередь заполнена
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(slot, element);
+                    // Запись номера публикует элемент потребителю
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // Ячейку еще занимает элемент предыдущего круга
+                return false;
+            }
+            // Ячейку занял другой производитель, пробуем следующую позицию
+        }
+    }
+
+    /**
+     * Извлечение элементов в порядке добавления, вызывается только потребителем.
+     * Если обработчик бросил исключение, элемент, на котором это произошло, уже извлечен,
+     * а следующий вызов drain продолжит с элемента после него
+     *
+     * @param action - обработчик элемента
+     * @param limit  - максимальное количество элементов
+     * @return int количество извлеченных элементов
+     */
+    public int drain(Consumer<E> action, int limit) {
+        long position = head;
+        int count = 0;
+        while (count < limit) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                break;
+            }
+            E element = elements.get(slot);
+            elements.lazySet(slot, null);
+            sequences.set(slot, position + mask + 1);
+            position++;
+            count++;
+            // Голова сдвигается до вызова обработчика: освобожденная ячейка не должна остаться позади головы
+            head = position;
+            action.accept(element);
+        }
+        return count;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    // Приблизительный размер: производители могли занять ячейки, но еще не записать элементы
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
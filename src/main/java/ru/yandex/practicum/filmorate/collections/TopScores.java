@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.collections;
+
+import java.util.Arrays;
+
+/**
+ * Ограниченный отбор id с наибольшими оценками: по убыванию оценки, при равенстве - по возрастанию id.
+ * Вставка стоит O(limit), но id хуже последнего отобранного отсекается за O(1).
+ * Класс не потокобезопасен
+ */
+public class TopScores {
+
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+
+    public TopScores(int limit) {
+        this.ids = new int[limit];
+        this.scores = new double[limit];
+    }
+
+    public void offer(int id, double score) {
+        int position = size;
+        while (position > 0 && (scores[position - 1] < score
+                || scores[position - 1] == score && ids[position - 1] > id)) {
+            position--;
+        }
+        if (position == ids.length) {
+            return;
+        }
+        int moved = Math.min(size, ids.length - 1) - position;
+        System.arraycopy(ids, position, ids, position + 1, moved);
+        System.arraycopy(scores, position, scores, position + 1, moved);
+        ids[position] = id;
+        scores[position] = score;
+        size = Math.min(size + 1, ids.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    public double[] scores() {
+        return Arrays.copyOf(scores, size);
+    }
+}
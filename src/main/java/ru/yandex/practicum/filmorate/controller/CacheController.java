@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class CacheController {
+
+    // Кэши есть только при filmorate.cache.enabled=true
+    private final ObjectProvider<CachingFilmStorage> filmStorage;
+    private final ObjectProvider<CachingUserStorage> userStorage;
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Map<String, Number>>> getStats() {
+        Map<String, Map<String, Number>> stats = new LinkedHashMap<>();
+        filmStorage.ifAvailable(storage -> put(stats, storage.getCache()));
+        userStorage.ifAvailable(storage -> put(stats, storage.getCache()));
+        return ResponseEntity.status(HttpStatus.OK).body(stats);
+    }
+
+    private static void put(Map<String, Map<String, Number>> stats, EntityCache<?> cache) {
+        stats.put(cache.getName(), cache.getStats());
+    }
+}
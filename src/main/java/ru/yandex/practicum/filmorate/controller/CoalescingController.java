@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class CoalescingController {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JsonResponseCache responseCache;
+
+    @GetMapping("/coalescing/stats")
+    public ResponseEntity<Map<String, Map<String, Number>>> getStats() {
+        Map<String, Map<String, Number>> stats = new LinkedHashMap<>();
+        for (SingleFlight<?, ?> flight : List.of(filmService.getPopularFilmsFlight(),
+                userService.getCommonFriendsFlight(), responseCache.getBuildFlight())) {
+            stats.put(flight.getName(), flight.getStats());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(stats);
+    }
+}
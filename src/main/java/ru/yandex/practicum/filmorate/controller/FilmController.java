@@ -3,15 +3,24 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
 import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.KeyRange;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -20,44 +29,128 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class FilmController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // Страница больше этого не нужна клиентам и только занимает память под ответ
+    private static final int MAX_PAGE_LIMIT = 10_000;
+
     private final FilmService filmService;
     private final FilmStorage filmStorage;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final JsonResponseCache responseCache;
+    private final LikeIngestion likeIngestion;
 
     @PostMapping("/films")
     public ResponseEntity<Film> addFilm(@Valid @RequestBody Film film) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(filmStorage.addFilm(film));
+        return ResponseEntity.status(HttpStatus.CREATED).body(filmService.addFilm(film));
+    }
+
+    @PostMapping("/films/batch")
+    public ResponseEntity<List<BatchItemResult>> addFilms(@RequestBody List<Film> films) {
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.addFilms(films));
     }
 
     @PutMapping("/films/{id}")
     public ResponseEntity<Film> updateFilm(@PathVariable int id, @Valid @RequestBody Film film) {
-        return ResponseEntity.status(HttpStatus.OK).body(filmStorage.updateFilm(id, film));
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.updateFilm(id, film));
     }
 
     @ResponseStatus(HttpStatus.OK)
     @GetMapping("/films")
-    public ResponseEntity<List<Film>> getAllFilms() {
-        return ResponseEntity.status(HttpStatus.OK).body(filmStorage.getAllFilms());
+    public ResponseEntity<?> getAllFilms(@RequestParam(required = false) Integer limit,
+                                         @RequestParam(defaultValue = "0") int cursor,
+                                         @RequestParam(required = false) List<Integer> ids,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+                                         LocalDate releasedFrom,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+                                         LocalDate releasedTo,
+                                         @RequestParam(required = false) Long minDuration,
+                                         @RequestParam(required = false) Long maxDuration,
+                                         WebRequest request) {
+        if (ids != null) {
+            return ResponseEntity.status(HttpStatus.OK).body(filmStorage.getMany(ids));
+        }
+        KeyRange<LocalDate> releaseDate = KeyRange.of(releasedFrom, releasedTo);
+        KeyRange<Long> duration = KeyRange.of(minDuration, maxDuration);
+        boolean filtered = releaseDate.isBounded() || duration.isBounded();
+        if (limit == null && !filtered) {
+            return responseCache.get("films", filmStorage.getVersions().getCollectionVersion(), request,
+                    filmStorage::getAllFilms);
+        }
+        // Выборка по фильтру без limit отдается страницами наибольшего размера
+        if (limit == null) {
+            limit = MAX_PAGE_LIMIT;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new CustomValidationExpression("Параметр limit должен быть от 1 до " + MAX_PAGE_LIMIT);
+        }
+        List<Film> page = filtered ? filmStorage.findFilms(releaseDate, duration, cursor, limit)
+                : filmStorage.getFilmsPage(cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, Integer.toString(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
+    }
+
+    @GetMapping("/films/stream")
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        return jsonArrayStreamer.stream(filmStorage::forEachFilm);
     }
 
     @ResponseStatus(HttpStatus.OK)
     @GetMapping("/films/clear")
     public ResponseEntity<List<Film>> clearFilms() {
-        return ResponseEntity.status(HttpStatus.OK).body(filmStorage.clearFilms());
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.clearFilms());
+    }
+
+    @DeleteMapping("/films/{id}")
+    public ResponseEntity<Map<String, String>> deleteFilm(@PathVariable int id) {
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.deleteFilm(id));
     }
 
     @PutMapping("/films/{id}/like/{userId}")
     public ResponseEntity<Map<String, String>> addLike(@Valid @PathVariable int id, @Valid @PathVariable int userId) throws CustomValidationExpression {
+        if (likeIngestion.isEnabled()) {
+            // Лайк принят в очередь и будет применен потоком записи
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(likeIngestion.submit(id, userId));
+        }
         return ResponseEntity.status(HttpStatus.OK).body(filmService.addLike(id, userId));
     }
 
+    @PutMapping("/films/likes/batch")
+    public ResponseEntity<List<BatchItemResult>> addLikes(@RequestBody List<FilmLike> likes) {
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.addLikes(likes));
+    }
+
     @DeleteMapping("/films/{id}/like/{userId}")
     public ResponseEntity<Map<String, String>> deleteLike(@Valid @PathVariable int id, @Valid @PathVariable int userId) throws CustomValidationExpression {
         return ResponseEntity.status(HttpStatus.OK).body(filmService.deleteLike(id, userId));
     }
 
     @GetMapping("/films/popular")
-    public ResponseEntity<List<Film>> getPopularFilms(@Valid @RequestParam int count) throws CustomValidationExpression {
-        return ResponseEntity.status(HttpStatus.OK).body(filmService.getFilmsByListIDs(filmService.getPopularFilms(count)));
+    public ResponseEntity<byte[]> getPopularFilms(@Valid @RequestParam int count, WebRequest request)
+            throws CustomValidationExpression {
+        return responseCache.get("films/popular?count=" + count, filmStorage.getVersions().getCollectionVersion(),
+                request, () -> filmService.getFilmsByListIDs(filmService.getPopularFilms(count)));
+    }
+
+    @GetMapping("/films/search")
+    public ResponseEntity<List<Film>> searchFilms(@RequestParam(required = false) String query,
+                                                  @RequestParam(defaultValue = "20") int count,
+                                                  @RequestParam(defaultValue = "false") boolean byLikes) {
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.searchFilms(query, count, byLikes));
+    }
+
+    @GetMapping("/films/trending")
+    public ResponseEntity<List<Film>> getTrendingFilms(@RequestParam(defaultValue = "day") String period,
+                                                       @RequestParam(defaultValue = "10") int count) {
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.getTrendingFilms(period, count));
+    }
+
+    @GetMapping("/users/{id}/recommended-films")
+    public ResponseEntity<List<Film>> getRecommendedFilms(@PathVariable int id,
+                                                          @RequestParam(defaultValue = "10") int count) {
+        return ResponseEntity.status(HttpStatus.OK).body(filmService.getRecommendedFilms(id, count));
     }
 
     //ЭТО реализовано, чтоб просто пройти ПР по тестам, которые противоречат логике, здравому смыслу и стандартам
@@ -66,7 +159,7 @@ public class FilmController {
     public ResponseEntity<Film> updateFilm(@Valid @RequestBody Film film) {
         int id = film.getId();
         if (filmStorage.getFilms().containsKey(id)) {
-            filmStorage.updateFilm(id, film);
+            filmService.updateFilm(id, film);
             log.info("Изменен фильм {}", filmStorage.getFilms().get(film.getId()));
             return ResponseEntity.status(HttpStatus.OK).body(filmStorage.getFilms().get(id));
         } else {
@@ -1,13 +1,18 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
 import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.QueueFullException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -15,10 +20,24 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final Counter validationFailures;
+    private final Counter notFound;
+
+    public GlobalExceptionHandler(MeterRegistry registry) {
+        this.validationFailures = Counter.builder("filmorate.validation.failures")
+                .description("Запросы, отклоненные валидацией")
+                .tag("source", "request")
+                .register(registry);
+        this.notFound = Counter.builder("filmorate.not.found")
+                .description("Обращения к несуществующим id")
+                .register(registry);
+    }
+
     // Обработка ошибок валидации полей (например, @NotBlank, @Pattern и т.д.)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        validationFailures.increment();
         Map<String, String> errors = new HashMap<>();
         ex.getBindingResult().getFieldErrors().forEach(error ->
                 errors.put(error.getField(), error.getDefaultMessage())
@@ -30,6 +49,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(ConstraintViolationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleConstraintViolation(ConstraintViolationException ex) {
+        validationFailures.increment();
         Map<String, String> errors = new HashMap<>();
         ex.getConstraintViolations().forEach(violation ->
                 errors.put(violation.getPropertyPath().toString(), violation.getMessage())
@@ -41,6 +61,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(CustomValidationExpression.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleValidationException(CustomValidationExpression ex) {
+        validationFailures.increment();
         Map<String, String> error = new HashMap<>();
         error.put("error", ex.getMessage());
         return error;
@@ -49,11 +70,22 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(IdNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public Map<String, String> handleNotFoundException(IdNotFoundException ex) {
+        notFound.increment();
         Map<String, String> error = new HashMap<>();
         error.put("error", ex.getMessage());
         return error;
     }
 
+    // Очередь асинхронного приема лайков заполнена: клиент повторяет запрос позже
+    @ExceptionHandler(QueueFullException.class)
+    public ResponseEntity<Map<String, String>> handleQueueFullException(QueueFullException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
     // Обработка других общих исключений
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов в виде готового UTF-8 JSON.
+ * Ответ хранится вместе с версией данных, из которых построен, и пока версия не изменилась,
+ * отдается без вычисления и сериализации. Версия же служит ETag: на совпавший If-None-Match отвечаем 304
+ */
+@Component
+public class JsonResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CachedResponse> cache;
+    // Промахи по одному ключу и версии строят и сериализуют ответ один раз
+    private final SingleFlight<ResponseKey, CachedResponse> buildFlight = new SingleFlight<>("responses");
+    // Версии начинаются заново при каждом запуске, поэтому ETag прежнего запуска не должен совпасть с новым
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             @Value("${filmorate.response-cache.max-size:64MB}") DataSize maxSize) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse response) -> response.body().length)
+                .build();
+    }
+
+    /**
+     * Ответ из кэша или построенный заново
+     *
+     * @param key     - ключ ответа, различающий запросы с разными параметрами
+     * @param version - текущая версия данных, из которых строится ответ
+     * @param request - запрос с возможным If-None-Match
+     * @param body    - построение тела ответа, вызывается только при промахе, в том числе перед ответом 304
+     * @return ResponseEntity<byte[]> ответ 200 с телом и ETag или 304
+     */
+    public ResponseEntity<byte[]> get(String key, long version, WebRequest request, Supplier<?> body) {
+        String etag = "\"" + epoch + "-" + version + "\"";
+        // Сначала ответ должен существовать: отсутствующая сущность отдает свой 404 даже на If-None-Match: *
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached == null || cached.version() != version) {
+            cached = buildFlight.execute(new ResponseKey(key, version), () -> build(key, version, body));
+        }
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cached.body());
+    }
+
+    private CachedResponse build(String key, long version, Supplier<?> body) {
+        CachedResponse built = new CachedResponse(version, serialize(body.get()));
+        // Медленный запрос по старой версии не должен вытеснить ответ по более новой
+        CachedResponse cached = cache.asMap().merge(key, built,
+                (previous, current) -> previous.version() > current.version() ? previous : current);
+        return cached.version() == version ? cached : built;
+    }
+
+    public SingleFlight<ResponseKey, CachedResponse> getBuildFlight() {
+        return buildFlight;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    record ResponseKey(String key, long version) {
+    }
+
+    record CachedResponse(long version, byte[] body) {
+    }
+}
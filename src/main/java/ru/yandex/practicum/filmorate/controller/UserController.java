@@ -3,15 +3,25 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
 import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.KeyRange;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 
@@ -20,37 +30,110 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // Страница больше этого не нужна клиентам и только занимает память под ответ
+    private static final int MAX_PAGE_LIMIT = 10_000;
+
     private final UserService userService;
     private final UserStorage userStorage;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final JsonResponseCache responseCache;
 
     @PostMapping("/users")
     public ResponseEntity<User> addUser(@Valid @RequestBody User user) throws CustomValidationExpression {
         return ResponseEntity.status(HttpStatus.CREATED).body(userStorage.addUser(user));
     }
 
+    @PostMapping("/users/batch")
+    public ResponseEntity<List<BatchItemResult>> addUsers(@RequestBody List<User> users) {
+        return ResponseEntity.status(HttpStatus.OK).body(userService.addUsers(users));
+    }
+
     @PutMapping("/users/{id}")
     public ResponseEntity<User> updateUser(@PathVariable int id, @Valid @RequestBody User user) throws CustomValidationExpression {
         return ResponseEntity.status(HttpStatus.OK).body(userStorage.updateUser(id, user));
     }
 
     @GetMapping("users")
-    public ResponseEntity<List<User>> getUsers() {
-        return ResponseEntity.status(HttpStatus.OK).body(userStorage.getAllUsers());
+    public ResponseEntity<List<User>> getUsers(@RequestParam(required = false) Integer limit,
+                                               @RequestParam(defaultValue = "0") int cursor,
+                                               @RequestParam(required = false) List<Integer> ids,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+                                               LocalDate bornFrom,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+                                               LocalDate bornTo,
+                                               @RequestParam(required = false) String birthday) {
+        if (ids != null) {
+            return ResponseEntity.status(HttpStatus.OK).body(userStorage.getMany(ids));
+        }
+        KeyRange<LocalDate> born = KeyRange.of(bornFrom, bornTo);
+        MonthDay birthdayInYear = parseBirthday(birthday);
+        KeyRange<MonthDay> birthdayRange = KeyRange.of(birthdayInYear, birthdayInYear);
+        boolean filtered = born.isBounded() || birthdayRange.isBounded();
+        if (limit == null && !filtered) {
+            return ResponseEntity.status(HttpStatus.OK).body(userStorage.getAllUsers());
+        }
+        // Выборка по фильтру без limit отдается страницами наибольшего размера
+        if (limit == null) {
+            limit = MAX_PAGE_LIMIT;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new CustomValidationExpression("Параметр limit должен быть от 1 до " + MAX_PAGE_LIMIT);
+        }
+        List<User> page = filtered ? userStorage.findUsers(born, birthdayRange, cursor, limit)
+                : userStorage.getUsersPage(cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, Integer.toString(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
+    }
+
+    // День рождения без года в формате MM-dd, today - сегодняшний
+    private static MonthDay parseBirthday(String birthday) {
+        if (birthday == null) {
+            return null;
+        }
+        if (birthday.equals("today")) {
+            return MonthDay.now();
+        }
+        try {
+            return MonthDay.parse("--" + birthday);
+        } catch (DateTimeParseException e) {
+            throw new CustomValidationExpression("Параметр birthday должен быть в формате MM-dd или today");
+        }
+    }
+
+    @GetMapping("/users/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return jsonArrayStreamer.stream(userStorage::forEachUser);
     }
 
     @GetMapping("/users/clear")
     public ResponseEntity<List<User>> clearUsers() {
-        return ResponseEntity.status(HttpStatus.OK).body(userStorage.clearUsers());
+        return ResponseEntity.status(HttpStatus.OK).body(userService.clearUsers());
+    }
+
+    @DeleteMapping("/users/{id}")
+    public ResponseEntity<Map<String, String>> deleteUser(@PathVariable int id) {
+        return ResponseEntity.status(HttpStatus.OK).body(userService.deleteUser(id));
+    }
+
+    @GetMapping("/users/by-email")
+    public ResponseEntity<User> getUserByEmail(@RequestParam String email) {
+        return ResponseEntity.status(HttpStatus.OK).body(userStorage.getUserByEmail(email));
     }
 
     @GetMapping("/users/{id}")
-    public ResponseEntity<User> getUser(@Valid @PathVariable int id) throws CustomValidationExpression {
-        return ResponseEntity.status(HttpStatus.OK).body(userStorage.getUser(id));
+    public ResponseEntity<byte[]> getUser(@Valid @PathVariable int id, WebRequest request)
+            throws CustomValidationExpression {
+        return responseCache.get("users/" + id, userStorage.getVersions().getVersion(id), request,
+                () -> userStorage.getUser(id));
     }
 
     @GetMapping("/users/{id}/friends")
     public ResponseEntity<List<User>> getUserFriends(@Valid @PathVariable int id) throws CustomValidationExpression {
-        return ResponseEntity.status(HttpStatus.OK).body(userService.getUsersByListIDs(userStorage.getUser(id).getFriends().stream().toList()));
+        return ResponseEntity.status(HttpStatus.OK).body(userService.getFriends(id));
     }
 
     @PutMapping("/users/{id}/friends/{friendId}")
@@ -58,14 +141,30 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.OK).body(userService.addToFriends(id, friendId));
     }
 
+    @PutMapping("/users/friends/batch")
+    public ResponseEntity<List<BatchItemResult>> addFriends(@RequestBody List<Friendship> friendships) {
+        return ResponseEntity.status(HttpStatus.OK).body(userService.addFriends(friendships));
+    }
+
     @DeleteMapping("/users/{id}/friends/{friendId}")
     public ResponseEntity<Map<String, String>> deleteFromFriends(@Valid @PathVariable int id, @Valid @PathVariable int friendId) throws CustomValidationExpression {
         return ResponseEntity.status(HttpStatus.OK).body(userService.deleteFromFriends(id, friendId));
     }
 
+    @GetMapping("/users/{id}/recommendations")
+    public ResponseEntity<List<User>> getRecommendations(@PathVariable int id,
+                                                         @RequestParam(defaultValue = "10") int count) {
+        return ResponseEntity.status(HttpStatus.OK).body(userService.getRecommendations(id, count));
+    }
+
     @GetMapping("/users/{id}/friends/common/{otherId}")
     public ResponseEntity<List<User>> getUserCommonFriends(@Valid @PathVariable int id, @Valid @PathVariable int otherId) throws CustomValidationExpression {
-        return ResponseEntity.status(HttpStatus.OK).body(userService.getUsersByListIDs(userService.getCommonFriendsList(id, otherId).stream().toList()));
+        return ResponseEntity.status(HttpStatus.OK).body(userService.getUsersByListIDs(userService.getCommonFriendsList(id, otherId)));
+    }
+
+    @GetMapping("/users/{id}/friends/common/{otherId}/count")
+    public ResponseEntity<Map<String, Integer>> getUserCommonFriendsCount(@PathVariable int id, @PathVariable int otherId) {
+        return ResponseEntity.status(HttpStatus.OK).body(userService.getCommonFriendsCount(id, otherId));
     }
 
     //ЭТО реализовано, чтоб просто пройти ПР по тестам, которые противоречат логике, здравому смыслу и стандартам
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+public class QueueFullException extends RuntimeException {
+
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
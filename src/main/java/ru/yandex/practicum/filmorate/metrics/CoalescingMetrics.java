@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.controller.JsonResponseCache;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+
+/**
+ * Счетчики объединения одинаковых запросов, те же, что отдает /coalescing/stats
+ */
+@Component
+@RequiredArgsConstructor
+public class CoalescingMetrics implements MeterBinder {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JsonResponseCache responseCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (SingleFlight<?, ?> flight : List.of(filmService.getPopularFilmsFlight(),
+                userService.getCommonFriendsFlight(), responseCache.getBuildFlight())) {
+            FunctionCounter.builder("filmorate.coalescing.executions", flight, SingleFlight::getExecutions)
+                    .description("Выполненные вычисления")
+                    .tag("flight", flight.getName())
+                    .register(registry);
+            FunctionCounter.builder("filmorate.coalescing.coalesced", flight, SingleFlight::getCoalesced)
+                    .description("Запросы, получившие результат чужого вычисления")
+                    .tag("flight", flight.getName())
+                    .register(registry);
+            Gauge.builder("filmorate.coalescing.waiting", flight, SingleFlight::getWaiting)
+                    .description("Запросы, ожидающие результата")
+                    .tag("flight", flight.getName())
+                    .register(registry);
+        }
+    }
+}
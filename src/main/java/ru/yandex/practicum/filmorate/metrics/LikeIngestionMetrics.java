@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
+
+/**
+ * Очередь асинхронного приема лайков: заполненность, принятые, отклоненные, примененные и не примененные лайки,
+ * число пачек.
+ * Средний размер пачки - applied / batches
+ */
+@Component
+@RequiredArgsConstructor
+public class LikeIngestionMetrics implements MeterBinder {
+
+    private final LikeIngestion likeIngestion;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!likeIngestion.isEnabled()) {
+            return;
+        }
+        Gauge.builder("filmorate.likes.async.queue", likeIngestion, LikeIngestion::getQueueSize)
+                .description("Лайки в очереди")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.async.accepted", likeIngestion, LikeIngestion::getAccepted)
+                .description("Принятые в очередь лайки")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.async.rejected", likeIngestion, LikeIngestion::getRejected)
+                .description("Лайки, отклоненные из-за заполненной очереди")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.async.applied", likeIngestion, LikeIngestion::getApplied)
+                .description("Примененные лайки")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.async.failed", likeIngestion, LikeIngestion::getFailed)
+                .description("Лайки, не примененные ни в пачке, ни по одному")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.async.batches", likeIngestion, LikeIngestion::getBatches)
+                .description("Примененные пачки")
+                .register(registry);
+    }
+}
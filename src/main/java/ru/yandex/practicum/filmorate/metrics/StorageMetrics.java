@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Метрики содержимого хранилищ: количество сущностей, лайков и дружб,
+ * распределение размеров множеств лайков фильмов и друзей пользователей.
+ * Распределение требует обхода всех сущностей, поэтому считается при чтении метрики
+ * и переиспользуется до истечения refreshInterval
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectProvider<CachingFilmStorage> cachingFilmStorage;
+    private final ObjectProvider<CachingUserStorage> cachingUserStorage;
+    private final long refreshNanos;
+    private volatile Snapshot snapshot;
+
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage,
+                          ObjectProvider<CachingFilmStorage> cachingFilmStorage,
+                          ObjectProvider<CachingUserStorage> cachingUserStorage,
+                          @Value("${filmorate.metrics.storage-stats-refresh:30s}") Duration refreshInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.cachingFilmStorage = cachingFilmStorage;
+        this.cachingUserStorage = cachingUserStorage;
+        this.refreshNanos = refreshInterval.toNanos();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, storage -> storage.getFilms().size())
+                .description("Количество фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, storage -> storage.getUsers().size())
+                .description("Количество пользователей")
+                .register(registry);
+        gauge(registry, "filmorate.likes", "Количество лайков", s -> s.likes().total);
+        gauge(registry, "filmorate.friendships", "Количество дружб", s -> s.friends().total / 2.0);
+        bindSizes(registry, "filmorate.film.likes.size", "Количество лайков у фильма", true);
+        bindSizes(registry, "filmorate.user.friends.size", "Количество друзей у пользователя", false);
+        cachingFilmStorage.ifAvailable(storage -> storage.getCache().bindTo(registry));
+        cachingUserStorage.ifAvailable(storage -> storage.getCache().bindTo(registry));
+    }
+
+    // Корзины по степеням двойки, как у гистограмм Prometheus: значение корзины le - число множеств размером <= le
+    private void bindSizes(MeterRegistry registry, String name, String description, boolean likes) {
+        for (int bucket = 0; bucket < SizeDistribution.BUCKETS; bucket++) {
+            int index = bucket;
+            Gauge.builder(name + ".buckets", this,
+                            metrics -> metrics.distribution(likes).cumulative(index))
+                    .description(description)
+                    .tag("le", SizeDistribution.upperBound(bucket))
+                    .register(registry);
+        }
+        Gauge.builder(name + ".max", this, metrics -> metrics.distribution(likes).max)
+                .description(description)
+                .register(registry);
+        Gauge.builder(name + ".mean", this, metrics -> metrics.distribution(likes).mean())
+                .description(description)
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, ToDoubleFunction<Snapshot> value) {
+        Gauge.builder(name, this, metrics -> value.applyAsDouble(metrics.snapshot()))
+                .description(description)
+                .register(registry);
+    }
+
+    private SizeDistribution distribution(boolean likes) {
+        Snapshot current = snapshot();
+        return likes ? current.likes() : current.friends();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || System.nanoTime() - current.takenAt() > refreshNanos) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || System.nanoTime() - current.takenAt() > refreshNanos) {
+                    SizeDistribution likes = new SizeDistribution();
+                    filmStorage.forEachFilm(film -> likes.add(film.getLikesCount()));
+                    SizeDistribution friends = new SizeDistribution();
+                    userStorage.forEachUser(user -> friends.add(user.getFriends().size()));
+                    current = new Snapshot(System.nanoTime(), likes, friends);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private record Snapshot(long takenAt, SizeDistribution likes, SizeDistribution friends) {
+    }
+
+    private static final class SizeDistribution {
+
+        // 0, 1, 2, 4, ..., 2^20 и +Inf
+        static final int BUCKETS = 23;
+
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long total;
+        private long max;
+
+        void add(int size) {
+            int bucket = size == 0 ? 0 : Math.min(BUCKETS - 1, 33 - Integer.numberOfLeadingZeros(size - 1));
+            counts[bucket]++;
+            count++;
+            total += size;
+            max = Math.max(max, size);
+        }
+
+        long cumulative(int bucket) {
+            long sum = 0;
+            for (int i = 0; i <= bucket; i++) {
+                sum += counts[i];
+            }
+            return sum;
+        }
+
+        double mean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        static String upperBound(int bucket) {
+            if (bucket == BUCKETS - 1) {
+                return "+Inf";
+            }
+            return bucket == 0 ? "0" : String.valueOf(1 << (bucket - 1));
+        }
+    }
+}
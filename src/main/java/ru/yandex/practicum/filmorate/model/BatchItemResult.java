@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * Результат обработки одного элемента пакетного запроса.
+ * index - позиция элемента в запросе, status - HTTP-статус, который вернул бы одиночный запрос
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    private int index;
+
+    private int status;
+
+    private Integer id;
+
+    private Map<String, String> errors;
+
+    public static BatchItemResult success(int index, int status, Integer id) {
+        return new BatchItemResult(index, status, id, null);
+    }
+
+    public static BatchItemResult failure(int index, int status, Map<String, String> errors) {
+        return new BatchItemResult(index, status, null, errors);
+    }
+}
@@ -1,14 +1,16 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.*;
 import org.hibernate.validator.constraints.Length;
 import ru.yandex.practicum.filmorate.annotations.ValidReleaseDate;
+import ru.yandex.practicum.filmorate.collections.ConcurrentIntSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 @Getter
 @EqualsAndHashCode
@@ -16,7 +18,27 @@ import java.util.Set;
 @Setter
 public class Film {
 
-    private Set<User> likes;
+    // id пользователей, поставивших лайк. Наружу отдается только их количество
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Setter(AccessLevel.NONE)
+    private ConcurrentIntSet likes;
+
+    // Количество лайков ведется отдельно от множества: одновременные лайки популярного фильма
+    // увеличивают разные ячейки счетчика, а чтение количества не обходит множество
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LongAdder likesCounter;
+
+    // Количество лайков, посчитанное хранилищем, если сами лайки в фильм не загружаются (хранилище в БД)
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Integer storedLikesCount;
 
     @NonNull
     @NotEmpty(message = "Название фильма не может быть null или пустым")
@@ -41,6 +63,35 @@ public class Film {
         this.description = description;
         this.releaseDate = releaseDate;
         this.duration = duration;
-        this.likes = new HashSet<>();
+        this.likes = new ConcurrentIntSet();
+        this.likesCounter = new LongAdder();
+    }
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public int getLikesCount() {
+        return storedLikesCount != null ? storedLikesCount : likesCounter.intValue();
+    }
+
+    public boolean addLike(int userId) {
+        if (!likes.add(userId)) {
+            return false;
+        }
+        likesCounter.increment();
+        return true;
+    }
+
+    public boolean removeLike(int userId) {
+        if (!likes.remove(userId)) {
+            return false;
+        }
+        likesCounter.decrement();
+        return true;
+    }
+
+    // Новая версия фильма получает те же множество и счетчик лайков, поэтому лайк,
+    // поставленный прежней версии во время замены, не теряется
+    public void takeLikes(Film previous) {
+        this.likes = previous.likes;
+        this.likesCounter = previous.likesCounter;
     }
 }
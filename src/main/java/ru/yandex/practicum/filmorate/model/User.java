@@ -4,10 +4,9 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Past;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
+import ru.yandex.practicum.filmorate.collections.IntSortedSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Getter
 @EqualsAndHashCode
@@ -15,7 +14,7 @@ import java.util.Set;
 @Setter
 public class User {
 
-    private Set<Integer> friends;
+    private IntSortedSet friends;
 
     private String name;
     @NonNull
@@ -34,7 +33,7 @@ public class User {
 
     @Builder(toBuilder = true)
     public User(String name, @NonNull LocalDate birthday, @NonNull String login, @NonNull String email) {
-        this.friends = new HashSet<>();
+        this.friends = new IntSortedSet();
         if (name == null) {
             this.name = login;
         } else {
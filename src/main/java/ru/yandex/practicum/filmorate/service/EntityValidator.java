@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Валидация сущностей пакетных запросов, где @Valid на теле запроса не подходит:
+ * ошибка одного элемента не должна отклонять весь пакет.
+ */
+@Component
+public class EntityValidator {
+
+    private final Validator validator;
+    private final Counter failures;
+
+    public EntityValidator(Validator validator, MeterRegistry registry) {
+        this.validator = validator;
+        // Тот же счетчик, что и у GlobalExceptionHandler, но для отдельных элементов пакета
+        this.failures = Counter.builder("filmorate.validation.failures")
+                .description("Запросы, отклоненные валидацией")
+                .tag("source", "batch")
+                .register(registry);
+    }
+
+    /**
+     * Проверка сущности
+     *
+     * @param entity - сущность
+     * @return Map<String, String> ошибки в формате поле -> сообщение, пустая при успешной проверке
+     */
+    public Map<String, String> validate(Object entity) {
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<Object> violation : validator.validate(entity)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        if (!errors.isEmpty()) {
+            failures.increment();
+        }
+        return errors;
+    }
+}
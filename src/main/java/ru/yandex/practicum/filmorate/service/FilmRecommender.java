@@ -0,0 +1,401 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.collections.IntCounterMap;
+import ru.yandex.practicum.filmorate.collections.IntSortedSet;
+import ru.yandex.practicum.filmorate.collections.MpscArrayQueue;
+import ru.yandex.practicum.filmorate.collections.TopScores;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Рекомендации фильмов по схожести фильмов: два фильма похожи, если их лайкают одни и те же пользователи.
+ * Для каждого фильма хранится разреженная строка матрицы совместных лайков (фильм -> число пользователей,
+ * лайкнувших оба фильма) и список ближайших соседей по косинусной мере co(f, g) / sqrt(likes(f) * likes(g)).
+ * Лайк пользователя фильму f меняет на единицу строки f и всех фильмов, которые лайкнул этот пользователь.
+ * Лайки записывает в хранилище сервис и затем сообщает модели id пользователя, чьи лайки изменились.
+ * Уведомления копятся в очереди и применяются под блокировкой записи перед запросом рекомендаций или при
+ * заполнении очереди: модель хранит примененные лайки каждого пользователя и сравнивает их с текущими лайками
+ * из хранилища, поэтому уведомления одного пользователя могут приходить в любом порядке и повторяться -
+ * последнее из них все равно приведет модель к последнему состоянию хранилища.
+ * Соседи фильма считаются для версии модели и пересчитываются при первом запросе после ее изменения,
+ * поэтому лайк не обходит строки связанных фильмов. Рекомендации пользователю - фильмы с наибольшей
+ * суммой схожестей с его фильмами.
+ * Удаление фильма убирает его строку и столбец, лайки удаленного фильма у пользователей забываются при
+ * следующем сравнении. Лайки, изменившиеся без уведомлений (очистка), сбрасывают модель, и она
+ * строится заново параллельно через fork/join
+ */
+@Component
+@Slf4j
+public class FilmRecommender {
+
+    // Фильмов на одну подзадачу fork/join при построении модели
+    private static final int BUILD_CHUNK = 256;
+    // Непримененных изменений модели; поток, заставший очередь заполненной, применяет ее сам
+    private static final int PENDING_CAPACITY = 4096;
+    private static final Neighbors NO_NEIGHBORS = new Neighbors(new int[0], new double[0], -1);
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final int neighbors;
+    // id пользователей, чьи лайки изменились после последнего применения
+    private final MpscArrayQueue<Integer> pending = new MpscArrayQueue<>(PENDING_CAPACITY);
+    // Строки меняются только под блокировкой записи, под блокировкой чтения пересчитываются лишь соседи
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Row> rows = new HashMap<>();
+    // Лайки, уже учтенные в строках: пользователь -> фильмы. Около 4 байт на лайк поверх хранилища
+    private final Map<Integer, IntSortedSet> appliedLikes = new HashMap<>();
+    // Растет при каждом изменении строк; соседи, посчитанные для старой версии, пересчитываются при чтении
+    private long version;
+    private volatile boolean built;
+
+    public FilmRecommender(FilmStorage filmStorage, UserStorage userStorage,
+                           @Value("${filmorate.film-recommendations.neighbors:20}") int neighbors) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.neighbors = neighbors;
+    }
+
+    public void likesChanged(int userId) {
+        enqueue(userId);
+    }
+
+    /**
+     * Уведомление об изменении лайков пользователей в хранилище: добавлении, снятии, удалении пользователя.
+     * Вызывается после записи в хранилище; модель сама читает текущие лайки пользователей при применении
+     *
+     * @param userIds - id пользователей
+     */
+    public void likesChanged(Collection<Integer> userIds) {
+        userIds.forEach(this::enqueue);
+    }
+
+    /**
+     * Удаление строки и столбца фильма после его удаления из хранилища.
+     * Лайки фильма после удаления в хранилище не появятся, поэтому строка заново не создается
+     *
+     * @param filmId - id фильма
+     */
+    public void filmDeleted(int filmId) {
+        lock.writeLock().lock();
+        try {
+            applyPending();
+            Row row = rows.remove(filmId);
+            if (row == null) {
+                return;
+            }
+            row.coLikes.forEach((other, co) -> {
+                Row otherRow = rows.get(other);
+                if (otherRow != null) {
+                    otherRow.coLikes.remove(filmId);
+                }
+            });
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сброс модели после изменения лайков без уведомлений.
+     * Модель будет построена заново при следующем запросе рекомендаций
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            built = false;
+            discardPending();
+            rows.clear();
+            appliedLikes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Построение модели по всем лайкам хранилища, не дожидаясь запроса рекомендаций
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            build();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Рекомендации фильмов пользователю
+     *
+     * @param userId - id пользователя
+     * @param count  - максимальное количество рекомендаций
+     * @return int[] id фильмов по убыванию суммарной схожести с фильмами пользователя, при равенстве - по id
+     */
+    public int[] recommend(int userId, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество фильмов не может быть отрицательным: " + count);
+        }
+        // Изменения, о которых сообщили до запроса, попадают в ответ
+        if (!built || !pending.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                if (!built) {
+                    build();
+                }
+                applyPending();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            IntSortedSet liked = appliedLikes.get(userId);
+            return score(liked == null ? new int[0] : liked.toArray(), count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] likedFilms(int userId) {
+        return filmStorage.getLikedFilmIds(userId).stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    // liked отсортирован по возрастанию, поэтому уже лайкнутые фильмы отсекаются бинарным поиском
+    private int[] score(int[] liked, int count) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int filmId : liked) {
+            Row row = rows.get(filmId);
+            if (row == null) {
+                continue;
+            }
+            Neighbors nearest = neighbors(row);
+            for (int i = 0; i < nearest.ids().length; i++) {
+                if (Arrays.binarySearch(liked, nearest.ids()[i]) < 0) {
+                    scores.merge(nearest.ids()[i], nearest.similarities()[i], Double::sum);
+                }
+            }
+        }
+        TopScores top = new TopScores(Math.min(count, scores.size()));
+        scores.forEach(top::offer);
+        return top.ids();
+    }
+
+    // Поток, которому не хватило места в очереди, применяет ее сам и повторяет попытку.
+    // Уведомления копятся и до построения модели: построение отбрасывает только те, что пришли до его начала
+    private void enqueue(int userId) {
+        while (!pending.offer(userId)) {
+            lock.writeLock().lock();
+            try {
+                if (built) {
+                    applyPending();
+                } else {
+                    discardPending();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Вызывается под блокировкой записи. Пользователь, о котором сообщили несколько раз, сравнивается один раз
+    private void applyPending() {
+        IntSortedSet users = new IntSortedSet();
+        pending.drain(users::add, Integer.MAX_VALUE);
+        if (users.isEmpty()) {
+            return;
+        }
+        users.forEach(this::reconcile);
+        version++;
+    }
+
+    private void discardPending() {
+        pending.drain(userId -> {
+        }, Integer.MAX_VALUE);
+    }
+
+    // Приведение учтенных лайков пользователя к хранилищу: сначала снимаются исчезнувшие, затем добавляются новые
+    private void reconcile(int userId) {
+        int[] current = likedFilms(userId);
+        IntSortedSet applied = appliedLikes.getOrDefault(userId, new IntSortedSet());
+        for (int filmId : applied.toArray()) {
+            if (Arrays.binarySearch(current, filmId) < 0) {
+                applied.remove(filmId);
+                apply(filmId, applied, -1);
+            }
+        }
+        for (int filmId : current) {
+            if (!applied.contains(filmId)) {
+                apply(filmId, applied, 1);
+                applied.add(filmId);
+            }
+        }
+        if (applied.isEmpty()) {
+            appliedLikes.remove(userId);
+        } else {
+            appliedLikes.put(userId, applied);
+        }
+    }
+
+    // Остальные фильмы пользователя - без filmId; у удаленного фильма строки нет, и его лайк только забывается
+    private void apply(int filmId, IntSortedSet userFilms, int delta) {
+        Row row = delta > 0 ? rows.computeIfAbsent(filmId, id -> new Row()) : rows.get(filmId);
+        if (row == null) {
+            return;
+        }
+        row.likes += delta;
+        userFilms.forEach(other -> {
+            Row otherRow = rows.get(other);
+            if (otherRow != null) {
+                row.coLikes.add(other, delta);
+                otherRow.coLikes.add(filmId, delta);
+            }
+        });
+        if (row.likes == 0) {
+            rows.remove(filmId);
+        }
+    }
+
+    // Соседи строки для текущей версии модели. Вызывается под блокировкой чтения или записи: строки при этом
+    // не меняются, и несколько потоков, пересчитавших соседей одной строки одновременно, получат одно и то же
+    private Neighbors neighbors(Row row) {
+        Neighbors current = row.neighbors;
+        if (current.version() == version) {
+            return current;
+        }
+        TopScores top = new TopScores(Math.min(neighbors, row.coLikes.size()));
+        row.coLikes.forEach((other, co) -> {
+            Row otherRow = rows.get(other);
+            if (otherRow != null) {
+                top.offer(other, co / Math.sqrt((double) row.likes * otherRow.likes));
+            }
+        });
+        Neighbors refreshed = new Neighbors(top.ids(), top.scores(), version);
+        row.neighbors = refreshed;
+        return refreshed;
+    }
+
+    // Вызывается под блокировкой записи. Уведомления, пришедшие до начала построения, уже отражены в хранилище
+    // и отбрасываются; пришедшие во время чтения лайков остаются в очереди и сравниваются после построения
+    private void build() {
+        long start = System.nanoTime();
+        discardPending();
+        List<Integer> userIds = new ArrayList<>();
+        userStorage.forEachUser(user -> userIds.add(user.getId()));
+        Map<Integer, int[]> userFilms = new HashMap<>(userIds.size());
+        int likes = 0;
+        for (int userId : userIds) {
+            int[] films = likedFilms(userId);
+            if (films.length > 0) {
+                userFilms.put(userId, films);
+                likes += films.length;
+            }
+        }
+        Map<Integer, int[]> filmUsers = invert(userFilms, likes);
+        int[] filmIds = filmUsers.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Row[] computed = new Row[filmIds.length];
+        // Строки независимы друг от друга: каждая подзадача заполняет свой диапазон массива
+        ForkJoinPool.commonPool().invoke(new RangeTask(0, filmIds.length, i -> {
+            Row row = new Row();
+            int[] users = filmUsers.get(filmIds[i]);
+            row.likes = users.length;
+            for (int userId : users) {
+                for (int other : userFilms.get(userId)) {
+                    if (other != filmIds[i]) {
+                        row.coLikes.add(other, 1);
+                    }
+                }
+            }
+            computed[i] = row;
+        }));
+        rows.clear();
+        for (int i = 0; i < filmIds.length; i++) {
+            rows.put(filmIds[i], computed[i]);
+        }
+        appliedLikes.clear();
+        userFilms.forEach((userId, films) -> appliedLikes.put(userId, IntSortedSet.ofSorted(films)));
+        version++;
+        // Соседи считаются вторым проходом, когда известны числа лайков всех фильмов; карта строк только читается
+        ForkJoinPool.commonPool().invoke(new RangeTask(0, computed.length, i -> neighbors(computed[i])));
+        built = true;
+        log.info("Модель рекомендаций фильмов построена: {} фильмов, {} лайков за {} мс", filmIds.length, likes,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Пары (фильм, пользователь) сортируются одним массивом, после чего пользователи каждого фильма идут подряд
+    private static Map<Integer, int[]> invert(Map<Integer, int[]> userFilms, int likes) {
+        long[] pairs = new long[likes];
+        int count = 0;
+        for (Map.Entry<Integer, int[]> entry : userFilms.entrySet()) {
+            for (int filmId : entry.getValue()) {
+                pairs[count++] = (long) filmId << 32 | entry.getKey();
+            }
+        }
+        Arrays.parallelSort(pairs);
+        Map<Integer, int[]> filmUsers = new HashMap<>();
+        int start = 0;
+        while (start < count) {
+            int filmId = (int) (pairs[start] >>> 32);
+            int end = start;
+            while (end < count && (int) (pairs[end] >>> 32) == filmId) {
+                end++;
+            }
+            int[] users = new int[end - start];
+            for (int i = start; i < end; i++) {
+                users[i - start] = (int) pairs[i];
+            }
+            filmUsers.put(filmId, users);
+            start = end;
+        }
+        return filmUsers;
+    }
+
+    private static final class Row {
+
+        // Фильм -> число пользователей, лайкнувших оба фильма
+        private final IntCounterMap coLikes = new IntCounterMap(Integer.MAX_VALUE);
+        private int likes;
+        // Заменяется целиком, поэтому читатели видят соседей одной версии
+        private volatile Neighbors neighbors = NO_NEIGHBORS;
+    }
+
+    private record Neighbors(int[] ids, double[] similarities, long version) {
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        private RangeTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BUILD_CHUNK) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, action), new RangeTask(middle, to, action));
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.collections.CompressedPostings;
+import ru.yandex.practicum.filmorate.collections.TopScores;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Полнотекстовый поиск по названию и описанию фильмов через инвертированный индекс:
+ * слово -> сжатый список фильмов, где оно встречается, с весом (совпадение в названии весит больше).
+ * Запрос находит фильмы, содержащие все его слова, последнее слово ищется и как начало слова.
+ * Оценка фильма - сумма весов совпадений, умноженных на редкость слова (idf).
+ * Сервис сообщает индексу о добавлении, изменении и удалении фильмов после записи в хранилище, остальные
+ * изменения (очистка, восстановление из журнала) сбрасывают его, и он строится заново при следующем поиске
+ */
+@Component
+@Slf4j
+public class FilmSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    // Более короткое последнее слово ищется только целиком, иначе запрос раскрывается в слишком много слов
+    private static final int MIN_PREFIX_LENGTH = 3;
+    // При учете лайков заново ранжируется столько лучших по тексту фильмов на каждый запрошенный
+    private static final int RESCORE_FACTOR = 10;
+    // Объединение списков, покрывающее больше этой доли каталога, суммируется в массив по id, а не слиянием
+    private static final int DENSE_UNION_RATIO = 16;
+
+    private final FilmStorage filmStorage;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, CompressedPostings> terms = new HashMap<>();
+    // Отсортированные слова нужны только для поиска по началу слова
+    private final NavigableSet<String> sortedTerms = new TreeSet<>();
+    // Массив оценок по id для объединения больших списков, обнуляется при чтении
+    private final ThreadLocal<double[]> accumulators = ThreadLocal.withInitial(() -> new double[0]);
+    // Текст, с которым фильм сейчас в индексе: по нему фильм убирается из списков слов, которых больше нет
+    private final Map<Integer, Text> texts = new HashMap<>();
+    private int maxId;
+    private boolean built;
+
+    public FilmSearchIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    public void filmChanged(int id) {
+        filmsChanged(List.of(id));
+    }
+
+    /**
+     * Обновление индекса после записи фильмов в хранилище: добавления, изменения или удаления.
+     * Текущий текст фильмов читается из хранилища под блокировкой индекса, а не передается вызывающим,
+     * поэтому уведомления об одновременных изменениях одного фильма могут прийти в любом порядке:
+     * последнее из них все равно увидит последний текст
+     *
+     * @param ids - id измененных фильмов
+     */
+    public void filmsChanged(Collection<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                return;
+            }
+            Map<Integer, Film> films = new HashMap<>();
+            filmStorage.getMany(ids).forEach(film -> films.put(film.getId(), film));
+            ids.forEach(id -> refresh(id, films.get(id)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сброс индекса после изменения фильмов в обход этого класса.
+     * Индекс будет построен заново при следующем поиске
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            built = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            build();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск фильмов
+     *
+     * @param query   - слова запроса
+     * @param count   - максимальное количество фильмов; память под отбор не больше числа фильмов в индексе
+     * @param byLikes - учитывать ли количество лайков при ранжировании
+     * @return List<Integer> id фильмов по убыванию оценки, при равенстве - по id
+     */
+    public List<Integer> search(String query, int count, boolean byLikes) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество фильмов не может быть отрицательным: " + count);
+        }
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        long candidates = byLikes ? (long) count * RESCORE_FACTOR : count;
+        TopScores top = null;
+        lock.readLock().lock();
+        try {
+            if (built) {
+                top = new TopScores((int) Math.min(candidates, texts.size()));
+                match(tokens, top);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (top == null) {
+            lock.writeLock().lock();
+            try {
+                if (!built) {
+                    build();
+                }
+                top = new TopScores((int) Math.min(candidates, texts.size()));
+                match(tokens, top);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return byLikes ? rescoreByLikes(top, count) : Arrays.stream(top.ids()).boxed().toList();
+    }
+
+    public int getIndexedFilms() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return terms.values().stream().mapToLong(CompressedPostings::sizeInBytes).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT).replace('ё', 'е'));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static Map<String, Integer> weights(String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(name).forEach(term -> weights.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(description).forEach(term -> weights.merge(term, 1, Integer::sum));
+        return weights;
+    }
+
+    private void index(Film film) {
+        weights(film.getName(), film.getDescription())
+                .forEach((term, weight) -> postings(term).put(film.getId(), weight));
+        texts.put(film.getId(), new Text(film.getName(), film.getDescription()));
+        maxId = Math.max(maxId, film.getId());
+    }
+
+    // Фильм, которого больше нет в хранилище (film == null), убирается только из списков своих слов
+    private void refresh(int id, Film film) {
+        Text previous = texts.get(id);
+        Text current = film == null ? null : new Text(film.getName(), film.getDescription());
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        reindex(id, previous == null ? Map.of() : weights(previous.name(), previous.description()),
+                current == null ? Map.of() : weights(current.name(), current.description()));
+        if (current == null) {
+            texts.remove(id);
+        } else {
+            texts.put(id, current);
+        }
+    }
+
+    private void reindex(int id, Map<String, Integer> previous, Map<String, Integer> current) {
+        previous.forEach((term, weight) -> {
+            if (!current.containsKey(term)) {
+                CompressedPostings postings = terms.get(term);
+                if (postings != null && postings.remove(id) && postings.isEmpty()) {
+                    terms.remove(term);
+                    sortedTerms.remove(term);
+                }
+            }
+        });
+        current.forEach((term, weight) -> {
+            if (!weight.equals(previous.get(term))) {
+                postings(term).put(id, weight);
+            }
+        });
+        maxId = Math.max(maxId, id);
+    }
+
+    private CompressedPostings postings(String term) {
+        CompressedPostings postings = terms.get(term);
+        if (postings == null) {
+            postings = new CompressedPostings();
+            terms.put(term, postings);
+            sortedTerms.add(term);
+        }
+        return postings;
+    }
+
+    private void clear() {
+        terms.clear();
+        sortedTerms.clear();
+        texts.clear();
+        maxId = 0;
+    }
+
+    // Фильмы индексируются по возрастанию id, чтобы каждое вхождение дописывалось в конец списка
+    private void build() {
+        long start = System.nanoTime();
+        List<Film> films = new ArrayList<>();
+        filmStorage.forEachFilm(films::add);
+        films.sort(Comparator.comparingInt(Film::getId));
+        clear();
+        films.forEach(this::index);
+        built = true;
+        log.info("Поисковый индекс построен: {} фильмов, {} слов за {} мс", texts.size(), terms.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Каждое слово запроса - группа списков (несколько, если слово ищется по началу). Группы пересекаются
+    // начиная с самой короткой, остальные списки не декодируются целиком, а проходятся курсором с пропусками
+    private void match(List<String> tokens, TopScores top) {
+        List<List<CompressedPostings>> groups = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            List<CompressedPostings> group = new ArrayList<>();
+            if (i == tokens.size() - 1 && token.length() >= MIN_PREFIX_LENGTH) {
+                sortedTerms.subSet(token, true, token + Character.MAX_VALUE, false)
+                        .forEach(term -> group.add(terms.get(term)));
+            } else if (terms.containsKey(token)) {
+                group.add(terms.get(token));
+            }
+            if (group.isEmpty()) {
+                return;
+            }
+            groups.add(group);
+        }
+        groups.sort(Comparator.comparingLong(FilmSearchIndex::size));
+        if (groups.size() == 1) {
+            union(groups.getFirst(), top::offer);
+            return;
+        }
+        Matches.Builder first = new Matches.Builder(size(groups.getFirst()));
+        union(groups.getFirst(), first::add);
+        Matches result = first.build();
+        for (int i = 1; i < groups.size() && result.size() > 0; i++) {
+            result = intersect(result, groups.get(i));
+        }
+        for (int i = 0; i < result.size(); i++) {
+            top.offer(result.ids()[i], result.scores()[i]);
+        }
+    }
+
+    private static long size(List<CompressedPostings> group) {
+        return group.stream().mapToLong(CompressedPostings::size).sum();
+    }
+
+    private double idf(CompressedPostings postings) {
+        return Math.log(1 + (double) texts.size() / postings.size());
+    }
+
+    // Фильмы группы по возрастанию id; фильм, в котором нашлось несколько слов группы, получает сумму оценок
+    private void union(List<CompressedPostings> group, ScoreConsumer consumer) {
+        if (group.size() == 1) {
+            CompressedPostings postings = group.getFirst();
+            double idf = idf(postings);
+            CompressedPostings.Cursor cursor = postings.cursor();
+            while (cursor.next()) {
+                consumer.accept(cursor.id(), idf * cursor.weight());
+            }
+            return;
+        }
+        if (size(group) * DENSE_UNION_RATIO > maxId) {
+            denseUnion(group, consumer);
+            return;
+        }
+        // Небольшие списки сливаются попарно, начиная с самых коротких
+        PriorityQueue<Matches> queue = new PriorityQueue<>(Comparator.comparingInt(Matches::size));
+        for (CompressedPostings postings : group) {
+            Matches.Builder decoded = new Matches.Builder(postings.size());
+            double idf = idf(postings);
+            CompressedPostings.Cursor cursor = postings.cursor();
+            while (cursor.next()) {
+                decoded.add(cursor.id(), idf * cursor.weight());
+            }
+            queue.add(decoded.build());
+        }
+        while (queue.size() > 1) {
+            queue.add(queue.poll().merge(queue.poll()));
+        }
+        Matches merged = queue.poll();
+        for (int i = 0; i < merged.size(); i++) {
+            consumer.accept(merged.ids()[i], merged.scores()[i]);
+        }
+    }
+
+    private void denseUnion(List<CompressedPostings> group, ScoreConsumer consumer) {
+        double[] scores = accumulators.get();
+        if (scores.length <= maxId) {
+            scores = new double[maxId + 1];
+            accumulators.set(scores);
+        }
+        for (CompressedPostings postings : group) {
+            double idf = idf(postings);
+            CompressedPostings.Cursor cursor = postings.cursor();
+            while (cursor.next()) {
+                scores[cursor.id()] += idf * cursor.weight();
+            }
+        }
+        for (int id = 1; id <= maxId; id++) {
+            if (scores[id] != 0) {
+                consumer.accept(id, scores[id]);
+                scores[id] = 0;
+            }
+        }
+    }
+
+    private Matches intersect(Matches matches, List<CompressedPostings> group) {
+        double[] added = new double[matches.size()];
+        for (CompressedPostings postings : group) {
+            double idf = idf(postings);
+            CompressedPostings.Cursor cursor = postings.cursor();
+            if (postings.size() < matches.size()) {
+                // Короткий список проходится целиком, найденные фильмы ищутся бинарным поиском
+                int from = 0;
+                while (cursor.next() && from < matches.size()) {
+                    int position = Arrays.binarySearch(matches.ids(), from, matches.size(), cursor.id());
+                    if (position >= 0) {
+                        added[position] += idf * cursor.weight();
+                        from = position + 1;
+                    } else {
+                        from = -position - 1;
+                    }
+                }
+                continue;
+            }
+            for (int i = 0; i < matches.size(); i++) {
+                if (!cursor.advance(matches.ids()[i])) {
+                    break;
+                }
+                if (cursor.id() == matches.ids()[i]) {
+                    added[i] += idf * cursor.weight();
+                }
+            }
+        }
+        Matches.Builder result = new Matches.Builder(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            if (added[i] > 0) {
+                result.add(matches.ids()[i], matches.scores()[i] + added[i]);
+            }
+        }
+        return result.build();
+    }
+
+    private List<Integer> rescoreByLikes(TopScores candidates, int count) {
+        int[] ids = candidates.ids();
+        double[] scores = candidates.scores();
+        Map<Integer, Integer> likes = new HashMap<>();
+        filmStorage.getMany(Arrays.stream(ids).boxed().toList())
+                .forEach(film -> likes.put(film.getId(), film.getLikesCount()));
+        TopScores top = new TopScores(Math.min(count, ids.length));
+        for (int i = 0; i < ids.length; i++) {
+            top.offer(ids[i], scores[i] * (1 + Math.log1p(likes.getOrDefault(ids[i], 0))));
+        }
+        return Arrays.stream(top.ids()).boxed().toList();
+    }
+
+    private record Text(String name, String description) {
+    }
+
+    @FunctionalInterface
+    private interface ScoreConsumer {
+
+        void accept(int id, double score);
+    }
+
+    // Найденные фильмы по возрастанию id с оценками
+    private record Matches(int[] ids, double[] scores, int size) {
+
+        private Matches merge(Matches other) {
+            Builder merged = new Builder(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || i < size && ids[i] < other.ids[j]) {
+                    merged.add(ids[i], scores[i++]);
+                } else if (i == size || other.ids[j] < ids[i]) {
+                    merged.add(other.ids[j], other.scores[j++]);
+                } else {
+                    merged.add(ids[i], scores[i++] + other.scores[j++]);
+                }
+            }
+            return merged.build();
+        }
+
+        private static final class Builder {
+
+            private final int[] ids;
+            private final double[] scores;
+            private int size;
+
+            private Builder(long capacity) {
+                this.ids = new int[(int) capacity];
+                this.scores = new double[(int) capacity];
+            }
+
+            private void add(int id, double score) {
+                ids[size] = id;
+                scores[size++] = score;
+            }
+
+            private Matches build() {
+                return new Matches(ids, scores, size);
+            }
+        }
+    }
+}
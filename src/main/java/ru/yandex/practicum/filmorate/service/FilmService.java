@@ -1,41 +1,194 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
 import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+@Timed(value = "filmorate.service", description = "Время выполнения методов сервисов", histogram = true)
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FilmService {
 
+    // Поиск ранжирует до count * 10 кандидатов; больше этого выдача клиентам не нужна
+    private static final int MAX_SEARCH_COUNT = 1_000;
+    private static final int MAX_RECOMMENDED_COUNT = 1_000;
+
     private final FilmStorage filmStorage;
 
     private final UserStorage userStorage;
 
+    private final EntityValidator entityValidator;
+
+    private final FilmRecommender filmRecommender;
+
+    private final TrendingFilms trendingFilms;
+
+    private final FilmSearchIndex filmSearchIndex;
+
+    // Одновременные запросы рейтинга с одним count строят его один раз
+    private final SingleFlight<Integer, List<Integer>> popularFilmsFlight = new SingleFlight<>("films.popular");
+
+    public Film addFilm(Film film) {
+        Film added = filmStorage.addFilm(film);
+        filmSearchIndex.filmChanged(added.getId());
+        return added;
+    }
+
+    public Film updateFilm(int id, Film film) {
+        Film updated = filmStorage.updateFilm(id, film);
+        filmSearchIndex.filmChanged(id);
+        return updated;
+    }
+
+    public Map<String, String> deleteFilm(int id) {
+        if (!filmStorage.deleteFilm(id)) {
+            throw new IdNotFoundException(String.format("Фильм с id=%d не найден", id));
+        }
+        filmSearchIndex.filmChanged(id);
+        filmRecommender.filmDeleted(id);
+        trendingFilms.filmDeleted(id);
+        return Map.of("message", String.format("Фильм %d удален", id));
+    }
+
+    /**
+     * Удаление лайков пользователя вместе с ним самим.
+     * Лайк, проверивший пользователя до удаления, мог записаться после первого прохода по лайкам,
+     * поэтому после удаления пользователя лайки снимаются еще раз; лайк, записанный еще позже,
+     * снимает storeLike, не найдя пользователя
+     *
+     * @param userId     - id пользователя
+     * @param deleteUser - удаление самого пользователя, выполняется после удаления его лайков
+     */
+    public void deleteUser(int userId, Runnable deleteUser) {
+        filmStorage.deleteUserLikes(userId);
+        deleteUser.run();
+        filmStorage.deleteUserLikes(userId);
+        filmRecommender.likesChanged(userId);
+    }
+
+    public List<BatchItemResult> addFilms(List<Film> films) {
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Film> validFilms = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            Map<String, String> errors = entityValidator.validate(films.get(i));
+            if (errors.isEmpty()) {
+                validFilms.add(films.get(i));
+            } else {
+                results[i] = BatchItemResult.failure(i, HttpStatus.BAD_REQUEST.value(), errors);
+            }
+        }
+        filmSearchIndex.filmsChanged(filmStorage.addFilms(validFilms).stream().map(Film::getId).toList());
+        for (int i = 0; i < films.size(); i++) {
+            if (results[i] == null) {
+                results[i] = BatchItemResult.success(i, HttpStatus.CREATED.value(), films.get(i).getId());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
     public Map<String, String> addLike(int filmId, int userId) {
         validateIds(filmId, userId);
         Map<String, String> response = new HashMap<>();
         if (userStorage.getUsers().containsKey(userId) && filmStorage.getFilms().containsKey(filmId)) {
-            filmStorage.getFilms().get(filmId).getLikes().add(userStorage.getUsers().get(userId));
+            storeLike(filmId, userId);
             response.put("message", String.format("Пользователь %s поставил лайк фильму %s",
                     userStorage.getUsers().get(userId).getName(), filmStorage.getFilms().get(filmId).getName()));
         }
         return response;
     }
 
+    public List<BatchItemResult> addLikes(List<FilmLike> likes) {
+        List<BatchItemResult> results = new ArrayList<>(likes.size());
+        List<FilmLike> validLikes = new ArrayList<>(likes.size());
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            if (!userStorage.getUsers().containsKey(like.getUserId())) {
+                results.add(BatchItemResult.failure(i, HttpStatus.NOT_FOUND.value(),
+                        Map.of("error", String.format("Пользователь с id=%d не найден", like.getUserId()))));
+            } else if (!filmStorage.getFilms().containsKey(like.getFilmId())) {
+                results.add(BatchItemResult.failure(i, HttpStatus.NOT_FOUND.value(),
+                        Map.of("error", String.format("Фильм с id=%d не найден", like.getFilmId()))));
+            } else {
+                validLikes.add(like);
+                results.add(BatchItemResult.success(i, HttpStatus.OK.value(), like.getFilmId()));
+            }
+        }
+        // Модель рекомендаций обновляется по добавленным лайкам, а не строится заново
+        storeLikes(validLikes);
+        return results;
+    }
+
+    /**
+     * Запись лайка в хранилище с обновлением рекомендаций.
+     * Популярное за последнее время узнает о лайке от самого хранилища
+     *
+     * @return boolean false, если лайк уже был
+     * @throws IdNotFoundException если пользователь удален, пока лайк записывался; лайк при этом снимается
+     */
+    public boolean storeLike(int filmId, int userId) {
+        if (!filmStorage.addLike(filmId, userId)) {
+            return false;
+        }
+        if (!userStorage.getUsers().containsKey(userId)) {
+            undoLike(filmId, userId);
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", userId));
+        }
+        filmRecommender.likesChanged(userId);
+        return true;
+    }
+
+    /**
+     * Пакетная запись лайков одним изменением хранилища. Лайки пользователей, удаленных после приема лайка,
+     * отбрасываются, лайки удаленных фильмов и уже существующие лайки пропускает хранилище
+     *
+     * @param likes - лайки в порядке приема
+     * @return List<FilmLike> добавленные лайки
+     */
+    public List<FilmLike> storeLikes(List<FilmLike> likes) {
+        Map<Integer, Boolean> userExists = new HashMap<>();
+        List<FilmLike> added = new ArrayList<>(filmStorage.addLikes(likes.stream()
+                .filter(like -> userExists.computeIfAbsent(like.getUserId(), userStorage.getUsers()::containsKey))
+                .toList()));
+        // Повторная проверка - как в storeLike: пользователь мог быть удален во время записи пачки
+        added.removeIf(like -> {
+            if (userStorage.getUsers().containsKey(like.getUserId())) {
+                return false;
+            }
+            undoLike(like.getFilmId(), like.getUserId());
+            return true;
+        });
+        filmRecommender.likesChanged(added.stream().map(FilmLike::getUserId).distinct().toList());
+        return added;
+    }
+
+    // Фильм мог быть удален вместе с лайком
+    private void undoLike(int filmId, int userId) {
+        try {
+            filmStorage.deleteLike(filmId, userId);
+        } catch (IdNotFoundException e) {
+            log.debug("Лайк пользователя {} удаленному фильму {} не снят: {}", userId, filmId, e.getMessage());
+        }
+    }
+
     public Map<String, String> deleteLike(int filmId, int userId) {
         validateIds(filmId, userId);
         Map<String, String> response = new HashMap<>();
         if (userStorage.getUsers().containsKey(userId) && filmStorage.getFilms().containsKey(filmId)) {
-            filmStorage.getFilms().get(filmId).getLikes().remove(userStorage.getUsers().get(userId));
+            if (filmStorage.deleteLike(filmId, userId)) {
+                filmRecommender.likesChanged(userId);
+            }
             response.put("message", String.format("Пользователь %s убрал лайк у фильма %s",
                     userStorage.getUsers().get(userId).getName(), filmStorage.getFilms().get(filmId).getName()));
         }
@@ -43,27 +196,52 @@ public class FilmService {
     }
 
     public List<Integer> getPopularFilms(int count) {
-        if (count == 0) {
-            count = 10;
+        int limit = count == 0 ? 10 : count;
+        return popularFilmsFlight.execute(limit, () -> filmStorage.getPopularFilmIds(limit));
+    }
+
+    public List<Film> searchFilms(String query, int count, boolean byLikes) {
+        // Запрос из одних пробелов и знаков препинания не содержит ни одного слова
+        if (FilmSearchIndex.tokenize(query).isEmpty()) {
+            throw new CustomValidationExpression("Параметр query должен содержать хотя бы одно слово");
         }
-        Map<Integer, Integer> filmIdLikes = new TreeMap<>();
-        filmStorage.getFilms().forEach((filmId, film) -> {
-            filmIdLikes.put(filmId, film.getLikes().size());
-        });
+        if (count <= 0 || count > MAX_SEARCH_COUNT) {
+            throw new CustomValidationExpression("Параметр count должен быть от 1 до " + MAX_SEARCH_COUNT);
+        }
+        return getFilmsByListIDs(filmSearchIndex.search(query, count, byLikes));
+    }
 
-        return filmIdLikes.entrySet().stream()
-                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
-                .limit(count)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+    public List<Film> getTrendingFilms(String period, int count) {
+        if (count <= 0) {
+            throw new CustomValidationExpression("Параметр count должен быть положительным");
+        }
+        return getFilmsByListIDs(trendingFilms.top(TrendingFilms.Period.parse(period), count));
+    }
+
+    public List<Film> getRecommendedFilms(int userId, int count) {
+        if (!userStorage.getUsers().containsKey(userId)) {
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", userId));
+        }
+        if (count <= 0 || count > MAX_RECOMMENDED_COUNT) {
+            throw new CustomValidationExpression("Параметр count должен быть от 1 до " + MAX_RECOMMENDED_COUNT);
+        }
+        return getFilmsByListIDs(Arrays.stream(filmRecommender.recommend(userId, count)).boxed().toList());
+    }
+
+    public List<Film> clearFilms() {
+        List<Film> films = filmStorage.clearFilms();
+        filmRecommender.invalidate();
+        trendingFilms.clear();
+        filmSearchIndex.invalidate();
+        return films;
+    }
+
+    public SingleFlight<Integer, List<Integer>> getPopularFilmsFlight() {
+        return popularFilmsFlight;
     }
 
     public List<Film> getFilmsByListIDs(List<Integer> ids) {
-        List<Film> filmList = new ArrayList<>();
-        ids.forEach(id -> {
-            filmList.add(filmStorage.getFilms().get(id));
-        });
-        return filmList;
+        return filmStorage.getMany(ids);
     }
 
     private void validateIds(int filmId, int userId) {
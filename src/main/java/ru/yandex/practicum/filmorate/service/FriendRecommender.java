@@ -0,0 +1,433 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.collections.IntCounterMap;
+import ru.yandex.practicum.filmorate.collections.IntSortedSet;
+import ru.yandex.practicum.filmorate.collections.MpscArrayQueue;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Рекомендации "возможно, вы знакомы": друзья друзей по убыванию числа общих друзей.
+ * Для каждого пользователя хранится ограниченная карта кандидат -> число общих друзей (без его друзей),
+ * которая обновляется при каждом добавлении и удалении дружбы: новая дружба a-b добавляет a в общие
+ * друзья b и каждого друга a, и наоборот. Если кандидат не поместился в карту или карта могла перестать
+ * содержать лучших кандидатов, при следующем запросе рекомендаций она пересчитывается заново.
+ * Изменение дружбы записывается в хранилище под блокировкой пары пользователей, а изменение счетчиков
+ * ставится в очередь вместе со списками друзей пары на этот момент. Единственный потребитель очереди - поток,
+ * взявший блокировку записи перед запросом рекомендаций или заставший очередь заполненной. Счетчики меняются
+ * на единицу, поэтому важен только порядок изменений с общим пользователем, а его сохраняет блокировка пары.
+ * Пакет дружб применяется к счетчикам так же, по одной дружбе, но под блокировками всех пользователей.
+ * Карты строятся параллельным пересчетом по всему графу при первом запросе рекомендаций:
+ * до него изменения дружбы только записываются в хранилище
+ */
+@Component
+@Slf4j
+public class FriendRecommender {
+
+    // Непримененных изменений счетчиков; поток, заставший очередь заполненной, применяет ее сам
+    private static final int PENDING_CAPACITY = 4096;
+
+    private final UserStorage userStorage;
+    private final int maxCandidates;
+    // Изменение дружбы в хранилище и постановка изменения счетчиков в очередь выполняются под блокировкой пары:
+    // иначе два параллельных изменения с общим пользователем видят друг друга в хранилище и общий друг
+    // учитывается дважды. Полосы всегда берутся раньше блокировки записи
+    private final StripedLocks userLocks = new StripedLocks();
+    private final MpscArrayQueue<Delta> pending = new MpscArrayQueue<>(PENDING_CAPACITY);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Candidates> candidates = new HashMap<>();
+    private volatile boolean built;
+
+    public FriendRecommender(UserStorage userStorage,
+                             @Value("${filmorate.recommendations.max-candidates:500}") int maxCandidates) {
+        this.userStorage = userStorage;
+        this.maxCandidates = maxCandidates;
+    }
+
+    public boolean addFriend(int id, int friendId) {
+        return userLocks.locked(id, friendId, () -> {
+            boolean added = userStorage.addFriend(id, friendId);
+            if (added && built) {
+                enqueue(new Delta(id, friendId, userStorage.getFriendIds(id), userStorage.getFriendIds(friendId), 1));
+            }
+            return added;
+        });
+    }
+
+    public boolean deleteFriend(int id, int friendId) {
+        return userLocks.locked(id, friendId, () -> {
+            boolean deleted = userStorage.deleteFriend(id, friendId);
+            if (deleted && built) {
+                enqueue(new Delta(id, friendId, userStorage.getFriendIds(id), userStorage.getFriendIds(friendId),
+                        -1));
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Удаление пользователя вместе с его дружбами.
+     * Удаление меняет счетчики всех друзей друзей, поэтому выполняется под блокировками всех пользователей
+     *
+     * @param id - id пользователя
+     * @return User удаленный пользователь
+     */
+    public User deleteUser(int id) {
+        return userLocks.lockedAll(() -> {
+            int[] friends = built ? userStorage.getFriendIds(id) : null;
+            User deleted = userStorage.deleteUser(id);
+            if (built) {
+                lock.writeLock().lock();
+                try {
+                    applyPending();
+                    removeUser(id, friends);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Пакетное добавление дружб одной записью в хранилище.
+     * Счетчики меняются по каждой новой дружбе в порядке пакета, как при addFriend: списки друзей пары
+     * на момент этой дружбы восстанавливаются по спискам до пакета, потому что все блокировки взяты заранее
+     *
+     * @param friendships - дружбы
+     */
+    public void addFriends(List<Friendship> friendships) {
+        userLocks.lockedAll(() -> {
+            if (!built) {
+                userStorage.addFriends(friendships);
+                return null;
+            }
+            Map<Integer, IntSortedSet> friends = new HashMap<>();
+            List<Delta> deltas = new ArrayList<>();
+            for (Friendship friendship : friendships) {
+                int id = friendship.getUserId();
+                int friendId = friendship.getFriendId();
+                // Пользователь мог быть удален после проверки в сервисе, хранилище такую дружбу пропустит
+                if (!userStorage.getUsers().containsKey(id) || !userStorage.getUsers().containsKey(friendId)) {
+                    continue;
+                }
+                IntSortedSet userFriends = friends.computeIfAbsent(id,
+                        key -> IntSortedSet.ofSorted(userStorage.getFriendIds(key)));
+                IntSortedSet otherFriends = friends.computeIfAbsent(friendId,
+                        key -> IntSortedSet.ofSorted(userStorage.getFriendIds(key)));
+                if (userFriends.add(friendId)) {
+                    otherFriends.add(id);
+                    deltas.add(new Delta(id, friendId, userFriends.toArray(), otherFriends.toArray(), 1));
+                }
+            }
+            userStorage.addFriends(friendships);
+            lock.writeLock().lock();
+            try {
+                applyPending();
+                deltas.forEach(delta -> apply(delta.id(), delta.friendId(), delta.friends(), delta.otherFriends(),
+                        delta.delta()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Удаление всех пользователей: без пользователей не остается и кандидатов
+     *
+     * @return List<User> результат очистки хранилища
+     */
+    public List<User> clearUsers() {
+        return userLocks.lockedAll(() -> {
+            lock.writeLock().lock();
+            try {
+                List<User> users = userStorage.clearUsers();
+                pending.drain(delta -> {
+                }, Integer.MAX_VALUE);
+                candidates.clear();
+                return users;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Рекомендации пользователю
+     *
+     * @param id    - id пользователя
+     * @param count - максимальное количество рекомендаций
+     * @return int[] id рекомендованных пользователей по убыванию числа общих друзей, при равенстве - по id
+     */
+    public int[] recommend(int id, int count) {
+        if (!built) {
+            userLocks.lockedAll(() -> {
+                lock.writeLock().lock();
+                try {
+                    if (!built) {
+                        rebuild();
+                    }
+                    return null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        }
+        // Изменения, поставленные в очередь до запроса, попадают в ответ
+        if (!pending.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                applyPending();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            if (!needsRecompute(id, count)) {
+                return top(id, count);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return lockedWithFriends(id, () -> {
+            lock.writeLock().lock();
+            try {
+                applyPending();
+                if (needsRecompute(id, count)) {
+                    recompute(id);
+                }
+                return top(id, count);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Счетчики пользователя меняют только дружбы его самого и его друзей. Под их блокировками очередь
+    // не содержит изменений, еще не видимых в хранилище, и пересчет по хранилищу не учтет их дважды
+    private int[] lockedWithFriends(int id, Supplier<int[]> action) {
+        while (true) {
+            int[] friends = userStorage.getFriendIds(id);
+            int[] ids = Arrays.copyOf(friends, friends.length + 1);
+            ids[friends.length] = id;
+            int[] result = userLocks.locked(ids, () -> {
+                // Друзья изменились до захвата блокировок - нужно блокировать другой набор
+                if (!Arrays.equals(friends, userStorage.getFriendIds(id))) {
+                    return null;
+                }
+                return action.get();
+            });
+            if (result != null) {
+                return result;
+            }
+        }
+    }
+
+    // Вызывается под блокировкой пары: блокировка записи берется после нее
+    private void enqueue(Delta delta) {
+        while (!pending.offer(delta)) {
+            lock.writeLock().lock();
+            try {
+                applyPending();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Вызывается под блокировкой записи
+    private void applyPending() {
+        pending.drain(delta -> apply(delta.id(), delta.friendId(), delta.friends(), delta.otherFriends(),
+                delta.delta()), Integer.MAX_VALUE);
+    }
+
+    private int[] top(int id, int count) {
+        Candidates userCandidates = candidates.get(id);
+        return userCandidates == null ? new int[0] : userCandidates.counts.top(count, candidate -> false);
+    }
+
+    // Списки друзей взяты уже после изменения хранилища: при добавлении a и b друг в друге есть,
+    // при удалении - нет
+    private void apply(int id, int friendId, int[] friends, int[] otherFriends, int delta) {
+        for (int friend : friends) {
+            if (friend != friendId && Arrays.binarySearch(otherFriends, friend) < 0) {
+                count(friendId, friend, delta);
+                count(friend, friendId, delta);
+            }
+        }
+        for (int friend : otherFriends) {
+            if (friend != id && Arrays.binarySearch(friends, friend) < 0) {
+                count(id, friend, delta);
+                count(friend, id, delta);
+            }
+        }
+        if (delta > 0) {
+            // Друзья не рекомендуются друг другу
+            remove(id, friendId);
+            remove(friendId, id);
+        } else {
+            // Бывшие друзья становятся кандидатами друг для друга с уже накопленными общими друзьями
+            int common = commonCount(friends, otherFriends);
+            count(id, friendId, common);
+            count(friendId, id, common);
+        }
+    }
+
+    // Удаленный пользователь был общим другом для каждой пары своих друзей, не дружащих между собой,
+    // и кандидатом только для друзей своих друзей. Списки друзей читаются уже без него
+    private void removeUser(int id, int[] friends) {
+        candidates.remove(id);
+        for (int friend : friends) {
+            int[] friendFriends = userStorage.getFriendIds(friend);
+            for (int other : friendFriends) {
+                remove(other, id);
+            }
+            for (int other : friends) {
+                if (other != friend && Arrays.binarySearch(friendFriends, other) < 0) {
+                    count(friend, other, -1);
+                }
+            }
+        }
+    }
+
+    private void remove(int id, int candidate) {
+        Candidates userCandidates = candidates.get(id);
+        if (userCandidates != null) {
+            userCandidates.counts.remove(candidate);
+        }
+    }
+
+    private void count(int id, int candidate, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        Candidates userCandidates = delta > 0
+                ? candidates.computeIfAbsent(id, key -> new Candidates(new IntCounterMap(maxCandidates)))
+                : candidates.get(id);
+        if (userCandidates == null) {
+            return;
+        }
+        if (delta > 0 && userCandidates.truncated && userCandidates.counts.get(candidate) == 0) {
+            // Кандидат мог быть отброшен раньше, тогда в освободившееся место попадет неполный счетчик
+            userCandidates.stale = true;
+        }
+        if (!userCandidates.counts.add(candidate, delta)) {
+            userCandidates.truncated = true;
+            userCandidates.stale = true;
+        } else if (delta < 0 && userCandidates.truncated) {
+            // Отброшенный кандидат мог обогнать уменьшенный
+            userCandidates.stale = true;
+        }
+    }
+
+    // Усеченная карта точна для первых size кандидатов, пока счетчики в ней только росли
+    private boolean needsRecompute(int id, int count) {
+        Candidates userCandidates = candidates.get(id);
+        return userCandidates != null && (userCandidates.stale
+                || userCandidates.truncated && userCandidates.counts.size() < count);
+    }
+
+    private static int commonCount(int[] first, int[] second) {
+        int common = 0;
+        for (int id : first) {
+            if (Arrays.binarySearch(second, id) >= 0) {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    // Вызывается под блокировками всех пользователей и блокировкой записи: изменения в очереди
+    // уже есть в хранилище и отбрасываются
+    private void rebuild() {
+        long start = System.nanoTime();
+        Map<Integer, int[]> friends = new HashMap<>();
+        userStorage.forEachUser(user -> friends.put(user.getId(), user.getFriends().toArray()));
+        pending.drain(delta -> {
+        }, Integer.MAX_VALUE);
+        Map<Integer, Candidates> computed = new ConcurrentHashMap<>(friends.size());
+        ThreadLocal<IntCounterMap> buffers = ThreadLocal.withInitial(() -> new IntCounterMap(Integer.MAX_VALUE));
+        friends.keySet().parallelStream().forEach(id -> {
+            Candidates userCandidates = compute(id, friends, buffers.get());
+            if (userCandidates != null) {
+                computed.put(id, userCandidates);
+            }
+        });
+        candidates.clear();
+        candidates.putAll(computed);
+        built = true;
+        log.info("Рекомендации друзей пересчитаны для {} пользователей за {} мс", friends.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void recompute(int id) {
+        Map<Integer, int[]> friends = new HashMap<>();
+        int[] userFriends = userStorage.getFriendIds(id);
+        friends.put(id, userFriends);
+        for (int friend : userFriends) {
+            friends.put(friend, userStorage.getFriendIds(friend));
+        }
+        Candidates userCandidates = compute(id, friends, new IntCounterMap(Integer.MAX_VALUE));
+        if (userCandidates == null) {
+            candidates.remove(id);
+        } else {
+            candidates.put(id, userCandidates);
+        }
+    }
+
+    // Полный подсчет общих друзей во временной неограниченной карте, в ограниченную попадают лучшие кандидаты
+    private Candidates compute(int id, Map<Integer, int[]> friends, IntCounterMap buffer) {
+        buffer.clear();
+        int[] userFriends = friends.get(id);
+        for (int friend : userFriends) {
+            for (int candidate : friends.getOrDefault(friend, new int[0])) {
+                if (candidate != id && Arrays.binarySearch(userFriends, candidate) < 0) {
+                    buffer.add(candidate, 1);
+                }
+            }
+        }
+        if (buffer.isEmpty()) {
+            return null;
+        }
+        IntCounterMap counts = new IntCounterMap(maxCandidates);
+        for (int candidate : buffer.top(maxCandidates, candidate -> false)) {
+            counts.add(candidate, buffer.get(candidate));
+        }
+        Candidates userCandidates = new Candidates(counts);
+        userCandidates.truncated = buffer.size() > maxCandidates;
+        return userCandidates;
+    }
+
+    private static final class Candidates {
+
+        private final IntCounterMap counts;
+        // Часть кандидатов не поместилась в карту
+        private boolean truncated;
+        // Лучшие кандидаты могли оказаться вне карты, до пересчета она неточна
+        private boolean stale;
+
+        private Candidates(IntCounterMap counts) {
+            this.counts = counts;
+        }
+    }
+
+    // Изменение дружбы id-friendId со списками друзей обоих после изменения
+    private record Delta(int id, int friendId, int[] friends, int[] otherFriends, int delta) {
+    }
+}
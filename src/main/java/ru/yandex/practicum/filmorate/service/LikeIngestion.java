@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.collections.MpscArrayQueue;
+import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.QueueFullException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Асинхронный прием лайков для всплесков PUT /films/{id}/like/{userId}, включается filmorate.likes.async.enabled.
+ * Запрос только проверяет id и кладет лайк в ограниченную очередь без блокировок. Единственный поток записи
+ * забирает лайки пачками и применяет пачку целиком: одно изменение хранилища под блокировками всех фильмов,
+ * одно обновление популярности на фильм, по одному уведомлению рекомендаций на пользователя пачки.
+ * Заполненная очередь сразу отклоняет лайк (429), чтобы всплеск не копил неограниченный хвост в памяти.
+ * Если пачка не применилась, ее лайки применяются по одному, а не применившиеся считаются отдельно.
+ * Лайк становится виден через время применения одной пачки после ответа
+ */
+@Component
+@Slf4j
+public class LikeIngestion {
+
+    // Поток записи спит не дольше этого, даже если его не разбудили
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmService filmService;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final MpscArrayQueue<FilmLike> queue;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    // Счетчики применения меняются потоком записи под блокировкой, flush ждет их на условии
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appliedSignal = lock.newCondition();
+    private volatile long applied;
+    // Лайки, которые не удалось применить и по одному
+    private volatile long failed;
+    private volatile long batches;
+    private volatile boolean idle;
+    private volatile boolean running;
+    private volatile Thread writer;
+
+    public LikeIngestion(FilmStorage filmStorage, UserStorage userStorage, FilmService filmService,
+                         @Value("${filmorate.likes.async.enabled:false}") boolean enabled,
+                         @Value("${filmorate.likes.async.queue-capacity:65536}") int queueCapacity,
+                         @Value("${filmorate.likes.async.max-batch:4096}") int maxBatch) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.filmService = filmService;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.queue = new MpscArrayQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::writeLoop, "like-ingestion");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+        log.info("Асинхронный прием лайков включен: очередь {}, пачка до {}", queue.capacity(), maxBatch);
+    }
+
+    // Принятые лайки применяются до остановки
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        writer = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Прием лайка в очередь. Лайк применяется позже потоком записи
+     *
+     * @param filmId - id фильма
+     * @param userId - id пользователя
+     * @return Map<String, String> сообщение о приеме лайка
+     * @throws QueueFullException если очередь заполнена
+     */
+    public Map<String, String> submit(int filmId, int userId) {
+        if (!userStorage.getUsers().containsKey(userId)) {
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", userId));
+        }
+        if (!filmStorage.getFilms().containsKey(filmId)) {
+            throw new IdNotFoundException(String.format("Фильм с id=%d не найден", filmId));
+        }
+        if (!queue.offer(new FilmLike(filmId, userId))) {
+            rejected.incrementAndGet();
+            throw new QueueFullException("Очередь лайков заполнена, повторите запрос позже");
+        }
+        accepted.incrementAndGet();
+        // Поток записи объявляет простой до последней проверки очереди, поэтому лайк не будет пропущен
+        Thread thread = writer;
+        if (idle && thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return Map.of("message", String.format("Лайк пользователя %d фильму %d принят", userId, filmId));
+    }
+
+    /**
+     * Ожидание применения всех лайков, принятых до вызова, в том числе неудачного
+     */
+    public void flush() throws InterruptedException {
+        long target = accepted.get();
+        lock.lock();
+        try {
+            while (applied + failed < target && writer != null) {
+                appliedSignal.await(IDLE_PARK_NANOS, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    private void writeLoop() {
+        List<FilmLike> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            if (queue.drain(batch::add, maxBatch) == 0) {
+                idle = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<FilmLike> batch) {
+        int failures = 0;
+        try {
+            filmService.storeLikes(batch);
+        } catch (RuntimeException e) {
+            log.warn("Ошибка применения пачки из {} лайков, лайки применяются по одному", batch.size(), e);
+            failures = applyOneByOne(batch);
+        }
+        lock.lock();
+        try {
+            applied += batch.size() - failures;
+            failed += failures;
+            batches++;
+            appliedSignal.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ошибка одного лайка, например удаленного после приема пользователя, не отбрасывает остальные лайки пачки
+    private int applyOneByOne(List<FilmLike> batch) {
+        int failures = 0;
+        for (FilmLike like : batch) {
+            try {
+                filmService.storeLike(like.getFilmId(), like.getUserId());
+            } catch (RuntimeException e) {
+                failures++;
+                log.warn("Лайк пользователя {} фильму {} не применен: {}", like.getUserId(), like.getFilmId(),
+                        e.getMessage());
+            }
+        }
+        return failures;
+    }
+}
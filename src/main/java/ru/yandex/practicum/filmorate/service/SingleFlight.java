@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых вычислений: первый вызов с ключом выполняет вычисление,
+ * вызовы с тем же ключом до его завершения ждут и получают тот же результат или то же исключение.
+ * Результат не запоминается, поэтому ожидающий может получить результат вычисления,
+ * начатого незадолго до его собственного вызова
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger maxWaiters = new AtomicInteger();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public V execute(K key, Supplier<V> computation) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+        executions.increment();
+        V value;
+        try {
+            value = computation.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        // Вычисление снимается до публикации результата: вызов, пришедший после завершения,
+        // должен начать новое вычисление, а не получить готовый и, возможно, устаревший результат
+        inFlight.remove(key, flight);
+        flight.result.complete(value);
+        return value;
+    }
+
+    private V await(Flight<V> flight) {
+        coalesced.increment();
+        maxWaiters.accumulateAndGet(flight.waiters.incrementAndGet(), Math::max);
+        waiting.incrementAndGet();
+        try {
+            return flight.result.join();
+        } catch (CompletionException e) {
+            // Ожидающие получают исключение вычисления в исходном виде, как и сам вычислявший
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public Map<String, Number> getStats() {
+        long executed = executions.sum();
+        long joined = coalesced.sum();
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("executions", executed);
+        stats.put("coalesced", joined);
+        stats.put("hitRate", executed + joined == 0 ? 0.0 : (double) joined / (executed + joined));
+        stats.put("waiting", waiting.get());
+        stats.put("maxWaiters", maxWaiters.get());
+        return stats;
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+}
@@ -0,0 +1,397 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.collections.IntCounterMap;
+import ru.yandex.practicum.filmorate.collections.LongLongMap;
+import ru.yandex.practicum.filmorate.collections.MpscArrayQueue;
+import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Популярность фильмов за последнее время: число лайков в скользящем окне (час, сутки, неделя)
+ * или экспоненциально затухающая оценка, в которой вес лайка уменьшается вдвое за halfLife.
+ * Окно разбито на корзины: лайк за O(1) увеличивает счетчик фильма в текущей корзине и сумму по окну,
+ * а при сдвиге окна вычитаются только фильмы из устаревшей корзины, поэтому окно точно с точностью
+ * до одной корзины. Рейтинги всех окон и затухающей оценки поддерживаются инкрементально,
+ * и чтение не обходит каталог.
+ * Время лайка хранится неделю, чтобы удаление лайка вычиталось из той корзины, куда он попал.
+ * Изменения лайков приходят от хранилища под блокировкой лайка, поэтому удаление лайка не опережает
+ * его добавление и не оставляет в рейтингах лайк, которого уже нет.
+ * Пачка лайков обновляет рейтинги один раз на фильм.
+ * Отдельный лайк не берет блокировку: он ставится в очередь и учитывается при следующем чтении
+ * или изменении, поэтому лайки популярного фильма из многих потоков не ждут друг друга
+ */
+@Component
+public class TrendingFilms implements LikeListener {
+
+    private static final Duration LIKE_TIME_RETENTION = Duration.ofDays(7);
+    // При таком показателе экспоненты веса лайков пересчитываются от нового начала отсчета, чтобы не переполниться
+    private static final double MAX_EXPONENT = 200;
+    // Оценка, ставшая меньше этой доли веса нового лайка, считается нулевой
+    private static final double NEGLIGIBLE_SCORE = 1e-9;
+    private static final int PENDING_CAPACITY = 4096;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final Clock clock;
+    private final Map<Period, SlidingWindow> windows = new EnumMap<>(Period.class);
+    private final DecayedRanking decayed;
+    // Время учтенного лайка по ключу фильм-пользователь
+    private final LongLongMap likeTimes = new LongLongMap();
+    private final ArrayDeque<LikeTime> likeTimesQueue = new ArrayDeque<>();
+    // Лайки, еще не учтенные в рейтингах; единственный потребитель - поток под блокировкой
+    private final MpscArrayQueue<PendingLike> pending = new MpscArrayQueue<>(PENDING_CAPACITY);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    public TrendingFilms(FilmStorage filmStorage, @Value("${filmorate.trending.half-life:1d}") Duration halfLife) {
+        this(filmStorage, halfLife, Clock.systemUTC());
+    }
+
+    public TrendingFilms(FilmStorage filmStorage, Duration halfLife, Clock clock) {
+        this(halfLife, clock);
+        filmStorage.setLikeListener(this);
+    }
+
+    // Без подписки на хранилище: изменения лайков передаются вызовами likeAdded, likesAdded и likeDeleted
+    public TrendingFilms(Duration halfLife, Clock clock) {
+        this.clock = clock;
+        long now = clock.millis();
+        for (Period period : Period.values()) {
+            if (period.length != null) {
+                windows.put(period, new SlidingWindow(period.length.toMillis() / period.buckets, period.buckets, now));
+            }
+        }
+        this.decayed = new DecayedRanking(Math.log(2) / halfLife.toMillis(), now);
+    }
+
+    /**
+     * Учет лайка без общей блокировки: лайк со временем ставится в очередь и попадает в рейтинги
+     * при следующем чтении или изменении под блокировкой. Поток, заставший очередь заполненной,
+     * применяет ее сам
+     *
+     * @param filmId - id фильма
+     * @param userId - id пользователя
+     */
+    @Override
+    public void likeAdded(int filmId, int userId) {
+        PendingLike like = new PendingLike(filmId, userId, clock.millis());
+        while (!pending.offer(like)) {
+            lock.lock();
+            try {
+                advance();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void likesAdded(List<FilmLike> likes) {
+        if (likes.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            long now = advance();
+            IntCounterMap counts = new IntCounterMap(Integer.MAX_VALUE);
+            for (FilmLike like : likes) {
+                long key = key(like.getFilmId(), like.getUserId());
+                likeTimes.put(key, now);
+                likeTimesQueue.addLast(new LikeTime(key, now));
+                counts.add(like.getFilmId(), 1);
+            }
+            counts.forEach((filmId, count) -> {
+                windows.values().forEach(window -> window.add(now, filmId, count));
+                decayed.add(now, filmId, count);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Добавление этого лайка уже в очереди или учтено: хранилище сообщает о нем раньше, чем об удалении
+    @Override
+    public void likeDeleted(int filmId, int userId) {
+        lock.lock();
+        try {
+            advance();
+            long key = key(filmId, userId);
+            long time = likeTimes.getOrDefault(key, NO_TIME);
+            if (likeTimes.remove(key)) {
+                windows.values().forEach(window -> window.add(time, filmId, -1));
+                decayed.add(time, filmId, -1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Время лайков удаленного фильма не удаляется: id фильмов не переиспользуются, и оно устареет само
+    public void filmDeleted(int filmId) {
+        lock.lock();
+        try {
+            advance();
+            windows.values().forEach(window -> window.remove(filmId));
+            decayed.remove(filmId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Получение id фильмов, популярных за последнее время
+     *
+     * @param period - окно или затухающая оценка
+     * @param count  - максимальное количество фильмов
+     * @return List<Integer> id фильмов по убыванию популярности, при равенстве - по id
+     */
+    public List<Integer> top(Period period, int count) {
+        lock.lock();
+        try {
+            advance();
+            return period == Period.DECAY ? decayed.top(count) : windows.get(period).ranking.top(count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            long now = clock.millis();
+            pending.drain(like -> {
+            }, Integer.MAX_VALUE);
+            windows.values().forEach(window -> window.clear(now));
+            decayed.clear(now);
+            likeTimes.clear();
+            likeTimesQueue.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Лайки из очереди учитываются после сдвига окон, иначе окно отбросило бы лайк из еще не открытой корзины.
+    // Время каждого лайка - время его постановки в очередь
+    private long advance() {
+        long now = clock.millis();
+        windows.values().forEach(window -> window.advance(now));
+        pending.drain(this::apply, Integer.MAX_VALUE);
+        while (!likeTimesQueue.isEmpty()
+                && likeTimesQueue.peekFirst().time() <= now - LIKE_TIME_RETENTION.toMillis()) {
+            LikeTime expired = likeTimesQueue.pollFirst();
+            // Лайк мог быть удален и поставлен заново, тогда в карте уже более новое время
+            likeTimes.remove(expired.key(), expired.time());
+        }
+        return now;
+    }
+
+    private void apply(PendingLike like) {
+        long key = key(like.filmId(), like.userId());
+        likeTimes.put(key, like.time());
+        likeTimesQueue.addLast(new LikeTime(key, like.time()));
+        windows.values().forEach(window -> window.add(like.time(), like.filmId(), 1));
+        decayed.add(like.time(), like.filmId(), 1);
+    }
+
+    private static long key(int filmId, int userId) {
+        return (long) filmId << 32 | userId;
+    }
+
+    public enum Period {
+        HOUR(Duration.ofHours(1), 12),
+        DAY(Duration.ofDays(1), 24),
+        WEEK(Duration.ofDays(7), 28),
+        DECAY(null, 0);
+
+        private final Duration length;
+        private final int buckets;
+
+        Period(Duration length, int buckets) {
+            this.length = length;
+            this.buckets = buckets;
+        }
+
+        public static Period parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new CustomValidationExpression("Параметр period должен быть одним из: hour, day, week, decay");
+            }
+        }
+    }
+
+    private record LikeTime(long key, long time) {
+    }
+
+    private record PendingLike(int filmId, int userId, long time) {
+    }
+
+    private static final class SlidingWindow {
+
+        private final long bucketMillis;
+        // Корзина с номером n лежит в ячейке n % buckets.length
+        private final IntCounterMap[] buckets;
+        private final IntCounterMap totals = new IntCounterMap(Integer.MAX_VALUE);
+        private final FilmPopularityIndex ranking = new FilmPopularityIndex();
+        private long current;
+
+        private SlidingWindow(long bucketMillis, int buckets, long now) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = new IntCounterMap[buckets];
+            for (int i = 0; i < buckets; i++) {
+                this.buckets[i] = new IntCounterMap(Integer.MAX_VALUE);
+            }
+            this.current = now / bucketMillis;
+        }
+
+        private void advance(long now) {
+            long target = now / bucketMillis;
+            if (target - current >= buckets.length) {
+                clear(now);
+                return;
+            }
+            // Ячейки новых корзин занимали корзины, вышедшие из окна
+            for (long number = current + 1; number <= target; number++) {
+                IntCounterMap expired = buckets[(int) (number % buckets.length)];
+                expired.forEach((filmId, count) -> change(filmId, -count));
+                expired.clear();
+            }
+            current = Math.max(current, target);
+        }
+
+        // Лайк, время которого уже вне окна, на окно не влияет
+        private void add(long time, int filmId, int delta) {
+            long number = time / bucketMillis;
+            if (number <= current - buckets.length || number > current) {
+                return;
+            }
+            buckets[(int) (number % buckets.length)].add(filmId, delta);
+            change(filmId, delta);
+        }
+
+        private void remove(int filmId) {
+            for (IntCounterMap bucket : buckets) {
+                bucket.remove(filmId);
+            }
+            totals.remove(filmId);
+            ranking.remove(filmId);
+        }
+
+        private void change(int filmId, int delta) {
+            totals.add(filmId, delta);
+            int total = totals.get(filmId);
+            if (total == 0) {
+                ranking.remove(filmId);
+            } else {
+                ranking.update(filmId, total);
+            }
+        }
+
+        private void clear(long now) {
+            for (IntCounterMap bucket : buckets) {
+                bucket.clear();
+            }
+            totals.clear();
+            ranking.clear();
+            current = now / bucketMillis;
+        }
+    }
+
+    // Вес лайка exp(rate * (time - origin)) растет со временем вместо того, чтобы уменьшать все оценки:
+    // порядок фильмов от этого не меняется, а лайк обновляет только оценку своего фильма
+    private static final class DecayedRanking {
+
+        private static final Comparator<Rank> ORDER = Comparator.comparingDouble(Rank::score).reversed()
+                .thenComparingInt(Rank::filmId);
+
+        private final double rate;
+        private final NavigableSet<Rank> ranking = new TreeSet<>(ORDER);
+        private final Map<Integer, Rank> ranks = new HashMap<>();
+        private long origin;
+
+        private DecayedRanking(double rate, long now) {
+            this.rate = rate;
+            this.origin = now;
+        }
+
+        private void add(long time, int filmId, int likes) {
+            if (rate * (time - origin) > MAX_EXPONENT) {
+                rescale(time);
+            }
+            double weight = Math.exp(rate * (time - origin));
+            Rank previous = ranks.remove(filmId);
+            double score = likes * weight;
+            if (previous != null) {
+                ranking.remove(previous);
+                score += previous.score();
+            }
+            if (score > NEGLIGIBLE_SCORE * weight) {
+                Rank rank = new Rank(filmId, score);
+                ranks.put(filmId, rank);
+                ranking.add(rank);
+            }
+        }
+
+        private void rescale(long now) {
+            double factor = Math.exp(-rate * (now - origin));
+            List<Rank> rescaled = new ArrayList<>(ranks.size());
+            for (Rank rank : ranks.values()) {
+                if (rank.score() * factor > NEGLIGIBLE_SCORE) {
+                    rescaled.add(new Rank(rank.filmId(), rank.score() * factor));
+                }
+            }
+            ranking.clear();
+            ranks.clear();
+            rescaled.forEach(rank -> {
+                ranks.put(rank.filmId(), rank);
+                ranking.add(rank);
+            });
+            origin = now;
+        }
+
+        private void remove(int filmId) {
+            Rank rank = ranks.remove(filmId);
+            if (rank != null) {
+                ranking.remove(rank);
+            }
+        }
+
+        private List<Integer> top(int count) {
+            List<Integer> result = new ArrayList<>(Math.min(count, ranks.size()));
+            Iterator<Rank> iterator = ranking.iterator();
+            while (result.size() < count && iterator.hasNext()) {
+                result.add(iterator.next().filmId());
+            }
+            return result;
+        }
+
+        private void clear(long now) {
+            ranking.clear();
+            ranks.clear();
+            origin = now;
+        }
+
+        private record Rank(int filmId, double score) {
+        }
+    }
+}
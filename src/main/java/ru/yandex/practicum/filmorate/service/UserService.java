@@ -1,16 +1,20 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
 import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+@Timed(value = "filmorate.service", description = "Время выполнения методов сервисов", histogram = true)
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -18,49 +22,121 @@ public class UserService {
 
     private final UserStorage userStorage;
 
+    private final EntityValidator entityValidator;
+
+    private final FriendRecommender friendRecommender;
+
+    private final FilmService filmService;
+
+    // Общие друзья симметричны, поэтому запросы (a, b) и (b, a) объединяются в одно вычисление
+    private final SingleFlight<Long, List<Integer>> commonFriendsFlight = new SingleFlight<>("users.common-friends");
+
+    public List<BatchItemResult> addUsers(List<User> users) {
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        List<User> validUsers = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            Map<String, String> errors = entityValidator.validate(users.get(i));
+            if (errors.isEmpty()) {
+                validUsers.add(users.get(i));
+            } else {
+                results[i] = BatchItemResult.failure(i, HttpStatus.BAD_REQUEST.value(), errors);
+            }
+        }
+        userStorage.addUsers(validUsers);
+        for (int i = 0; i < users.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            int id = users.get(i).getId();
+            results[i] = id == 0
+                    ? BatchItemResult.failure(i, HttpStatus.BAD_REQUEST.value(), Map.of("error", "Email должен быть уникальным"))
+                    : BatchItemResult.success(i, HttpStatus.CREATED.value(), id);
+        }
+        return Arrays.asList(results);
+    }
+
     public Map<String, String> addToFriends(int id, int friendId) {
         validateIds(id, friendId);
         Map<String, String> response = new HashMap<>();
-        if (userStorage.getUsers().containsKey(id) && userStorage.getUsers().containsKey(friendId)) {
-            Set<Integer> friends1 = userStorage.getUsers().get(id).getFriends();
-            Set<Integer> friends2 = userStorage.getUsers().get(friendId).getFriends();
-            friends1.add(friendId);
-            friends2.add(id);
-            if (friends1.contains(friendId) && friends2.contains(id)) {
-                response.put("message", String.format("Пользователи %d и %d теперь друзья", id, friendId));
+        friendRecommender.addFriend(id, friendId);
+        response.put("message", String.format("Пользователи %d и %d теперь друзья", id, friendId));
+        return response;
+    }
+
+    public List<BatchItemResult> addFriends(List<Friendship> friendships) {
+        List<BatchItemResult> results = new ArrayList<>(friendships.size());
+        List<Friendship> validFriendships = new ArrayList<>(friendships.size());
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (!userStorage.getUsers().containsKey(friendship.getUserId())
+                    || !userStorage.getUsers().containsKey(friendship.getFriendId())) {
+                results.add(BatchItemResult.failure(i, HttpStatus.NOT_FOUND.value(),
+                        Map.of("error", "Один из пользователей не найден")));
+            } else if (friendship.getUserId() == friendship.getFriendId()) {
+                results.add(BatchItemResult.failure(i, HttpStatus.BAD_REQUEST.value(),
+                        Map.of("error", "Идентификаторы пользователей совпадают")));
+            } else {
+                validFriendships.add(friendship);
+                results.add(BatchItemResult.success(i, HttpStatus.OK.value(), friendship.getUserId()));
             }
         }
-        return response;
+        friendRecommender.addFriends(validFriendships);
+        return results;
     }
 
     public Map<String, String> deleteFromFriends(int id, int friendId) {
         validateIds(id, friendId);
         Map<String, String> response = new HashMap<>();
-        if (userStorage.getUsers().containsKey(id) && userStorage.getUsers().containsKey(friendId)) {
-            Set<Integer> friends1 = userStorage.getUsers().get(id).getFriends();
-            Set<Integer> friends2 = userStorage.getUsers().get(friendId).getFriends();
-            friends1.remove(friendId);
-            friends2.remove(id);
-            if (!friends1.contains(friendId) && !friends2.contains(id)) {
-                response.put("message", String.format("Пользователи %d и %d больше не друзья", id, friendId));
-            }
-        }
+        friendRecommender.deleteFriend(id, friendId);
+        response.put("message", String.format("Пользователи %d и %d больше не друзья", id, friendId));
         return response;
     }
 
-    public Set<Integer> getCommonFriendsList(int id, int friendId) {
+    public List<Integer> getCommonFriendsList(int id, int friendId) {
         validateIds(id, friendId);
-        Set<Integer> friends1 = userStorage.getUsers().get(id).getFriends();
-        Set<Integer> friends2 = userStorage.getUsers().get(friendId).getFriends();
-        return friends1.stream().filter(id1 -> friends2.contains(id1)).collect(Collectors.toSet());
+        long pair = (long) Math.min(id, friendId) << 32 | Math.max(id, friendId);
+        return commonFriendsFlight.execute(pair,
+                () -> Arrays.stream(userStorage.getCommonFriendIds(id, friendId)).boxed().toList());
+    }
+
+    public SingleFlight<Long, List<Integer>> getCommonFriendsFlight() {
+        return commonFriendsFlight;
+    }
+
+    public Map<String, Integer> getCommonFriendsCount(int id, int friendId) {
+        validateIds(id, friendId);
+        return Map.of("count", userStorage.countCommonFriends(id, friendId));
+    }
+
+    public List<User> getRecommendations(int id, int count) {
+        if (!userStorage.getUsers().containsKey(id)) {
+            throw new IdNotFoundException("Пользователь не найден");
+        }
+        if (count <= 0) {
+            throw new CustomValidationExpression("Параметр count должен быть положительным");
+        }
+        return getUsersByListIDs(Arrays.stream(friendRecommender.recommend(id, count)).boxed().toList());
+    }
+
+    // Лайки удаляются раньше пользователя: в БД они ссылаются на него
+    public Map<String, String> deleteUser(int id) {
+        if (!userStorage.getUsers().containsKey(id)) {
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", id));
+        }
+        filmService.deleteUser(id, () -> friendRecommender.deleteUser(id));
+        return Map.of("message", String.format("Пользователь %d удален", id));
+    }
+
+    public List<User> clearUsers() {
+        return friendRecommender.clearUsers();
+    }
+
+    public List<User> getFriends(int id) {
+        return getUsersByListIDs(Arrays.stream(userStorage.getFriendIds(id)).boxed().toList());
     }
 
-    public List<User> getUsersByListIDs(List<Integer> ids) {
-        List<User> userList = new ArrayList<>();
-        ids.forEach(id -> {
-            userList.add(userStorage.getUsers().get(id));
-        });
-        return userList;
+    public List<User> getUsersByListIDs(Collection<Integer> ids) {
+        return userStorage.getMany(ids);
     }
 
     private void validateIds(int id, int friendId) {
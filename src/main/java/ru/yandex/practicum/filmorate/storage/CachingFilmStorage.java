@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Кэш фильмов по id поверх хранилища, выбранного filmorate.storage.
+ * Кэшируются обращения к фильму по id, списки и рейтинг передаются хранилищу без изменений
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final EntityCache<Film> cache;
+    private final Map<Integer, Film> films;
+
+    // Сам декоратор исключается из кандидатов, поэтому delegate - настоящее хранилище
+    public CachingFilmStorage(FilmStorage delegate,
+                              @Value("${filmorate.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${filmorate.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                              @Value("${filmorate.cache.negative-ttl:5s}") Duration negativeTtl) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>("films", maximumSize, expireAfterWrite, negativeTtl);
+        this.films = new EntityMapView<>(this::getFilm, id -> getFilm(id) != null,
+                () -> delegate.getFilms().size(), delegate::getAllFilms, Film::getId);
+    }
+
+    public EntityCache<Film> getCache() {
+        return cache;
+    }
+
+    private Film getFilm(int id) {
+        return cache.get(id, key -> delegate.getFilms().get(key));
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        Film added = delegate.addFilm(film);
+        // id мог быть закэширован как отсутствующий
+        invalidate(added.getId());
+        return added;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> newFilms) {
+        List<Film> added = delegate.addFilms(newFilms);
+        invalidate(added.stream().map(Film::getId).toList());
+        return added;
+    }
+
+    @Override
+    public Film updateFilm(int id, Film film) {
+        Film updated = delegate.updateFilm(id, film);
+        invalidate(id);
+        return updated;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getMany(Collection<Integer> ids) {
+        return cache.getAll(ids, delegate::getMany, Film::getId);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return delegate.getFilmsPage(afterId, limit);
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        delegate.forEachFilm(action);
+    }
+
+    @Override
+    public List<Film> findFilms(KeyRange<LocalDate> releaseDate, KeyRange<Long> duration, int afterId, int limit) {
+        return delegate.findFilms(releaseDate, duration, afterId, limit);
+    }
+
+    @Override
+    public List<Film> clearFilms() {
+        List<Film> result = delegate.clearFilms();
+        cache.invalidateAll();
+        // Повторное увеличение версий - см. invalidate
+        delegate.getVersions().changedAll();
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Film> getFilms() {
+        return films;
+    }
+
+    @Override
+    public boolean deleteFilm(int id) {
+        boolean deleted = delegate.deleteFilm(id);
+        invalidate(id);
+        return deleted;
+    }
+
+    // Лайки меняют количество лайков в фильме, поэтому фильм удаляется из кэша
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        boolean added = delegate.addLike(filmId, userId);
+        invalidate(filmId);
+        return added;
+    }
+
+    @Override
+    public List<FilmLike> addLikes(List<FilmLike> likes) {
+        List<FilmLike> added = delegate.addLikes(likes);
+        invalidate(likes.stream().map(FilmLike::getFilmId).distinct().toList());
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(int filmId, int userId) {
+        boolean deleted = delegate.deleteLike(filmId, userId);
+        invalidate(filmId);
+        return deleted;
+    }
+
+    @Override
+    public List<Integer> getLikedFilmIds(int userId) {
+        return delegate.getLikedFilmIds(userId);
+    }
+
+    @Override
+    public List<Integer> deleteUserLikes(int userId) {
+        List<Integer> changed = delegate.deleteUserLikes(userId);
+        invalidate(changed);
+        return changed;
+    }
+
+    @Override
+    public List<Integer> getPopularFilmIds(int count) {
+        return delegate.getPopularFilmIds(count);
+    }
+
+    @Override
+    public VersionCounters getVersions() {
+        return delegate.getVersions();
+    }
+
+    @Override
+    public void setLikeListener(LikeListener listener) {
+        delegate.setLikeListener(listener);
+    }
+
+    // Версии увеличиваются повторно после удаления из кэша: ответ, построенный по устаревшей записи
+    // между изменением в хранилище и инвалидацией, остается привязан к уже пройденной версии
+    private void invalidate(int id) {
+        cache.invalidate(id);
+        delegate.getVersions().changed(id);
+    }
+
+    private void invalidate(Collection<Integer> ids) {
+        cache.invalidateAll(ids);
+        delegate.getVersions().changed(ids);
+    }
+}
@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Кэш пользователей по id поверх хранилища, выбранного filmorate.storage.
+ * Проверки существования и getUser обслуживаются из кэша, в том числе для отсутствующих id
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class CachingUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final EntityCache<User> cache;
+    private final Map<Integer, User> users;
+
+    // Сам декоратор исключается из кандидатов, поэтому delegate - настоящее хранилище
+    public CachingUserStorage(UserStorage delegate,
+                              @Value("${filmorate.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${filmorate.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                              @Value("${filmorate.cache.negative-ttl:5s}") Duration negativeTtl) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>("users", maximumSize, expireAfterWrite, negativeTtl);
+        this.users = new EntityMapView<>(this::findUser, id -> findUser(id) != null,
+                () -> delegate.getUsers().size(), delegate::getAllUsers, User::getId);
+    }
+
+    public EntityCache<User> getCache() {
+        return cache;
+    }
+
+    private User findUser(int id) {
+        return cache.get(id, key -> delegate.getUsers().get(key));
+    }
+
+    @Override
+    public User addUser(User user) {
+        User added = delegate.addUser(user);
+        // id мог быть закэширован как отсутствующий
+        invalidate(added.getId());
+        return added;
+    }
+
+    @Override
+    public List<User> addUsers(List<User> newUsers) {
+        List<User> added = delegate.addUsers(newUsers);
+        invalidate(added.stream().map(User::getId).filter(id -> id != 0).toList());
+        return added;
+    }
+
+    @Override
+    public User updateUser(int id, User user) {
+        User updated = delegate.updateUser(id, user);
+        invalidate(id);
+        return updated;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getMany(Collection<Integer> ids) {
+        return cache.getAll(ids, delegate::getMany, User::getId);
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        return delegate.getUsersPage(afterId, limit);
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        delegate.forEachUser(action);
+    }
+
+    @Override
+    public List<User> findUsers(KeyRange<LocalDate> birthday, KeyRange<MonthDay> birthdayInYear, int afterId,
+                                int limit) {
+        return delegate.findUsers(birthday, birthdayInYear, afterId, limit);
+    }
+
+    @Override
+    public List<User> clearUsers() {
+        List<User> result = delegate.clearUsers();
+        cache.invalidateAll();
+        // Повторное увеличение версий - см. invalidate
+        delegate.getVersions().changedAll();
+        return result;
+    }
+
+    @Override
+    public Map<Integer, User> getUsers() {
+        return users;
+    }
+
+    @Override
+    public User getUser(int id) {
+        User user = findUser(id);
+        if (user == null) {
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", id));
+        }
+        return user;
+    }
+
+    // Удаление меняет списки друзей всех друзей пользователя, поэтому они удаляются из кэша вместе с ним
+    @Override
+    public User deleteUser(int id) {
+        int[] friends = delegate.getFriendIds(id);
+        User deleted = delegate.deleteUser(id);
+        List<Integer> ids = new ArrayList<>(friends.length + 1);
+        ids.add(id);
+        Arrays.stream(friends).forEach(ids::add);
+        invalidate(ids);
+        return deleted;
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return delegate.getUserByEmail(email);
+    }
+
+    // Дружба меняет списки друзей обоих пользователей, поэтому из кэша удаляются обе стороны
+
+    @Override
+    public boolean addFriend(int id, int friendId) {
+        boolean added = delegate.addFriend(id, friendId);
+        invalidate(List.of(id, friendId));
+        return added;
+    }
+
+    @Override
+    public void addFriends(List<Friendship> friendships) {
+        delegate.addFriends(friendships);
+        Set<Integer> ids = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            ids.add(friendship.getUserId());
+            ids.add(friendship.getFriendId());
+        }
+        invalidate(ids);
+    }
+
+    @Override
+    public boolean deleteFriend(int id, int friendId) {
+        boolean deleted = delegate.deleteFriend(id, friendId);
+        invalidate(List.of(id, friendId));
+        return deleted;
+    }
+
+    @Override
+    public int[] getFriendIds(int id) {
+        return delegate.getFriendIds(id);
+    }
+
+    @Override
+    public int[] getCommonFriendIds(int id, int otherId) {
+        return delegate.getCommonFriendIds(id, otherId);
+    }
+
+    @Override
+    public int countCommonFriends(int id, int otherId) {
+        return delegate.countCommonFriends(id, otherId);
+    }
+
+    @Override
+    public VersionCounters getVersions() {
+        return delegate.getVersions();
+    }
+
+    // Версии увеличиваются повторно после удаления из кэша: ответ, построенный по устаревшей записи
+    // между изменением в хранилище и инвалидацией, остается привязан к уже пройденной версии
+    private void invalidate(int id) {
+        cache.invalidate(id);
+        delegate.getVersions().changed(id);
+    }
+
+    private void invalidate(Collection<Integer> ids) {
+        cache.invalidateAll(ids);
+        delegate.getVersions().changed(ids);
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Кэш сущностей по id с вытеснением W-TinyLFU (Caffeine), ограниченный по размеру и времени жизни записи.
+ * Отсутствующие id тоже кэшируются, но на более короткий срок negativeTtl.
+ * Записи удаляются после изменения в хранилище. Загрузка одного id и удаление ключа в Caffeine атомарны,
+ * поэтому значение, прочитанное до изменения, не переживет последующую инвалидацию. При загрузке пачкой
+ * Caffeine кладет значения уже после загрузки, поэтому getAll загружает промахи сам и кладет значение,
+ * только если с начала загрузки его id не инвалидировался - иначе значение отдается без кэширования
+ */
+public class EntityCache<V> {
+
+    private static final int STRIPES = 1 << 12;
+
+    private final String name;
+    private final Cache<Integer, Optional<V>> cache;
+    // Счетчики инвалидаций по полосам id и всего кэша; увеличиваются до удаления ключа
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+    private final AtomicLong clears = new AtomicLong();
+
+    EntityCache(String name, long maximumSize, Duration expireAfterWrite, Duration negativeTtl) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<Integer, Optional<V>>() {
+                    @Override
+                    public long expireAfterCreate(Integer id, Optional<V> value, long currentTime) {
+                        return (value.isPresent() ? expireAfterWrite : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer id, Optional<V> value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(id, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer id, Optional<V> value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    V get(int id, IntFunction<V> loader) {
+        return cache.get(id, key -> Optional.ofNullable(loader.apply(key))).orElse(null);
+    }
+
+    // Промахи загружаются одним обращением к хранилищу, порядок результата совпадает с порядком id
+    List<V> getAll(Collection<Integer> ids, Function<Set<Integer>, List<V>> loader, ToIntFunction<V> idOf) {
+        Map<Integer, Optional<V>> found = new HashMap<>(cache.getAllPresent(ids));
+        Set<Integer> missing = new HashSet<>();
+        for (Integer id : ids) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long cleared = clears.get();
+            Map<Integer, Long> versions = new HashMap<>();
+            missing.forEach(id -> versions.put(id, invalidations.get(stripe(id))));
+            Map<Integer, Optional<V>> loaded = new HashMap<>();
+            for (V entity : loader.apply(missing)) {
+                loaded.put(idOf.applyAsInt(entity), Optional.of(entity));
+            }
+            for (Integer id : missing) {
+                Optional<V> value = loaded.getOrDefault(id, Optional.empty());
+                found.put(id, value);
+                // Проверка внутри compute: инвалидация этого ключа либо уже видна, либо удалит значение после
+                cache.asMap().compute(id, (key, current) -> current != null || clears.get() != cleared
+                        || invalidations.get(stripe(id)) != versions.get(id) ? current : value);
+            }
+        }
+        List<V> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            found.get(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    void invalidate(int id) {
+        invalidations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    void invalidateAll(Iterable<Integer> ids) {
+        ids.forEach(id -> invalidations.incrementAndGet(stripe(id)));
+        cache.invalidateAll(ids);
+    }
+
+    void invalidateAll() {
+        clears.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private static int stripe(int id) {
+        return id & (STRIPES - 1);
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    public Map<String, Number> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Number> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Таблица БД в виде Map для кода, который обращается к хранилищу через getFilms()/getUsers().
+ * get и containsKey выполняют запрос по первичному ключу, вся таблица читается только при обходе.
+ * Представление только для чтения
+ */
+class EntityMapView<T> extends AbstractMap<Integer, T> {
+
+    private final IntFunction<T> loader;
+    private final IntPredicate exists;
+    private final IntSupplier count;
+    private final Supplier<List<T>> all;
+    private final ToIntFunction<T> idOf;
+
+    EntityMapView(IntFunction<T> loader, IntPredicate exists, IntSupplier count, Supplier<List<T>> all,
+                  ToIntFunction<T> idOf) {
+        this.loader = loader;
+        this.exists = exists;
+        this.count = count;
+        this.all = all;
+        this.idOf = idOf;
+    }
+
+    @Override
+    public T get(Object key) {
+        return key instanceof Integer id ? loader.apply(id) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer id && exists.test(id);
+    }
+
+    @Override
+    public int size() {
+        return count.getAsInt();
+    }
+
+    @Override
+    public Set<Entry<Integer, T>> entrySet() {
+        Map<Integer, T> snapshot = new LinkedHashMap<>();
+        for (T entity : all.get()) {
+            snapshot.put(idOf.applyAsInt(entity), entity);
+        }
+        return Collections.unmodifiableMap(snapshot).entrySet();
+    }
+}
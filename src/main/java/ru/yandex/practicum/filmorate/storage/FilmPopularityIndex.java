@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Рейтинг фильмов по количеству лайков.
+ * Поддерживается инкрементально: изменение числа лайков фильма стоит O(log n), выборка топ-K - O(K).
+ * При равном количестве лайков выше стоит фильм с меньшим id.
+ * Обновления одного фильма через update должны выполняться под его блокировкой, через refresh - могут
+ * идти из многих потоков сразу; чтение не блокируется и может не увидеть фильм, позиция которого
+ * меняется в этот момент.
+ */
+public class FilmPopularityIndex {
+
+    private static final int IDLE = 0;
+    private static final int RUNNING = 1;
+    // Количество лайков изменилось, пока фильм переносился: перенос повторяется
+    private static final int RUNNING_DIRTY = 2;
+
+    private static final Comparator<Rank> ORDER = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingInt(Rank::filmId);
+
+    private final NavigableSet<Rank> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentMap<Integer, Rank> ranks = new ConcurrentHashMap<>();
+    // Состояние переноса фильма через refresh: IDLE, RUNNING или RUNNING_DIRTY
+    private final ConcurrentMap<Integer, AtomicInteger> refreshes = new ConcurrentHashMap<>();
+
+    /**
+     * Установка текущего количества лайков фильма
+     *
+     * @param filmId - id фильма
+     * @param likes  - количество лайков
+     */
+    public void update(int filmId, int likes) {
+        Rank rank = new Rank(filmId, likes);
+        Rank previous = ranks.put(filmId, rank);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.add(rank);
+    }
+
+    /**
+     * Перенос фильма после изменения количества его лайков без блокировки фильма.
+     * Фильм переносит один поток; остальные, застав перенос, только отмечают, что количество
+     * изменилось, и этот поток перечитывает его перед выходом. Поэтому одновременные лайки
+     * популярного фильма не выстраиваются в очередь к рейтингу, а рейтинг отстает не больше чем на один перенос
+     *
+     * @param filmId - id фильма
+     * @param likes  - текущее количество лайков фильма; изменение должно быть сделано до вызова
+     */
+    public void refresh(int filmId, IntSupplier likes) {
+        AtomicInteger state = refreshes.computeIfAbsent(filmId, id -> new AtomicInteger());
+        while (true) {
+            int current = state.get();
+            if (current == RUNNING_DIRTY) {
+                return;
+            }
+            if (current == RUNNING) {
+                if (state.compareAndSet(RUNNING, RUNNING_DIRTY)) {
+                    return;
+                }
+            } else if (state.compareAndSet(IDLE, RUNNING)) {
+                break;
+            }
+        }
+        while (true) {
+            update(filmId, likes.getAsInt());
+            if (state.compareAndSet(RUNNING, IDLE)) {
+                return;
+            }
+            state.set(RUNNING);
+        }
+    }
+
+    public void remove(int filmId) {
+        refreshes.remove(filmId);
+        Rank previous = ranks.remove(filmId);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+    }
+
+    /**
+     * Получение id самых популярных фильмов
+     *
+     * @param count - максимальное количество фильмов
+     * @return List<Integer> id фильмов в порядке убывания популярности
+     */
+    public List<Integer> top(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество фильмов не может быть отрицательным: " + count);
+        }
+        List<Integer> result = new ArrayList<>(Math.min(count, ranks.size()));
+        Iterator<Rank> iterator = ranking.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            result.add(iterator.next().filmId());
+        }
+        return result;
+    }
+
+    public void clear() {
+        ranking.clear();
+        ranks.clear();
+        refreshes.clear();
+    }
+
+    private record Rank(int filmId, int likes) {
+    }
+}
@@ -1,19 +1,98 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(int id, Film film);
 
     List<Film> getAllFilms();
 
+    /**
+     * Получение фильмов по списку id за одно обращение к хранилищу.
+     * Отсутствующие id пропускаются, порядок результата совпадает с порядком id
+     *
+     * @param ids - id фильмов
+     * @return List<Film> найденные фильмы
+     */
+    List<Film> getMany(Collection<Integer> ids);
+
+    List<Film> getFilmsPage(int afterId, int limit);
+
+    void forEachFilm(Consumer<Film> action);
+
+    /**
+     * Выборка фильмов по диапазонам даты выхода и продолжительности с постраничной выдачей по id.
+     * Хранилище отбирает фильмы по вторичным индексам этих полей, а не перебором всех фильмов
+     *
+     * @param releaseDate - допустимые даты выхода
+     * @param duration    - допустимая продолжительность в минутах
+     * @param afterId     - возвращаются только фильмы с id больше этого
+     * @param limit       - максимальное количество фильмов
+     * @return List<Film> фильмы по возрастанию id
+     */
+    List<Film> findFilms(KeyRange<LocalDate> releaseDate, KeyRange<Long> duration, int afterId, int limit);
+
     List<Film> clearFilms();
 
     Map<Integer, Film> getFilms();
+
+    /**
+     * Удаление фильма вместе с его лайками. Лайки убираются и из обратного индекса пользователь -> фильмы,
+     * поэтому удаление затрагивает только пользователей, поставивших лайк
+     *
+     * @param id - id фильма
+     * @return boolean false, если фильма нет
+     */
+    boolean deleteFilm(int id);
+
+    boolean addLike(int filmId, int userId);
+
+    /**
+     * Пакетное добавление лайков
+     *
+     * @param likes - лайки
+     * @return List<FilmLike> лайки, которых еще не было, в порядке добавления
+     */
+    List<FilmLike> addLikes(List<FilmLike> likes);
+
+    boolean deleteLike(int filmId, int userId);
+
+    List<Integer> getLikedFilmIds(int userId);
+
+    /**
+     * Удаление всех лайков пользователя по обратному индексу пользователь -> фильмы
+     *
+     * @param userId - id пользователя
+     * @return List<Integer> id фильмов, у которых был удален лайк
+     */
+    List<Integer> deleteUserLikes(int userId);
+
+    List<Integer> getPopularFilmIds(int count);
+
+    /**
+     * Версии данных для кэширования ответов, увеличиваются при каждом изменении хранилища
+     *
+     * @return VersionCounters версии коллекции и отдельных сущностей
+     */
+    VersionCounters getVersions();
+
+    /**
+     * Подписка на изменения лайков: получатель вызывается под блокировкой лайка при каждом его добавлении
+     * и удалении, кроме удаления вместе с фильмом
+     *
+     * @param listener - получатель, заменяет прежнего
+     */
+    void setLikeListener(LikeListener listener);
 }
@@ -1,49 +1,492 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.annotation.Timed;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.collections.IntSortedSet;
+import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmSaved;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmsCleared;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournaledStorage;
+import ru.yandex.practicum.filmorate.storage.journal.MutationLog;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotInput;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotOutput;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+@Timed(value = "filmorate.storage", description = "Время выполнения операций хранилищ")
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 @NoArgsConstructor
 @Slf4j
 @Getter
-public class InMemoryFilmStorage implements FilmStorage {
+public class InMemoryFilmStorage implements FilmStorage, JournaledStorage {
 
-    public static int nextId = 0;
-    private final HashMap<Integer, Film> films = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger nextId = new AtomicInteger();
+    // Упорядочено по id: на этом основана постраничная выдача
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    @Getter(AccessLevel.NONE)
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+    // Вторичные индексы для выборки по диапазонам полей, ведутся под блокировкой фильма
+    @Getter(AccessLevel.NONE)
+    private final SecondaryIndex<Film, LocalDate> releaseDateIndex = new SecondaryIndex<>(Film::getReleaseDate);
+    @Getter(AccessLevel.NONE)
+    private final SecondaryIndex<Film, Long> durationIndex = new SecondaryIndex<>(Film::getDuration);
+    // Обратный индекс лайков: id пользователя -> id понравившихся ему фильмов
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentMap<Integer, IntSortedSet> likedFilms = new ConcurrentHashMap<>();
+    // Лайк берет только блокировку пользователя: множество и счетчик лайков фильма конкурентные,
+    // поэтому лайки одному фильму от разных пользователей не ждут друг друга.
+    // Удаление фильма и операции над всеми фильмами берут блокировку фильма, затем всех пользователей
+    @Getter(AccessLevel.NONE)
+    private final StripedLocks filmLocks = new StripedLocks();
+    @Getter(AccessLevel.NONE)
+    private final StripedLocks userLocks = new StripedLocks();
+    // Каждое изменение записывается в журнал под блокировкой фильма или пользователя до изменения состояния
+    @Getter(AccessLevel.NONE)
+    private volatile MutationLog journal = MutationLog.NONE;
+    // Вызывается под той же блокировкой пользователя, что и журнал
+    @Getter(AccessLevel.NONE)
+    private volatile LikeListener likeListener = LikeListener.NONE;
+    private final VersionCounters versions = new VersionCounters();
 
     @Override
     public Film addFilm(Film film) {
-        nextId++;
-        film.setId(nextId);
-        films.put(film.getId(), film);
+        MutationLog journal = this.journal;
+        film.setId(nextId.incrementAndGet());
+        journal.awaitDurable(putFilm(journal, film));
         log.info("Добавлен фильм {}", films.get(film.getId()));
         return films.get(film.getId());
     }
 
+    @Override
+    public List<Film> addFilms(List<Film> newFilms) {
+        MutationLog journal = this.journal;
+        int firstId = nextId.getAndAdd(newFilms.size()) + 1;
+        // Блокировки всех фильмов берутся один раз на пакет, а не на каждый фильм
+        long position = filmLocks.lockedAll(() -> {
+            long appended = 0;
+            for (int i = 0; i < newFilms.size(); i++) {
+                Film film = newFilms.get(i);
+                film.setId(firstId + i);
+                appended = storeFilm(journal, film);
+            }
+            return appended;
+        });
+        journal.awaitDurable(position);
+        log.info("Добавлено фильмов пакетом: {}", newFilms.size());
+        return newFilms;
+    }
+
+    // Новый фильм становится виден только после записи в журнал, поэтому лайк к нему попадет в журнал позже
+    private long putFilm(MutationLog journal, Film film) {
+        return filmLocks.locked(film.getId(), () -> storeFilm(journal, film));
+    }
+
+    // Вызывается под блокировкой фильма
+    private long storeFilm(MutationLog journal, Film film) {
+        long position = journal.append(FilmSaved.of(film));
+        // Рейтинг заводится до того, как фильм станет виден: лайк к нему уже обновляет рейтинг сам
+        popularityIndex.update(film.getId(), 0);
+        films.put(film.getId(), film);
+        indexFilm(film.getId(), null, film);
+        versions.changed(film.getId());
+        return position;
+    }
+
     @Override
     public Film updateFilm(int id, Film film) {
+        MutationLog journal = this.journal;
         film.setId(id);
-        films.put(id, film);
+        long position = filmLocks.locked(id, () -> {
+            existingFilm(id);
+            long appended = journal.append(FilmSaved.of(film));
+            indexFilm(id, restoreFilm(film), film);
+            versions.changed(id);
+            return appended;
+        });
+        journal.awaitDurable(position);
         log.info("Изменен фильм {}", films.get(film.getId()));
         return films.get(film.getId());
     }
 
+    @Override
+    public boolean deleteFilm(int id) {
+        MutationLog journal = this.journal;
+        // Блокировки всех пользователей исключают лайки, начатые до удаления и не попавшие в обход лайков фильма
+        long position = filmLocks.locked(id, () -> userLocks.lockedAll(() -> {
+            Film film = films.get(id);
+            if (film == null) {
+                return -1L;
+            }
+            long appended = journal.append(new FilmDeleted(id));
+            films.remove(id);
+            // Фильм убирается только из обратного индекса пользователей, поставивших ему лайк
+            film.getLikes().forEach(userId -> removeLikedFilm(userId, id));
+            indexFilm(id, film, null);
+            popularityIndex.remove(id);
+            versions.changed(id);
+            return appended;
+        }));
+        journal.awaitDurable(position);
+        if (position >= 0) {
+            log.info("Удален фильм с id={}", id);
+        }
+        return position >= 0;
+    }
+
     @Override
     public List<Film> getAllFilms() {
         return films.values().stream().toList();
     }
 
+    @Override
+    public List<Film> getMany(Collection<Integer> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, films.size()));
+        for (Film film : films.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(film);
+        }
+        return page;
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        films.values().forEach(action);
+    }
+
+    @Override
+    public List<Film> findFilms(KeyRange<LocalDate> releaseDate, KeyRange<Long> duration, int afterId, int limit) {
+        return SecondaryIndex.select(List.of(releaseDateIndex.where(releaseDate), durationIndex.where(duration)),
+                films::get, afterId, limit);
+    }
+
+    private void indexFilm(int id, Film previous, Film current) {
+        releaseDateIndex.update(id, previous, current);
+        durationIndex.update(id, previous, current);
+    }
+
     @Override
     public List<Film> clearFilms() {
-        films.clear();
-        nextId = 0;
+        MutationLog journal = this.journal;
+        long position = filmLocks.lockedAll(() -> userLocks.lockedAll(() -> {
+            long appended = journal.append(new FilmsCleared());
+            clearState();
+            versions.changedAll();
+            return appended;
+        }));
+        journal.awaitDurable(position);
         return films.values().stream().toList();
     }
+
+    private void clearState() {
+        films.clear();
+        popularityIndex.clear();
+        releaseDateIndex.clear();
+        durationIndex.clear();
+        likedFilms.clear();
+        nextId.set(0);
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        MutationLog journal = this.journal;
+        long position = userLocks.locked(userId, () -> {
+            Film film = existingFilm(filmId);
+            if (film.getLikes().contains(userId)) {
+                return -1L;
+            }
+            long appended = journal.append(new LikeAdded(filmId, userId));
+            film.addLike(userId);
+            likedFilms.computeIfAbsent(userId, id -> new IntSortedSet()).add(filmId);
+            popularityIndex.refresh(filmId, film::getLikesCount);
+            versions.changed(filmId);
+            likeListener.likeAdded(filmId, userId);
+            return appended;
+        });
+        journal.awaitDurable(position);
+        return position >= 0;
+    }
+
+    @Override
+    public List<FilmLike> addLikes(List<FilmLike> likes) {
+        MutationLog journal = this.journal;
+        List<FilmLike> added = new ArrayList<>(likes.size());
+        long position = filmLocks.lockedAll(() -> userLocks.lockedAll(() -> {
+            Set<Integer> changedFilms = new HashSet<>();
+            long appended = 0;
+            for (FilmLike like : likes) {
+                Film film = films.get(like.getFilmId());
+                // Фильм мог быть удален после проверки в сервисе
+                if (film == null) {
+                    continue;
+                }
+                if (!film.getLikes().contains(like.getUserId())) {
+                    appended = journal.append(new LikeAdded(like.getFilmId(), like.getUserId()));
+                    film.addLike(like.getUserId());
+                    likedFilms.computeIfAbsent(like.getUserId(), id -> new IntSortedSet()).add(like.getFilmId());
+                    changedFilms.add(like.getFilmId());
+                    added.add(like);
+                }
+            }
+            // Рейтинг пересчитывается один раз на фильм, а не на каждый лайк
+            changedFilms.forEach(filmId -> popularityIndex.update(filmId, films.get(filmId).getLikesCount()));
+            versions.changed(changedFilms);
+            likeListener.likesAdded(added);
+            return appended;
+        }));
+        journal.awaitDurable(position);
+        log.info("Добавлено лайков пакетом: {}", likes.size());
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(int filmId, int userId) {
+        MutationLog journal = this.journal;
+        long position = userLocks.locked(userId, () -> removeLike(journal, existingFilm(filmId), userId));
+        journal.awaitDurable(position);
+        return position >= 0;
+    }
+
+    @Override
+    public List<Integer> deleteUserLikes(int userId) {
+        MutationLog journal = this.journal;
+        List<Integer> changed = new ArrayList<>();
+        long position = 0;
+        for (int filmId : getLikedFilmIds(userId)) {
+            long removed = userLocks.locked(userId, () -> {
+                Film film = films.get(filmId);
+                return film == null ? -1L : removeLike(journal, film, userId);
+            });
+            if (removed >= 0) {
+                changed.add(filmId);
+                position = removed;
+            }
+        }
+        journal.awaitDurable(position);
+        return changed;
+    }
+
+    // Вызывается под блокировкой пользователя, возвращает позицию в журнале или -1, если лайка не было
+    private long removeLike(MutationLog journal, Film film, int userId) {
+        int filmId = film.getId();
+        if (!film.getLikes().contains(userId)) {
+            return -1L;
+        }
+        long appended = journal.append(new LikeDeleted(filmId, userId));
+        film.removeLike(userId);
+        removeLikedFilm(userId, filmId);
+        popularityIndex.refresh(filmId, film::getLikesCount);
+        versions.changed(filmId);
+        likeListener.likeDeleted(filmId, userId);
+        return appended;
+    }
+
+    private Film existingFilm(int filmId) {
+        Film film = films.get(filmId);
+        if (film == null) {
+            throw new IdNotFoundException(String.format("Фильм с id=%d не найден", filmId));
+        }
+        return film;
+    }
+
+    private IntSortedSet removeLikedFilm(int userId, int filmId) {
+        IntSortedSet userFilms = likedFilms.get(userId);
+        userFilms.remove(filmId);
+        if (userFilms.isEmpty()) {
+            likedFilms.remove(userId);
+        }
+        return userFilms;
+    }
+
+    @Override
+    public List<Integer> getLikedFilmIds(int userId) {
+        return userLocks.locked(userId, () -> {
+            IntSortedSet userFilms = likedFilms.get(userId);
+            if (userFilms == null) {
+                return List.of();
+            }
+            List<Integer> ids = new ArrayList<>(userFilms.size());
+            userFilms.forEach(ids::add);
+            return ids;
+        });
+    }
+
+    @Override
+    public List<Integer> getPopularFilmIds(int count) {
+        return popularityIndex.top(count);
+    }
+
+    @Override
+    public void setLikeListener(LikeListener listener) {
+        this.likeListener = listener;
+    }
+
+    @Override
+    public String getJournalName() {
+        return "films";
+    }
+
+    @Override
+    public void attachJournal(MutationLog journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void apply(JournalRecord record) {
+        switch (record) {
+            case FilmSaved saved -> restoreFilm(saved.toFilm());
+            case LikeAdded like -> {
+                Film film = films.get(like.filmId());
+                if (film != null) {
+                    film.addLike(like.userId());
+                }
+            }
+            case LikeDeleted like -> {
+                Film film = films.get(like.filmId());
+                if (film != null) {
+                    film.removeLike(like.userId());
+                }
+            }
+            // Лайки удаленного фильма уходят вместе с ним, обратный индекс строится в recovered
+            case FilmDeleted deleted -> films.remove(deleted.filmId());
+            case FilmsCleared ignored -> clearState();
+            default -> throw new IllegalArgumentException("Запись журнала не относится к фильмам: " + record);
+        }
+    }
+
+    // Замена полей фильма с сохранением его лайков, возвращает прежнюю версию фильма
+    private Film restoreFilm(Film film) {
+        Film previous = films.get(film.getId());
+        if (previous != null) {
+            film.takeLikes(previous);
+        }
+        films.put(film.getId(), film);
+        nextId.accumulateAndGet(film.getId(), Math::max);
+        return previous;
+    }
+
+    @Override
+    public void recovered() {
+        // Рейтинг и индексы при восстановлении не ведутся, а строятся один раз по итоговому состоянию
+        popularityIndex.clear();
+        releaseDateIndex.clear();
+        durationIndex.clear();
+        films.values().forEach(film -> {
+            popularityIndex.update(film.getId(), film.getLikesCount());
+            indexFilm(film.getId(), null, film);
+        });
+        rebuildLikedFilms();
+    }
+
+    // Пары (пользователь, фильм) сортируются одним массивом, после чего фильмы каждого пользователя
+    // идут подряд и по возрастанию - так быстрее, чем вставлять лайки в индекс по одному
+    private void rebuildLikedFilms() {
+        likedFilms.clear();
+        long[] pairs = new long[films.values().stream().mapToInt(Film::getLikesCount).sum()];
+        int count = 0;
+        for (Film film : films.values()) {
+            for (int userId : film.getLikes().toArray()) {
+                pairs[count++] = (long) userId << 32 | film.getId();
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+        int start = 0;
+        while (start < count) {
+            int userId = (int) (pairs[start] >>> 32);
+            int end = start;
+            while (end < count && (int) (pairs[end] >>> 32) == userId) {
+                end++;
+            }
+            int[] filmIds = new int[end - start];
+            for (int i = start; i < end; i++) {
+                filmIds[i - start] = (int) pairs[i];
+            }
+            likedFilms.put(userId, IntSortedSet.ofSorted(filmIds));
+            start = end;
+        }
+    }
+
+    @Override
+    public <T> T quiesce(Supplier<T> action) {
+        return filmLocks.lockedAll(() -> userLocks.lockedAll(action));
+    }
+
+    @Override
+    public void writeSnapshot(SnapshotOutput out) throws IOException {
+        out.writeVarInt(nextId.get());
+        for (Integer id : films.keySet()) {
+            FilmSnapshot snapshot = filmLocks.locked(id, () -> {
+                Film film = films.get(id);
+                return film == null ? null : new FilmSnapshot(FilmSaved.of(film), film.getLikes().toArray());
+            });
+            if (snapshot == null) {
+                continue;
+            }
+            FilmSaved film = snapshot.film();
+            out.writeBoolean(true);
+            out.writeVarInt(film.id());
+            out.writeString(film.name());
+            out.writeString(film.description());
+            out.writeDate(film.releaseDate());
+            out.writeVarLong(film.duration());
+            out.writeIds(snapshot.likes());
+        }
+        out.writeBoolean(false);
+    }
+
+    @Override
+    public void readSnapshot(SnapshotInput in) throws IOException {
+        nextId.set(in.readVarInt());
+        while (in.readBoolean()) {
+            Film film = new FilmSaved(in.readVarInt(), in.readString(), in.readString(), in.readDate(),
+                    in.readVarLong()).toFilm();
+            for (int userId : in.readIds()) {
+                film.addLike(userId);
+            }
+            films.put(film.getId(), film);
+        }
+    }
+
+    private record FilmSnapshot(FilmSaved film, int[] likes) {
+    }
 }
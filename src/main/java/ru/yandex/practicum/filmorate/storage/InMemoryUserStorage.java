@@ -1,46 +1,151 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.annotation.Timed;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.collections.IntSortedSet;
 import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
 import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserSaved;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UsersCleared;
+import ru.yandex.practicum.filmorate.storage.journal.JournaledStorage;
+import ru.yandex.practicum.filmorate.storage.journal.MutationLog;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotInput;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotOutput;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+@Timed(value = "filmorate.storage", description = "Время выполнения операций хранилищ")
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 @NoArgsConstructor
 @Getter
-public class InMemoryUserStorage implements UserStorage {
+public class InMemoryUserStorage implements UserStorage, JournaledStorage {
 
-    public static int nextId = 0;
-    private final HashMap<Integer, User> users = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger nextId = new AtomicInteger();
+    // Упорядочено по id: на этом основана постраничная выдача
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    // Уникальный индекс email -> id пользователя
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentMap<String, Integer> emailIndex = new ConcurrentHashMap<>();
+    // Вторичные индексы для выборки по диапазонам полей, ведутся под блокировкой пользователя
+    @Getter(AccessLevel.NONE)
+    private final SecondaryIndex<User, LocalDate> birthdayIndex = new SecondaryIndex<>(User::getBirthday);
+    @Getter(AccessLevel.NONE)
+    private final SecondaryIndex<User, MonthDay> birthdayInYearIndex =
+            new SecondaryIndex<>(user -> MonthDay.from(user.getBirthday()));
+    // Блокировки пользователей для согласованного изменения дружбы с обеих сторон
+    @Getter(AccessLevel.NONE)
+    private final StripedLocks locks = new StripedLocks();
+    // Каждое изменение записывается в журнал под блокировкой пользователя до изменения состояния
+    @Getter(AccessLevel.NONE)
+    private volatile MutationLog journal = MutationLog.NONE;
+    private final VersionCounters versions = new VersionCounters();
 
     @Override
     public User addUser(User user) {
-        nextId++;
-        user.setId(nextId);
-        users.put(user.getId(), validateUser(user));
+        MutationLog journal = this.journal;
+        user.setId(nextId.incrementAndGet());
+        user.setFriends(new IntSortedSet());
+        journal.awaitDurable(putUser(journal, validateUser(user)));
         log.info("Добавлен пользователь {}", users.get(user.getId()));
         return users.get(user.getId());
     }
 
+    // id новых пользователей заранее неизвестны, поэтому пакет берет блокировки всех пользователей один раз
+    @Override
+    public List<User> addUsers(List<User> newUsers) {
+        MutationLog journal = this.journal;
+        long position = locks.lockedAll(() -> {
+            long appended = 0;
+            for (User user : newUsers) {
+                if (emailIndex.containsKey(user.getEmail())) {
+                    user.setId(0);
+                    continue;
+                }
+                user.setId(nextId.incrementAndGet());
+                user.setFriends(new IntSortedSet());
+                try {
+                    appended = storeUser(journal, validateUser(user));
+                } catch (CustomValidationExpression e) {
+                    // email успели занять параллельным запросом
+                    user.setId(0);
+                }
+            }
+            return appended;
+        });
+        journal.awaitDurable(position);
+        log.info("Добавлено пользователей пакетом: {} из {}",
+                newUsers.stream().filter(user -> user.getId() != 0).count(), newUsers.size());
+        return newUsers;
+    }
+
+    private long putUser(MutationLog journal, User user) {
+        return locks.locked(user.getId(), () -> storeUser(journal, user));
+    }
+
+    // Вызывается под блокировкой пользователя
+    private long storeUser(MutationLog journal, User user) {
+        long position = journal.append(UserSaved.of(user));
+        users.put(user.getId(), user);
+        indexUser(user.getId(), null, user);
+        versions.changed(user.getId());
+        return position;
+    }
+
     @Override
     public User updateUser(int id, User user) {
+        MutationLog journal = this.journal;
+        user.setId(id);
         User updatedUser = validateUser(user);
-        updatedUser.setId(id);
-        users.put(id, updatedUser);
+        long position = locks.locked(id, () -> {
+            User previous = users.get(id);
+            if (previous == null) {
+                emailIndex.remove(updatedUser.getEmail(), id);
+                throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", id));
+            }
+            long appended = journal.append(UserSaved.of(updatedUser));
+            // Друзья меняются только через addFriend/deleteFriend и при изменении пользователя не теряются
+            updatedUser.setFriends(previous.getFriends());
+            users.put(id, updatedUser);
+            indexUser(id, previous, updatedUser);
+            emailIndex.remove(previous.getEmail(), id);
+            versions.changed(id);
+            return appended;
+        });
+        journal.awaitDurable(position);
         log.info("Изменен пользователь {}", users.get(id));
         return users.get(user.getId());
     }
 
+    // Резервирует email пользователя в индексе, поэтому вызывается после присвоения id
     private User validateUser(User user) {
-        User finalUser = user;
-        if (users.values().stream().anyMatch(user1 -> user1.getEmail().equals(finalUser.getEmail()))) {
+        if (emailIndex.putIfAbsent(user.getEmail(), user.getId()) != null) {
             throw new CustomValidationExpression("Email должен быть уникальным");
         }
         if (user.getName() == null || user.getName().isEmpty()) {
@@ -54,19 +159,321 @@ public class InMemoryUserStorage implements UserStorage {
         return users.values().stream().toList();
     }
 
+    @Override
+    public List<User> getMany(Collection<Integer> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, users.size()));
+        for (User user : users.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        users.values().forEach(action);
+    }
+
+    @Override
+    public List<User> findUsers(KeyRange<LocalDate> birthday, KeyRange<MonthDay> birthdayInYear, int afterId,
+                                int limit) {
+        return SecondaryIndex.select(List.of(birthdayIndex.where(birthday), birthdayInYearIndex.where(birthdayInYear)),
+                users::get, afterId, limit);
+    }
+
+    private void indexUser(int id, User previous, User current) {
+        birthdayIndex.update(id, previous, current);
+        birthdayInYearIndex.update(id, previous, current);
+    }
+
     @Override
     public User getUser(int id) {
-        if (!users.containsKey(id)) {
+        User user = users.get(id);
+        if (user == null) {
             throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", id));
-        } else {
-            return users.get(id);
         }
+        return user;
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        Integer id = emailIndex.get(email);
+        if (id == null) {
+            throw new IdNotFoundException(String.format("Пользователь с email=%s не найден", email));
+        }
+        return users.get(id);
+    }
+
+    @Override
+    public User deleteUser(int id) {
+        MutationLog journal = this.journal;
+        while (true) {
+            // Блокируются пользователь и все его друзья: у каждого из них меняется список друзей
+            int[] friends = getFriendIds(id);
+            int[] ids = Arrays.copyOf(friends, friends.length + 1);
+            ids[friends.length] = id;
+            DeletedUser deleted = locks.locked(ids, () -> {
+                User user = getUser(id);
+                // Друзья изменились до захвата блокировок - нужно блокировать другой набор
+                if (!Arrays.equals(user.getFriends().toArray(), friends)) {
+                    return null;
+                }
+                long appended = journal.append(new UserDeleted(id));
+                removeUser(user);
+                indexUser(id, user, null);
+                versions.changed(id);
+                versions.changed(Arrays.stream(friends).boxed().toList());
+                return new DeletedUser(user, appended);
+            });
+            if (deleted != null) {
+                journal.awaitDurable(deleted.position());
+                log.info("Удален пользователь {}", deleted.user());
+                return deleted.user();
+            }
+        }
+    }
+
+    // Дружба хранится с обеих сторон, поэтому пользователь убирается только из множеств своих друзей
+    private void removeUser(User user) {
+        users.remove(user.getId());
+        user.getFriends().forEach(friendId -> {
+            User friend = users.get(friendId);
+            if (friend != null) {
+                friend.getFriends().remove(user.getId());
+            }
+        });
+        emailIndex.remove(user.getEmail(), user.getId());
+    }
+
+    @Override
+    public boolean addFriend(int id, int friendId) {
+        MutationLog journal = this.journal;
+        long position = locks.locked(id, friendId, () -> {
+            requireBoth(id, friendId);
+            // Дружба всегда взаимна, поэтому достаточно проверить одну сторону
+            if (users.get(id).getFriends().contains(friendId)) {
+                return -1L;
+            }
+            long appended = journal.append(new FriendAdded(id, friendId));
+            users.get(id).getFriends().add(friendId);
+            users.get(friendId).getFriends().add(id);
+            versions.changed(id, friendId);
+            return appended;
+        });
+        journal.awaitDurable(position);
+        return position >= 0;
+    }
+
+    @Override
+    public void addFriends(List<Friendship> friendships) {
+        MutationLog journal = this.journal;
+        long position = locks.lockedAll(() -> {
+            long appended = 0;
+            for (Friendship friendship : friendships) {
+                User user = users.get(friendship.getUserId());
+                User friend = users.get(friendship.getFriendId());
+                // Пользователь мог быть удален после проверки в сервисе
+                if (user == null || friend == null) {
+                    continue;
+                }
+                if (!user.getFriends().contains(friendship.getFriendId())) {
+                    appended = journal.append(new FriendAdded(friendship.getUserId(), friendship.getFriendId()));
+                    user.getFriends().add(friendship.getFriendId());
+                    friend.getFriends().add(friendship.getUserId());
+                    versions.changed(friendship.getUserId(), friendship.getFriendId());
+                }
+            }
+            return appended;
+        });
+        journal.awaitDurable(position);
+        log.info("Добавлено дружб пакетом: {}", friendships.size());
+    }
+
+    @Override
+    public boolean deleteFriend(int id, int friendId) {
+        MutationLog journal = this.journal;
+        long position = locks.locked(id, friendId, () -> {
+            requireBoth(id, friendId);
+            if (!users.get(id).getFriends().contains(friendId)) {
+                return -1L;
+            }
+            long appended = journal.append(new FriendDeleted(id, friendId));
+            users.get(id).getFriends().remove(friendId);
+            users.get(friendId).getFriends().remove(id);
+            versions.changed(id, friendId);
+            return appended;
+        });
+        journal.awaitDurable(position);
+        return position >= 0;
+    }
+
+    // Пользователь мог быть удален после проверки в сервисе
+    private void requireBoth(int id, int friendId) {
+        if (!users.containsKey(id) || !users.containsKey(friendId)) {
+            throw new IdNotFoundException("Один из пользователей не найден");
+        }
+    }
+
+    @Override
+    public int[] getFriendIds(int id) {
+        User user = getUser(id);
+        return locks.locked(id, () -> user.getFriends().toArray());
+    }
+
+    @Override
+    public int[] getCommonFriendIds(int id, int otherId) {
+        User user = getUser(id);
+        User other = getUser(otherId);
+        return locks.locked(id, otherId, () -> IntSortedSet.intersect(user.getFriends(), other.getFriends()));
+    }
+
+    @Override
+    public int countCommonFriends(int id, int otherId) {
+        User user = getUser(id);
+        User other = getUser(otherId);
+        return locks.locked(id, otherId, () -> IntSortedSet.intersectionSize(user.getFriends(), other.getFriends()));
     }
 
     @Override
     public List<User> clearUsers() {
-        users.clear();
-        nextId = 0;
+        MutationLog journal = this.journal;
+        long position = locks.lockedAll(() -> {
+            long appended = journal.append(new UsersCleared());
+            clearState();
+            versions.changedAll();
+            return appended;
+        });
+        journal.awaitDurable(position);
         return users.values().stream().toList();
     }
+
+    private void clearState() {
+        users.clear();
+        emailIndex.clear();
+        birthdayIndex.clear();
+        birthdayInYearIndex.clear();
+        nextId.set(0);
+    }
+
+    @Override
+    public String getJournalName() {
+        return "users";
+    }
+
+    @Override
+    public void attachJournal(MutationLog journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void apply(JournalRecord record) {
+        switch (record) {
+            case UserSaved saved -> restoreUser(saved.toUser());
+            case FriendAdded friendship -> {
+                User user = users.get(friendship.userId());
+                User friend = users.get(friendship.friendId());
+                if (user != null && friend != null) {
+                    user.getFriends().add(friend.getId());
+                    friend.getFriends().add(user.getId());
+                }
+            }
+            case FriendDeleted friendship -> {
+                User user = users.get(friendship.userId());
+                User friend = users.get(friendship.friendId());
+                if (user != null) {
+                    user.getFriends().remove(friendship.friendId());
+                }
+                if (friend != null) {
+                    friend.getFriends().remove(friendship.userId());
+                }
+            }
+            case UserDeleted deleted -> {
+                User user = users.get(deleted.userId());
+                if (user != null) {
+                    removeUser(user);
+                }
+            }
+            case UsersCleared ignored -> clearState();
+            default -> throw new IllegalArgumentException("Запись журнала не относится к пользователям: " + record);
+        }
+    }
+
+    // Замена полей пользователя с сохранением его друзей, email в индексе переносится без проверки
+    private void restoreUser(User user) {
+        User previous = users.put(user.getId(), user);
+        user.setFriends(previous == null ? new IntSortedSet() : previous.getFriends());
+        if (previous != null) {
+            emailIndex.remove(previous.getEmail(), user.getId());
+        }
+        emailIndex.put(user.getEmail(), user.getId());
+        nextId.accumulateAndGet(user.getId(), Math::max);
+    }
+
+    // Индексы при восстановлении не ведутся, а строятся один раз по итоговому состоянию
+    @Override
+    public void recovered() {
+        birthdayIndex.clear();
+        birthdayInYearIndex.clear();
+        users.values().forEach(user -> indexUser(user.getId(), null, user));
+    }
+
+    @Override
+    public <T> T quiesce(Supplier<T> action) {
+        return locks.lockedAll(action);
+    }
+
+    @Override
+    public void writeSnapshot(SnapshotOutput out) throws IOException {
+        out.writeVarInt(nextId.get());
+        for (Integer id : users.keySet()) {
+            UserSnapshot snapshot = locks.locked(id, () -> {
+                User user = users.get(id);
+                return user == null ? null : new UserSnapshot(UserSaved.of(user), user.getFriends().toArray());
+            });
+            if (snapshot == null) {
+                continue;
+            }
+            UserSaved user = snapshot.user();
+            out.writeBoolean(true);
+            out.writeVarInt(user.id());
+            out.writeString(user.name());
+            out.writeDate(user.birthday());
+            out.writeString(user.login());
+            out.writeString(user.email());
+            out.writeIds(snapshot.friends());
+        }
+        out.writeBoolean(false);
+    }
+
+    @Override
+    public void readSnapshot(SnapshotInput in) throws IOException {
+        nextId.set(in.readVarInt());
+        while (in.readBoolean()) {
+            User user = new UserSaved(in.readVarInt(), in.readString(), in.readDate(), in.readString(),
+                    in.readString()).toUser();
+            user.setFriends(IntSortedSet.ofSorted(in.readIds()));
+            users.put(user.getId(), user);
+            emailIndex.put(user.getEmail(), user.getId());
+        }
+    }
+
+    private record UserSnapshot(UserSaved user, int[] friends) {
+    }
+
+    private record DeletedUser(User user, long position) {
+    }
 }
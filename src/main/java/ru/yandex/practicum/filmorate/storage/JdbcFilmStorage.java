@@ -0,0 +1,312 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище фильмов в БД. Лайки хранятся в таблице связей film_likes,
+ * их количество - в столбце films.likes_count, который меняется вместе с лайками
+ */
+@Timed(value = "filmorate.storage", description = "Время выполнения операций хранилищ")
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+@Slf4j
+public class JdbcFilmStorage implements FilmStorage {
+
+    private static final String SELECT_FILMS =
+            "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.likes_count FROM films f ";
+    private static final String INSERT_FILM =
+            "INSERT INTO films (id, name, description, release_date, duration) VALUES (?, ?, ?, ?, ?)";
+    // Повторный лайк не вставляется и не считается добавленным
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+    private static final String ADD_LIKES_COUNT = "UPDATE films SET likes_count = likes_count + ? WHERE id = ?";
+    // Префикс индекса films_popular_idx; фильмы без лайков замыкают рейтинг в порядке id
+    private static final String SELECT_POPULAR = "SELECT id FROM films ORDER BY likes_count DESC, id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final Map<Integer, Film> films;
+    private final VersionCounters versions = new VersionCounters();
+    // Вызывается в транзакции изменения лайка, пока строка фильма заблокирована обновлением likes_count
+    private volatile LikeListener likeListener = LikeListener.NONE;
+
+    public JdbcFilmStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.films = new EntityMapView<>(this::getFilm, this::exists,
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class),
+                this::getAllFilms, Film::getId);
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        film.setId(nextIds(1).getFirst());
+        insert(List.of(film));
+        versions.changed(film.getId());
+        log.info("Добавлен фильм {}", film);
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> newFilms) {
+        List<Integer> ids = nextIds(newFilms.size());
+        for (int i = 0; i < newFilms.size(); i++) {
+            newFilms.get(i).setId(ids.get(i));
+        }
+        insert(newFilms);
+        JdbcSupport.afterCommit(() -> versions.changed(ids));
+        log.info("Добавлено фильмов пакетом: {}", newFilms.size());
+        return newFilms;
+    }
+
+    private void insert(List<Film> newFilms) {
+        jdbcTemplate.batchUpdate(INSERT_FILM, newFilms, newFilms.size(), (statement, film) -> {
+            statement.setInt(1, film.getId());
+            statement.setString(2, film.getName());
+            statement.setString(3, film.getDescription());
+            statement.setObject(4, film.getReleaseDate());
+            statement.setLong(5, film.getDuration());
+        });
+        newFilms.forEach(film -> film.setStoredLikesCount(0));
+    }
+
+    @Override
+    public Film updateFilm(int id, Film film) {
+        int updatedRows = jdbcTemplate.update(
+                "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ? WHERE id = ?",
+                film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), id);
+        if (updatedRows == 0) {
+            throw new IdNotFoundException(String.format("Фильм с id=%d не найден", id));
+        }
+        versions.changed(id);
+        Film updated = getFilm(id);
+        log.info("Изменен фильм {}", updated);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteFilm(int id) {
+        jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ?", id);
+        boolean deleted = jdbcTemplate.update("DELETE FROM films WHERE id = ?", id) > 0;
+        if (deleted) {
+            JdbcSupport.afterCommit(() -> versions.changed(id));
+            log.info("Удален фильм с id={}", id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return jdbcTemplate.query(SELECT_FILMS + "ORDER BY f.id", JdbcFilmStorage::mapFilm);
+    }
+
+    @Override
+    public List<Film> getMany(Collection<Integer> ids) {
+        Map<Integer, Film> found = new HashMap<>();
+        for (List<Integer> chunk : JdbcSupport.partition(ids)) {
+            namedJdbcTemplate.query(SELECT_FILMS + "WHERE f.id IN (:ids)", Map.of("ids", chunk),
+                    JdbcFilmStorage::mapFilm).forEach(film -> found.put(film.getId(), film));
+        }
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film film = found.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return jdbcTemplate.query(SELECT_FILMS + "WHERE f.id > ? ORDER BY f.id LIMIT ?", JdbcFilmStorage::mapFilm,
+                afterId, limit);
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        // Постранично, чтобы не держать всю таблицу в памяти
+        int afterId = 0;
+        List<Film> page;
+        do {
+            page = getFilmsPage(afterId, JdbcSupport.PAGE_SIZE);
+            page.forEach(action);
+            afterId = page.isEmpty() ? afterId : page.getLast().getId();
+        } while (page.size() == JdbcSupport.PAGE_SIZE);
+    }
+
+    // Отбор по индексам films_release_date_idx и films_duration_idx выполняет БД
+    @Override
+    public List<Film> findFilms(KeyRange<LocalDate> releaseDate, KeyRange<Long> duration, int afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_FILMS).append("WHERE f.id > ?");
+        List<Object> args = new ArrayList<>(List.of(afterId));
+        JdbcSupport.appendRange(sql, args, "f.release_date", releaseDate);
+        JdbcSupport.appendRange(sql, args, "f.duration", duration);
+        sql.append(" ORDER BY f.id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), JdbcFilmStorage::mapFilm, args.toArray());
+    }
+
+    @Override
+    @Transactional
+    public List<Film> clearFilms() {
+        jdbcTemplate.update("DELETE FROM film_likes");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("ALTER SEQUENCE film_ids RESTART WITH 1");
+        JdbcSupport.afterCommit(versions::changedAll);
+        return List.of();
+    }
+
+    @Override
+    public Map<Integer, Film> getFilms() {
+        return films;
+    }
+
+    @Override
+    public VersionCounters getVersions() {
+        return versions;
+    }
+
+    @Override
+    public void setLikeListener(LikeListener listener) {
+        this.likeListener = listener;
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        boolean added;
+        try {
+            added = jdbcTemplate.update(INSERT_LIKE, filmId, userId, filmId, userId) > 0;
+        } catch (DuplicateKeyException e) {
+            // Тот же лайк успели вставить параллельным запросом
+            added = false;
+        }
+        if (added) {
+            jdbcTemplate.update(ADD_LIKES_COUNT, 1, filmId);
+            likeListener.likeAdded(filmId, userId);
+            JdbcSupport.afterCommit(() -> versions.changed(filmId));
+        }
+        return added;
+    }
+
+    @Override
+    @Transactional
+    public List<FilmLike> addLikes(List<FilmLike> likes) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_LIKE, likes, likes.size(), (statement, like) -> {
+            statement.setInt(1, like.getFilmId());
+            statement.setInt(2, like.getUserId());
+            statement.setInt(3, like.getFilmId());
+            statement.setInt(4, like.getUserId());
+        });
+        // Повторный лайк не вставляется: по числу вставленных строк видно, какие лайки новые
+        List<FilmLike> added = new ArrayList<>(likes.size());
+        Map<Integer, Integer> addedCounts = new HashMap<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    FilmLike like = likes.get(index);
+                    added.add(like);
+                    addedCounts.merge(like.getFilmId(), 1, Integer::sum);
+                }
+                index++;
+            }
+        }
+        List<Map.Entry<Integer, Integer>> increments = new ArrayList<>(addedCounts.entrySet());
+        jdbcTemplate.batchUpdate(ADD_LIKES_COUNT, increments, increments.size(), (statement, increment) -> {
+            statement.setInt(1, increment.getValue());
+            statement.setInt(2, increment.getKey());
+        });
+        likeListener.likesAdded(added);
+        List<Integer> changedFilms = likes.stream().map(FilmLike::getFilmId).distinct().toList();
+        JdbcSupport.afterCommit(() -> versions.changed(changedFilms));
+        log.info("Добавлено лайков пакетом: {}", likes.size());
+        return added;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteLike(int filmId, int userId) {
+        boolean deleted =
+                jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", filmId, userId) > 0;
+        if (deleted) {
+            jdbcTemplate.update(ADD_LIKES_COUNT, -1, filmId);
+            likeListener.likeDeleted(filmId, userId);
+            JdbcSupport.afterCommit(() -> versions.changed(filmId));
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Integer> getLikedFilmIds(int userId) {
+        return jdbcTemplate.queryForList("SELECT film_id FROM film_likes WHERE user_id = ? ORDER BY film_id",
+                Integer.class, userId);
+    }
+
+    // Фильмы пользователя находятся по индексу film_likes_user_idx
+    @Override
+    @Transactional
+    public List<Integer> deleteUserLikes(int userId) {
+        List<Integer> changed = getLikedFilmIds(userId);
+        jdbcTemplate.update(JdbcSupport.UNCOUNT_USER_LIKES, userId);
+        jdbcTemplate.update("DELETE FROM film_likes WHERE user_id = ?", userId);
+        changed.forEach(filmId -> likeListener.likeDeleted(filmId, userId));
+        JdbcSupport.afterCommit(() -> versions.changed(changed));
+        return changed;
+    }
+
+    @Override
+    public List<Integer> getPopularFilmIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество фильмов не может быть отрицательным: " + count);
+        }
+        return jdbcTemplate.queryForList(SELECT_POPULAR, Integer.class, count);
+    }
+
+    private Film getFilm(int id) {
+        return jdbcTemplate.query(SELECT_FILMS + "WHERE f.id = ?", JdbcFilmStorage::mapFilm, id).stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private boolean exists(int id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)",
+                Boolean.class, id));
+    }
+
+    private List<Integer> nextIds(int count) {
+        return jdbcTemplate.queryForList("SELECT NEXT VALUE FOR film_ids FROM SYSTEM_RANGE(1, ?)", Integer.class,
+                count);
+    }
+
+    private static Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film(rs.getString("name"), rs.getString("description"),
+                rs.getObject("release_date", LocalDate.class), rs.getLong("duration"));
+        film.setId(rs.getInt("id"));
+        film.setStoredLikesCount(rs.getInt("likes_count"));
+        return film;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Общие параметры запросов JDBC-хранилищ
+ */
+final class JdbcSupport {
+
+    // Размер страницы при обходе таблицы
+    static final int PAGE_SIZE = 1_000;
+    // Ограничение числа параметров в одном IN (...)
+    static final int IN_CHUNK = 1_000;
+    // Перед удалением лайков пользователя вычитает их из films.likes_count
+    static final String UNCOUNT_USER_LIKES = "UPDATE films SET likes_count = likes_count - 1 "
+            + "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+
+    private JdbcSupport() {
+    }
+
+    static List<List<Integer>> partition(Collection<Integer> ids) {
+        List<Integer> distinct = ids.stream().distinct().toList();
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += IN_CHUNK) {
+            chunks.add(distinct.subList(from, Math.min(from + IN_CHUNK, distinct.size())));
+        }
+        return chunks;
+    }
+
+    // Условие на диапазон значений столбца, границы добавляются в параметры запроса
+    static <K extends Comparable<? super K>> void appendRange(StringBuilder sql, List<Object> args, String column,
+                                                              KeyRange<K> range) {
+        if (range.from() != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            args.add(range.from());
+        }
+        if (range.to() != null) {
+            sql.append(" AND ").append(column).append(" <= ?");
+            args.add(range.to());
+        }
+    }
+
+    // Внутри транзакции действие откладывается до ее фиксации: версии данных нельзя увеличивать,
+    // пока изменение не видно другим соединениям, иначе читатель закэширует старые данные под новой версией
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
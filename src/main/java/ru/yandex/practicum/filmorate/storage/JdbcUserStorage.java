@@ -0,0 +1,392 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.collections.IntSortedSet;
+import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
+import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище пользователей в БД. Дружба хранится в таблице связей friendships двумя строками,
+ * друзья загружаются в пользователя отдельным запросом на всю выборку
+ */
+@Timed(value = "filmorate.storage", description = "Время выполнения операций хранилищ")
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+@Slf4j
+public class JdbcUserStorage implements UserStorage {
+
+    private static final String SELECT_USERS = "SELECT u.id, u.name, u.birthday, u.login, u.email FROM users u ";
+    private static final String INSERT_USER =
+            "INSERT INTO users (id, name, birthday, login, email) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+    private static final String DELETE_FRIENDSHIP = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
+    // Общие друзья - соединение двух префиксов первичного ключа friendships
+    private static final String SELECT_COMMON_FRIENDS = "FROM friendships a "
+            + "JOIN friendships b ON b.friend_id = a.friend_id AND b.user_id = ? "
+            + "WHERE a.user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final Map<Integer, User> users;
+    private final VersionCounters versions = new VersionCounters();
+
+    public JdbcUserStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.users = new EntityMapView<>(this::findUser, this::exists,
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class),
+                this::getAllUsers, User::getId);
+    }
+
+    @Override
+    public User addUser(User user) {
+        user.setId(nextIds(1).getFirst());
+        user.setFriends(new IntSortedSet());
+        insert(List.of(validateUser(user)));
+        versions.changed(user.getId());
+        log.info("Добавлен пользователь {}", user);
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<User> addUsers(List<User> newUsers) {
+        Set<String> taken = findEmails(newUsers.stream().map(User::getEmail).toList());
+        List<User> accepted = new ArrayList<>(newUsers.size());
+        for (User user : newUsers) {
+            // Повтор email внутри пакета тоже не добавляется
+            if (!taken.add(user.getEmail())) {
+                user.setId(0);
+                continue;
+            }
+            accepted.add(user);
+        }
+        List<Integer> ids = nextIds(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            User user = accepted.get(i);
+            user.setId(ids.get(i));
+            user.setFriends(new IntSortedSet());
+            if (user.getName() == null || user.getName().isEmpty()) {
+                user.setName(user.getLogin());
+            }
+        }
+        insert(accepted);
+        JdbcSupport.afterCommit(() -> versions.changed(ids));
+        log.info("Добавлено пользователей пакетом: {} из {}", accepted.size(), newUsers.size());
+        return newUsers;
+    }
+
+    private void insert(List<User> newUsers) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_USER, newUsers, newUsers.size(), (statement, user) -> {
+                statement.setInt(1, user.getId());
+                statement.setString(2, user.getName());
+                statement.setObject(3, user.getBirthday());
+                statement.setString(4, user.getLogin());
+                statement.setString(5, user.getEmail());
+            });
+        } catch (DuplicateKeyException e) {
+            // email успели занять параллельным запросом
+            throw new CustomValidationExpression("Email должен быть уникальным");
+        }
+    }
+
+    @Override
+    public User updateUser(int id, User user) {
+        user.setId(id);
+        validateUser(user);
+        int updatedRows;
+        try {
+            updatedRows = jdbcTemplate.update("UPDATE users SET name = ?, birthday = ?, login = ?, email = ? WHERE id = ?",
+                    user.getName(), user.getBirthday(), user.getLogin(), user.getEmail(), id);
+        } catch (DuplicateKeyException e) {
+            throw new CustomValidationExpression("Email должен быть уникальным");
+        }
+        if (updatedRows == 0) {
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", id));
+        }
+        versions.changed(id);
+        User updated = findUser(id);
+        log.info("Изменен пользователь {}", updated);
+        return updated;
+    }
+
+    private User validateUser(User user) {
+        if (!findEmails(List.of(user.getEmail())).isEmpty()) {
+            throw new CustomValidationExpression("Email должен быть уникальным");
+        }
+        if (user.getName() == null || user.getName().isEmpty()) {
+            user.setName(user.getLogin());
+        }
+        return user;
+    }
+
+    private Set<String> findEmails(List<String> emails) {
+        Set<String> found = new HashSet<>();
+        for (int from = 0; from < emails.size(); from += JdbcSupport.IN_CHUNK) {
+            List<String> chunk = emails.subList(from, Math.min(from + JdbcSupport.IN_CHUNK, emails.size()));
+            found.addAll(namedJdbcTemplate.queryForList("SELECT email FROM users WHERE email IN (:emails)",
+                    Map.of("emails", chunk), String.class));
+        }
+        return found;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return withFriends(jdbcTemplate.query(SELECT_USERS + "ORDER BY u.id", JdbcUserStorage::mapUser));
+    }
+
+    @Override
+    public List<User> getMany(Collection<Integer> ids) {
+        Map<Integer, User> found = new HashMap<>();
+        for (List<Integer> chunk : JdbcSupport.partition(ids)) {
+            namedJdbcTemplate.query(SELECT_USERS + "WHERE u.id IN (:ids)", Map.of("ids", chunk),
+                    JdbcUserStorage::mapUser).forEach(user -> found.put(user.getId(), user));
+        }
+        List<User> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        withFriends(new ArrayList<>(found.values()));
+        return result;
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        return withFriends(jdbcTemplate.query(SELECT_USERS + "WHERE u.id > ? ORDER BY u.id LIMIT ?",
+                JdbcUserStorage::mapUser, afterId, limit));
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        int afterId = 0;
+        List<User> page;
+        do {
+            page = getUsersPage(afterId, JdbcSupport.PAGE_SIZE);
+            page.forEach(action);
+            afterId = page.isEmpty() ? afterId : page.getLast().getId();
+        } while (page.size() == JdbcSupport.PAGE_SIZE);
+    }
+
+    // День рождения в году хранится вычисляемым столбцом birthday_md = месяц * 100 + день,
+    // по нему и по birthday построены индексы
+    @Override
+    public List<User> findUsers(KeyRange<LocalDate> birthday, KeyRange<MonthDay> birthdayInYear, int afterId,
+                                int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_USERS).append("WHERE u.id > ?");
+        List<Object> args = new ArrayList<>(List.of(afterId));
+        JdbcSupport.appendRange(sql, args, "u.birthday", birthday);
+        JdbcSupport.appendRange(sql, args, "u.birthday_md", KeyRange.of(monthDayCode(birthdayInYear.from()),
+                monthDayCode(birthdayInYear.to())));
+        sql.append(" ORDER BY u.id LIMIT ?");
+        args.add(limit);
+        return withFriends(jdbcTemplate.query(sql.toString(), JdbcUserStorage::mapUser, args.toArray()));
+    }
+
+    private static Integer monthDayCode(MonthDay monthDay) {
+        return monthDay == null ? null : monthDay.getMonthValue() * 100 + monthDay.getDayOfMonth();
+    }
+
+    // Один запрос друзей на каждые IN_CHUNK пользователей вместо запроса на пользователя
+    private List<User> withFriends(List<User> loaded) {
+        Map<Integer, User> byId = new HashMap<>();
+        loaded.forEach(user -> byId.put(user.getId(), user));
+        for (List<Integer> chunk : JdbcSupport.partition(byId.keySet())) {
+            namedJdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids) "
+                            + "ORDER BY user_id, friend_id", Map.of("ids", chunk),
+                    rs -> {
+                        byId.get(rs.getInt("user_id")).getFriends().add(rs.getInt("friend_id"));
+                    });
+        }
+        return loaded;
+    }
+
+    @Override
+    @Transactional
+    public List<User> clearUsers() {
+        jdbcTemplate.update("DELETE FROM film_likes");
+        jdbcTemplate.update("UPDATE films SET likes_count = 0 WHERE likes_count <> 0");
+        jdbcTemplate.update("DELETE FROM friendships");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("ALTER SEQUENCE user_ids RESTART WITH 1");
+        JdbcSupport.afterCommit(versions::changedAll);
+        return List.of();
+    }
+
+    @Override
+    public Map<Integer, User> getUsers() {
+        return users;
+    }
+
+    @Override
+    public VersionCounters getVersions() {
+        return versions;
+    }
+
+    @Override
+    public User getUser(int id) {
+        User user = findUser(id);
+        if (user == null) {
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", id));
+        }
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public User deleteUser(int id) {
+        User user = getUser(id);
+        int[] friends = user.getFriends().toArray();
+        // Обратные строки дружбы находятся по друзьям пользователя, а не обходом всей таблицы
+        for (int friendId : friends) {
+            jdbcTemplate.update(DELETE_FRIENDSHIP, friendId, id);
+        }
+        jdbcTemplate.update("DELETE FROM friendships WHERE user_id = ?", id);
+        // Лайки удаляются сервисом через FilmStorage заранее, здесь - только оставшиеся из-за гонки
+        jdbcTemplate.update(JdbcSupport.UNCOUNT_USER_LIKES, id);
+        jdbcTemplate.update("DELETE FROM film_likes WHERE user_id = ?", id);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+        JdbcSupport.afterCommit(() -> {
+            versions.changed(id);
+            versions.changed(Arrays.stream(friends).boxed().toList());
+        });
+        log.info("Удален пользователь {}", user);
+        return user;
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        List<User> found = jdbcTemplate.query(SELECT_USERS + "WHERE u.email = ?", JdbcUserStorage::mapUser, email);
+        if (found.isEmpty()) {
+            throw new IdNotFoundException(String.format("Пользователь с email=%s не найден", email));
+        }
+        return withFriends(found).getFirst();
+    }
+
+    @Override
+    @Transactional
+    public boolean addFriend(int id, int friendId) {
+        // Дружба всегда взаимна, поэтому результат определяется по одной стороне
+        boolean added = insertFriendship(id, friendId) > 0;
+        insertFriendship(friendId, id);
+        if (added) {
+            JdbcSupport.afterCommit(() -> versions.changed(id, friendId));
+        }
+        return added;
+    }
+
+    private int insertFriendship(int id, int friendId) {
+        return jdbcTemplate.update(INSERT_FRIENDSHIP, id, friendId, id, friendId);
+    }
+
+    @Override
+    @Transactional
+    public void addFriends(List<Friendship> friendships) {
+        List<int[]> rows = new ArrayList<>(friendships.size() * 2);
+        for (Friendship friendship : friendships) {
+            rows.add(new int[]{friendship.getUserId(), friendship.getFriendId()});
+            rows.add(new int[]{friendship.getFriendId(), friendship.getUserId()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP, rows, rows.size(), (statement, row) -> {
+            statement.setInt(1, row[0]);
+            statement.setInt(2, row[1]);
+            statement.setInt(3, row[0]);
+            statement.setInt(4, row[1]);
+        });
+        List<Integer> changedUsers = rows.stream().map(row -> row[0]).distinct().toList();
+        JdbcSupport.afterCommit(() -> versions.changed(changedUsers));
+        log.info("Добавлено дружб пакетом: {}", friendships.size());
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteFriend(int id, int friendId) {
+        boolean deleted = jdbcTemplate.update(DELETE_FRIENDSHIP, id, friendId) > 0;
+        jdbcTemplate.update(DELETE_FRIENDSHIP, friendId, id);
+        if (deleted) {
+            JdbcSupport.afterCommit(() -> versions.changed(id, friendId));
+        }
+        return deleted;
+    }
+
+    @Override
+    public int[] getFriendIds(int id) {
+        requireUser(id);
+        return toArray(jdbcTemplate.queryForList(
+                "SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id", Integer.class, id));
+    }
+
+    @Override
+    public int[] getCommonFriendIds(int id, int otherId) {
+        requireUser(id);
+        requireUser(otherId);
+        return toArray(jdbcTemplate.queryForList("SELECT a.friend_id " + SELECT_COMMON_FRIENDS
+                + " ORDER BY a.friend_id", Integer.class, otherId, id));
+    }
+
+    @Override
+    public int countCommonFriends(int id, int otherId) {
+        requireUser(id);
+        requireUser(otherId);
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) " + SELECT_COMMON_FRIENDS, Integer.class, otherId, id);
+    }
+
+    private void requireUser(int id) {
+        if (!exists(id)) {
+            throw new IdNotFoundException(String.format("Пользователь с id=%d не найден", id));
+        }
+    }
+
+    private User findUser(int id) {
+        List<User> found = jdbcTemplate.query(SELECT_USERS + "WHERE u.id = ?", JdbcUserStorage::mapUser, id);
+        return found.isEmpty() ? null : withFriends(found).getFirst();
+    }
+
+    private boolean exists(int id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)",
+                Boolean.class, id));
+    }
+
+    private List<Integer> nextIds(int count) {
+        return jdbcTemplate.queryForList("SELECT NEXT VALUE FOR user_ids FROM SYSTEM_RANGE(1, ?)", Integer.class,
+                count);
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User(rs.getString("name"), rs.getObject("birthday", LocalDate.class), rs.getString("login"),
+                rs.getString("email"));
+        user.setId(rs.getInt("id"));
+        return user;
+    }
+}
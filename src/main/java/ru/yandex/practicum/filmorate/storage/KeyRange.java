@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Диапазон значений поля для выборки по вторичному индексу. Обе границы включаются,
+ * отсутствующая граница (null) не ограничивает диапазон
+ *
+ * @param from - нижняя граница или null
+ * @param to   - верхняя граница или null
+ */
+public record KeyRange<K extends Comparable<? super K>>(K from, K to) {
+
+    private static final KeyRange<?> ALL = new KeyRange<>(null, null);
+
+    public static <K extends Comparable<? super K>> KeyRange<K> of(K from, K to) {
+        return from == null && to == null ? all() : new KeyRange<>(from, to);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>> KeyRange<K> all() {
+        return (KeyRange<K>) ALL;
+    }
+
+    public boolean isBounded() {
+        return from != null || to != null;
+    }
+
+    // Нижняя граница больше верхней
+    public boolean isEmpty() {
+        return from != null && to != null && from.compareTo(to) > 0;
+    }
+
+    public boolean contains(K key) {
+        return (from == null || from.compareTo(key) <= 0) && (to == null || key.compareTo(to) <= 0);
+    }
+}
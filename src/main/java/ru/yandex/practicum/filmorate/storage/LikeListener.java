@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.List;
+
+/**
+ * Получатель изменений лайков.
+ * Хранилище вызывает его под той же блокировкой, под которой меняет лайк, поэтому изменения одного лайка
+ * приходят в порядке их записи: удаление лайка не может опередить его добавление.
+ * Получатель не должен обращаться к хранилищу и не должен надолго задерживать вызывающий поток
+ */
+public interface LikeListener {
+
+    LikeListener NONE = new LikeListener() {
+        @Override
+        public void likeAdded(int filmId, int userId) {
+        }
+
+        @Override
+        public void likesAdded(List<FilmLike> likes) {
+        }
+
+        @Override
+        public void likeDeleted(int filmId, int userId) {
+        }
+    };
+
+    void likeAdded(int filmId, int userId);
+
+    /**
+     * Пакет добавленных лайков
+     *
+     * @param likes - лайки, которых еще не было
+     */
+    void likesAdded(List<FilmLike> likes);
+
+    void likeDeleted(int filmId, int userId);
+}
@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Упорядоченный вторичный индекс по одному полю сущности: пары (значение поля, id) в порядке значения.
+ * Выборка диапазона значений стоит O(log n + m), где m - размер результата, вместо обхода всех сущностей.
+ * Изменения одной сущности должны выполняться под ее блокировкой; чтение не блокируется
+ * и может не увидеть сущность, значение поля которой меняется в этот момент.
+ */
+public class SecondaryIndex<T, K extends Comparable<? super K>> {
+
+    private final Function<T, K> key;
+    private final NavigableSet<Entry<K>> entries;
+
+    /**
+     * @param key - значение индексируемого поля сущности, не null
+     */
+    public SecondaryIndex(Function<T, K> key) {
+        this.key = key;
+        Comparator<Entry<K>> order = Comparator.<Entry<K>, K>comparing(Entry::key).thenComparingInt(Entry::id);
+        this.entries = new ConcurrentSkipListSet<>(order);
+    }
+
+    /**
+     * Перенос сущности в индексе после ее изменения
+     *
+     * @param id       - id сущности
+     * @param previous - прежняя версия сущности или null, если сущность новая
+     * @param current  - новая версия сущности или null, если сущность удалена
+     */
+    public void update(int id, T previous, T current) {
+        K previousKey = previous == null ? null : key.apply(previous);
+        K currentKey = current == null ? null : key.apply(current);
+        if (previousKey != null && previousKey.equals(currentKey)) {
+            return;
+        }
+        if (previousKey != null) {
+            entries.remove(new Entry<>(previousKey, id));
+        }
+        if (currentKey != null) {
+            entries.add(new Entry<>(currentKey, id));
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Условие выборки по этому индексу
+     *
+     * @param range - допустимые значения поля
+     * @return Condition условие для select
+     */
+    public Condition<T> where(KeyRange<K> range) {
+        return new Condition<>() {
+            @Override
+            public boolean isBounded() {
+                return range.isBounded();
+            }
+
+            @Override
+            public Iterator<Integer> ids() {
+                if (range.isEmpty()) {
+                    return Collections.emptyIterator();
+                }
+                NavigableSet<Entry<K>> selected = entries;
+                if (range.from() != null) {
+                    selected = selected.tailSet(new Entry<>(range.from(), Integer.MIN_VALUE), true);
+                }
+                if (range.to() != null) {
+                    selected = selected.headSet(new Entry<>(range.to(), Integer.MAX_VALUE), true);
+                }
+                Iterator<Entry<K>> iterator = selected.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Integer next() {
+                        return iterator.next().id();
+                    }
+                };
+            }
+
+            @Override
+            public boolean test(T entity) {
+                return range.contains(key.apply(entity));
+            }
+        };
+    }
+
+    /**
+     * Выборка сущностей, удовлетворяющих всем условиям, по возрастанию id.
+     * Диапазоны индексов обходятся поочередно по одному элементу, пока один из них не закончится:
+     * его id становятся кандидатами, а остальные условия проверяются по самой сущности.
+     * Так стоимость определяется самым узким диапазоном и не требует статистики по индексам.
+     * Условия без границ участвуют в обходе, только если ограниченных условий нет
+     *
+     * @param conditions - условия, хотя бы одно
+     * @param lookup     - сущность по id или null, если ее уже нет
+     * @param afterId    - возвращаются только сущности с id больше этого
+     * @param limit      - максимальное количество сущностей
+     * @return List<T> найденные сущности
+     */
+    public static <T> List<T> select(List<Condition<T>> conditions, IntFunction<T> lookup, int afterId, int limit) {
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("Нужно хотя бы одно условие выборки");
+        }
+        List<Condition<T>> scanned = conditions.stream().filter(Condition::isBounded).toList();
+        if (scanned.isEmpty()) {
+            scanned = conditions.subList(0, 1);
+        }
+        int[] candidates = narrowest(scanned);
+        Arrays.sort(candidates);
+        List<T> result = new ArrayList<>(Math.min(limit, candidates.length));
+        int start = Arrays.binarySearch(candidates, afterId + 1);
+        for (int i = start < 0 ? -start - 1 : start; i < candidates.length && result.size() < limit; i++) {
+            // Сущность, перенесенная в индексе во время обхода, может встретиться дважды
+            if (i > 0 && candidates[i] == candidates[i - 1]) {
+                continue;
+            }
+            T entity = lookup.apply(candidates[i]);
+            // Сущность могла измениться после чтения индекса, поэтому проверяются все условия
+            if (entity != null && conditions.stream().allMatch(condition -> condition.test(entity))) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    private static <T> int[] narrowest(List<Condition<T>> conditions) {
+        List<Iterator<Integer>> iterators = conditions.stream().map(Condition::ids).toList();
+        int[][] ids = new int[iterators.size()][16];
+        int count = 0;
+        while (true) {
+            for (int i = 0; i < iterators.size(); i++) {
+                Iterator<Integer> iterator = iterators.get(i);
+                if (!iterator.hasNext()) {
+                    return Arrays.copyOf(ids[i], count);
+                }
+                if (count == ids[i].length) {
+                    ids[i] = Arrays.copyOf(ids[i], count * 2);
+                }
+                ids[i][count] = iterator.next();
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Условие на одно поле сущности, проверяемое по индексу
+     */
+    public interface Condition<T> {
+
+        boolean isBounded();
+
+        // id подходящих сущностей в порядке значения поля
+        Iterator<Integer> ids();
+
+        boolean test(T entity);
+    }
+
+    private record Entry<K>(K key, int id) {
+    }
+}
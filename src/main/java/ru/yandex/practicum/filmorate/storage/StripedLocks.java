@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Набор блокировок, распределенных по идентификаторам сущностей.
+ * Сущность с id попадает в полосу id & (stripes - 1), поэтому разные сущности
+ * почти всегда блокируются независимо, а память не растет вместе с их количеством.
+ * Несколько полос всегда захватываются в порядке возрастания номера, что исключает взаимные блокировки.
+ */
+public class StripedLocks {
+
+    public static final int DEFAULT_STRIPES = 256;
+
+    private final ReentrantLock[] locks;
+
+    public StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedLocks(int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Количество полос должно быть степенью двойки: " + stripes);
+        }
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Выполнение действия под блокировкой одной сущности
+     *
+     * @param id     - id сущности
+     * @param action - действие
+     * @return T результат действия
+     */
+    public <T> T locked(int id, Supplier<T> action) {
+        ReentrantLock lock = locks[stripe(id)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Выполнение действия под блокировкой двух сущностей одного типа.
+     * Полосы захватываются в порядке возрастания номера
+     *
+     * @param id      - id первой сущности
+     * @param otherId - id второй сущности
+     * @param action  - действие
+     * @return T результат действия
+     */
+    public <T> T locked(int id, int otherId, Supplier<T> action) {
+        int first = Math.min(stripe(id), stripe(otherId));
+        int second = Math.max(stripe(id), stripe(otherId));
+        locks[first].lock();
+        try {
+            if (first == second) {
+                return action.get();
+            }
+            locks[second].lock();
+            try {
+                return action.get();
+            } finally {
+                locks[second].unlock();
+            }
+        } finally {
+            locks[first].unlock();
+        }
+    }
+
+    /**
+     * Выполнение действия под блокировкой нескольких сущностей одного типа.
+     * Полосы захватываются в порядке возрастания номера, каждая один раз
+     *
+     * @param ids    - id сущностей
+     * @param action - действие
+     * @return T результат действия
+     */
+    public <T> T locked(int[] ids, Supplier<T> action) {
+        boolean[] selected = new boolean[locks.length];
+        for (int id : ids) {
+            selected[stripe(id)] = true;
+        }
+        int locked = 0;
+        int[] order = new int[locks.length];
+        try {
+            for (int i = 0; i < locks.length; i++) {
+                if (selected[i]) {
+                    locks[i].lock();
+                    order[locked++] = i;
+                }
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks[order[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Выполнение действия под блокировкой всех сущностей.
+     * Используется пакетными операциями: блокировки берутся один раз на весь пакет
+     *
+     * @param action - действие
+     * @return T результат действия
+     */
+    public <T> T lockedAll(Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (ReentrantLock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    private int stripe(int id) {
+        return id & (locks.length - 1);
+    }
+}
@@ -1,21 +1,91 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     User addUser(User user);
 
+    /**
+     * Пакетное добавление пользователей.
+     * Пользователи с уже занятым email не добавляются, их id остается равным 0
+     *
+     * @param users - пользователи
+     * @return List<User> переданные пользователи
+     */
+    List<User> addUsers(List<User> users);
+
     User updateUser(int id, User user);
 
     List<User> getAllUsers();
 
+    /**
+     * Получение пользователей по списку id за одно обращение к хранилищу.
+     * Отсутствующие id пропускаются, порядок результата совпадает с порядком id
+     *
+     * @param ids - id пользователей
+     * @return List<User> найденные пользователи
+     */
+    List<User> getMany(Collection<Integer> ids);
+
+    List<User> getUsersPage(int afterId, int limit);
+
+    void forEachUser(Consumer<User> action);
+
+    /**
+     * Выборка пользователей по диапазону дат рождения и дню рождения в году с постраничной выдачей по id.
+     * Хранилище отбирает пользователей по вторичным индексам этих полей, а не перебором всех пользователей
+     *
+     * @param birthday       - допустимые даты рождения
+     * @param birthdayInYear - допустимые дни рождения без учета года
+     * @param afterId        - возвращаются только пользователи с id больше этого
+     * @param limit          - максимальное количество пользователей
+     * @return List<User> пользователи по возрастанию id
+     */
+    List<User> findUsers(KeyRange<LocalDate> birthday, KeyRange<MonthDay> birthdayInYear, int afterId, int limit);
+
     List<User> clearUsers();
 
     Map<Integer, User> getUsers();
 
     User getUser(int id);
+
+    /**
+     * Удаление пользователя вместе с его дружбами. Дружба хранится с обеих сторон,
+     * поэтому удаление затрагивает только друзей пользователя.
+     * Лайки пользователя хранятся в FilmStorage и удаляются отдельно
+     *
+     * @param id - id пользователя
+     * @return User удаленный пользователь
+     */
+    User deleteUser(int id);
+
+    User getUserByEmail(String email);
+
+    boolean addFriend(int id, int friendId);
+
+    void addFriends(List<Friendship> friendships);
+
+    boolean deleteFriend(int id, int friendId);
+
+    int[] getFriendIds(int id);
+
+    int[] getCommonFriendIds(int id, int otherId);
+
+    int countCommonFriends(int id, int otherId);
+
+    /**
+     * Версии данных для кэширования ответов, увеличиваются при каждом изменении хранилища
+     *
+     * @return VersionCounters версии коллекции и отдельных сущностей
+     */
+    VersionCounters getVersions();
 }
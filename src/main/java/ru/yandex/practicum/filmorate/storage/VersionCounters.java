@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Версии данных хранилища для кэширования ответов.
+ * Версия коллекции растет при любом изменении, версия сущности - при изменении сущности.
+ * Версии сущностей хранятся по полосам: изменение увеличивает версию всей полосы,
+ * что для соседей по полосе означает лишь лишний промах кэша.
+ * Хранилище увеличивает версию после того, как изменение стало видно читателям.
+ * Версия коллекции меняется при каждом лайке, поэтому она - полосатый счетчик: сумма, прочитанная
+ * после завершения изменения, его уже учитывает, а одновременные изменения не спорят за одну ячейку
+ */
+public class VersionCounters {
+
+    private static final int STRIPES = 1 << 12;
+
+    private final LongAdder collection = new LongAdder();
+    private final AtomicLongArray entities = new AtomicLongArray(STRIPES);
+
+    public long getCollectionVersion() {
+        return collection.sum();
+    }
+
+    public long getVersion(int id) {
+        return entities.get(stripe(id));
+    }
+
+    public void changed(int id) {
+        entities.incrementAndGet(stripe(id));
+        collection.increment();
+    }
+
+    public void changed(int id, int otherId) {
+        entities.incrementAndGet(stripe(id));
+        if (stripe(otherId) != stripe(id)) {
+            entities.incrementAndGet(stripe(otherId));
+        }
+        collection.increment();
+    }
+
+    public void changed(Iterable<Integer> ids) {
+        for (int id : ids) {
+            entities.incrementAndGet(stripe(id));
+        }
+        collection.increment();
+    }
+
+    public void changedAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            entities.incrementAndGet(i);
+        }
+        collection.increment();
+    }
+
+    private static int stripe(int id) {
+        return id & (STRIPES - 1);
+    }
+}
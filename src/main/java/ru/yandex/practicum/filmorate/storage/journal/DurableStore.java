@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Долговременное хранение состояния хранилища: снимок плюс журнал изменений после него.
+ * Снимок с номером N содержит все изменения из сегментов журнала с номерами меньше N,
+ * поэтому при восстановлении загружается последний снимок и проигрываются сегменты начиная с N.
+ * Снимок пишется без остановки хранилища: изменения, попавшие в снимок и в сегмент N одновременно,
+ * при восстановлении применяются повторно без последствий
+ */
+@Slf4j
+public class DurableStore implements Closeable {
+
+    private static final int SNAPSHOT_MAGIC = 0x46534E50;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Path dir;
+    private final String name;
+    private final JournaledStorage storage;
+    private final Journal journal;
+    private long snapshotAppended;
+
+    private DurableStore(Path dir, JournaledStorage storage, Journal journal) {
+        this.dir = dir;
+        this.name = storage.getJournalName();
+        this.storage = storage;
+        this.journal = journal;
+    }
+
+    /**
+     * Восстановление хранилища из каталога и подключение к нему журнала
+     *
+     * @param dir           - каталог снимков и журнала
+     * @param storage       - пустое хранилище
+     * @param policy        - политика сброса журнала на диск
+     * @param fsyncInterval - интервал сброса для политики INTERVAL
+     * @return DurableStore открытое хранилище
+     */
+    public static DurableStore open(Path dir, JournaledStorage storage, FsyncPolicy policy, Duration fsyncInterval)
+            throws IOException {
+        Files.createDirectories(dir);
+        String name = storage.getJournalName();
+        long started = System.nanoTime();
+        List<Long> snapshots = generations(dir, name, "snap");
+        long snapshot = snapshots.isEmpty() ? 0 : snapshots.getLast();
+        if (snapshot > 0) {
+            readSnapshot(snapshotFile(dir, name, snapshot), storage);
+        }
+        List<Long> segments = generations(dir, name, "log").stream()
+                .filter(segment -> segment >= snapshot)
+                .toList();
+        long records = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            records += Journal.replay(Journal.segmentFile(dir, name, segments.get(i)), storage::apply,
+                    i == segments.size() - 1);
+        }
+        storage.recovered();
+        long last = segments.isEmpty() ? snapshot : Math.max(snapshot, segments.getLast());
+        Journal journal = new Journal(dir, name, last + 1, policy, fsyncInterval);
+        storage.attachJournal(journal);
+        DurableStore store = new DurableStore(dir, storage, journal);
+        store.deleteObsolete(snapshot);
+        // Проигранный журнал сворачивается в следующий снимок, даже если новых изменений не будет
+        store.snapshotAppended = records > 0 ? -1 : 0;
+        log.info("Хранилище {} восстановлено за {} мс: снимок {}, записей журнала {}", name,
+                Duration.ofNanos(System.nanoTime() - started).toMillis(), snapshot, records);
+        return store;
+    }
+
+    /**
+     * Запись снимка, если с прошлого снимка были изменения
+     *
+     * @return boolean был ли записан снимок
+     */
+    public synchronized boolean snapshotIfChanged() throws IOException {
+        if (journal.getAppended() == snapshotAppended) {
+            return false;
+        }
+        snapshot();
+        return true;
+    }
+
+    /**
+     * Запись снимка. Журнал переключается на новый сегмент в момент, когда ни одно изменение
+     * не записывается, после чего состояние читается без глобальной блокировки
+     *
+     * @return long номер снимка
+     */
+    public synchronized long snapshot() throws IOException {
+        long started = System.nanoTime();
+        long appended = journal.getAppended();
+        long generation = storage.quiesce(() -> {
+            try {
+                return journal.roll();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Path temp = dir.resolve(name + ".snap.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotOutput out = new SnapshotOutput(Channels.newOutputStream(channel));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            storage.writeSnapshot(out);
+            out.finish();
+            channel.force(true);
+        }
+        Files.move(temp, snapshotFile(dir, name, generation), StandardCopyOption.ATOMIC_MOVE);
+        Journal.syncDirectory(dir);
+        deleteObsolete(generation);
+        snapshotAppended = appended;
+        log.info("Записан снимок {} хранилища {} за {} мс", generation, name,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+        return generation;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        storage.attachJournal(MutationLog.NONE);
+        journal.close();
+    }
+
+    private static void readSnapshot(Path file, JournaledStorage storage) throws IOException {
+        try (InputStream stream = Files.newInputStream(file)) {
+            SnapshotInput in = new SnapshotInput(stream);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Неизвестный формат снимка " + file);
+            }
+            storage.readSnapshot(in);
+            if (!in.verifyChecksum()) {
+                throw new IllegalStateException("Контрольная сумма снимка " + file + " не совпадает");
+            }
+        }
+    }
+
+    // Удаление снимков и сегментов, полностью вошедших в снимок с номером generation
+    private void deleteObsolete(long generation) throws IOException {
+        for (long old : generations(dir, name, "snap")) {
+            if (old < generation) {
+                Files.deleteIfExists(snapshotFile(dir, name, old));
+            }
+        }
+        for (long old : generations(dir, name, "log")) {
+            if (old < generation) {
+                Files.deleteIfExists(Journal.segmentFile(dir, name, old));
+            }
+        }
+    }
+
+    private static Path snapshotFile(Path dir, String name, long generation) {
+        return dir.resolve(String.format("%s-%016d.snap", name, generation));
+    }
+
+    private static List<Long> generations(Path dir, String name, String extension) throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(name) + "-(\\d{16})\\." + extension);
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+/**
+ * Политика сброса журнала на диск
+ */
+public enum FsyncPolicy {
+    // Изменение подтверждается только после fsync; запросы, пришедшие за время сброса, сбрасываются одной группой
+    ALWAYS,
+    // fsync выполняется фоном не реже заданного интервала; при сбое теряется не больше интервала изменений
+    INTERVAL,
+    // Данные пишутся в файл, а момент сброса на диск выбирает операционная система
+    NEVER
+}
@@ -0,0 +1,346 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений с дозаписью в конец файла.
+ * Запись в журнале: длина данных (int), CRC32C данных (int), данные.
+ * Потоки запросов только кладут записи в буфер, а в файл их пишет отдельный поток:
+ * пока идет запись и fsync одной пачки, в другом буфере копится следующая (групповой коммит).
+ * Журнал состоит из сегментов; при снимке начинается новый сегмент, а старые после снимка удаляются
+ */
+@Slf4j
+public class Journal implements MutationLog, Closeable {
+
+    static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path dir;
+    private final String name;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Сигнал потоку записи о новых данных или закрытии
+    private final Condition hasData = lock.newCondition();
+    // Сигнал ожидающим о том, что пачка забрана из буфера или записана
+    private final Condition flushed = lock.newCondition();
+    private final Thread writer;
+
+    private ByteBuffer active = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long appended;
+    // Количество записей, записанных в файл (при политике ALWAYS - и сброшенных на диск)
+    private long written;
+    private boolean writing;
+    private boolean closed;
+    private IOException failure;
+    private FileChannel channel;
+    private long generation;
+
+    public Journal(Path dir, String name, long generation, FsyncPolicy policy, Duration fsyncInterval)
+            throws IOException {
+        this.dir = dir;
+        this.name = name;
+        this.policy = policy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.generation = generation;
+        this.channel = openSegment(generation);
+        this.writer = new Thread(this::writeLoop, "journal-" + name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public long getAppended() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        byte[] payload = JournalCodec.encode(record);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        int size = HEADER_SIZE + payload.length;
+        lock.lock();
+        try {
+            ensureOpen();
+            while (active.remaining() < size) {
+                if (active.position() == 0) {
+                    // Запись больше буфера: буфер увеличивается под нее
+                    active = ByteBuffer.allocateDirect(size);
+                    break;
+                }
+                flushed.await();
+                ensureOpen();
+            }
+            active.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            appended++;
+            hasData.signal();
+            return appended;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание места в буфере журнала " + name, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (policy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (written < position) {
+                ensureOpen();
+                flushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание сброса журнала " + name, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Переход на новый сегмент. Вызывается, когда новые записи не добавляются:
+     * все добавленные записи дописываются и сбрасываются в текущий сегмент
+     *
+     * @return long номер нового сегмента
+     */
+    public long roll() throws IOException {
+        lock.lock();
+        try {
+            while (written < appended || writing) {
+                ensureOpen();
+                flushed.await();
+            }
+            ensureOpen();
+            channel.force(false);
+            channel.close();
+            generation++;
+            channel = openSegment(generation);
+            return generation;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано переключение сегмента журнала " + name, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            hasData.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            if (failure == null) {
+                channel.force(true);
+            }
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        long nextSync = System.nanoTime() + fsyncIntervalNanos;
+        boolean dirty = false;
+        while (true) {
+            ByteBuffer batch;
+            long target;
+            FileChannel out;
+            boolean last;
+            lock.lock();
+            try {
+                while (active.position() == 0 && !closed) {
+                    if (policy != FsyncPolicy.INTERVAL || !dirty) {
+                        hasData.await();
+                    } else if (hasData.awaitNanos(nextSync - System.nanoTime()) <= 0) {
+                        break;
+                    }
+                }
+                last = closed && active.position() == 0;
+                batch = active;
+                active = spare;
+                spare = batch;
+                target = appended;
+                out = channel;
+                writing = true;
+                flushed.signalAll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                batch.flip();
+                dirty |= batch.hasRemaining();
+                while (batch.hasRemaining()) {
+                    out.write(batch);
+                }
+                batch.clear();
+                long now = System.nanoTime();
+                if (policy == FsyncPolicy.ALWAYS || policy == FsyncPolicy.INTERVAL && dirty && now - nextSync >= 0) {
+                    out.force(false);
+                    dirty = false;
+                    nextSync = now + fsyncIntervalNanos;
+                }
+            } catch (IOException e) {
+                log.error("Ошибка записи журнала {}", name, e);
+                lock.lock();
+                try {
+                    failure = e;
+                    writing = false;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                written = target;
+                writing = false;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал " + name + " недоступен после ошибки записи", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Журнал " + name + " закрыт");
+        }
+    }
+
+    private FileChannel openSegment(long segment) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentFile(dir, name, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory(dir);
+        return segmentChannel;
+    }
+
+    static Path segmentFile(Path dir, String name, long segment) {
+        return dir.resolve(String.format("%s-%016d.log", name, segment));
+    }
+
+    // Сброс каталога нужен, чтобы созданный или переименованный файл пережил сбой питания.
+    // Не все платформы позволяют открыть каталог, тогда сброс пропускается
+    static void syncDirectory(Path dir) {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            log.debug("Сброс каталога {} не поддерживается", dir);
+        }
+    }
+
+    /**
+     * Чтение записей сегмента. Оборванная или поврежденная запись в конце последнего сегмента
+     * (сбой во время дозаписи) отрезается вместе со всем, что за ней следует
+     *
+     * @param file       - файл сегмента
+     * @param consumer   - обработчик записей
+     * @param repairTail - отрезать ли поврежденный хвост вместо ошибки
+     * @return long количество прочитанных записей
+     */
+    static long replay(Path file, Consumer<JournalRecord> consumer, boolean repairTail) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            CRC32C crc = new CRC32C();
+            long offset = 0;
+            long count = 0;
+            boolean eof = false;
+            while (true) {
+                while (!eof && buffer.hasRemaining()) {
+                    eof = in.read(buffer) < 0;
+                }
+                buffer.flip();
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int start = buffer.position();
+                    int length = buffer.getInt(start);
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        return cut(in, file, offset, count, repairTail);
+                    }
+                    if (buffer.remaining() < HEADER_SIZE + length) {
+                        if (buffer.capacity() < HEADER_SIZE + length) {
+                            ByteBuffer larger = ByteBuffer.allocate(HEADER_SIZE + length);
+                            larger.put(buffer);
+                            buffer = larger;
+                            buffer.flip();
+                        }
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(buffer.array(), start + HEADER_SIZE, length);
+                    if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+                        return cut(in, file, offset, count, repairTail);
+                    }
+                    buffer.position(start + HEADER_SIZE);
+                    consumer.accept(JournalCodec.decode(buffer));
+                    buffer.position(start + HEADER_SIZE + length);
+                    offset += HEADER_SIZE + length;
+                    count++;
+                }
+                buffer.compact();
+                if (eof) {
+                    return buffer.position() == 0 ? count : cut(in, file, offset, count, repairTail);
+                }
+            }
+        }
+    }
+
+    private static long cut(FileChannel in, Path file, long offset, long count, boolean repairTail)
+            throws IOException {
+        if (!repairTail) {
+            throw new IllegalStateException(String.format("Журнал %s поврежден на позиции %d", file, offset));
+        }
+        log.warn("Журнал {} оборван на позиции {}, хвост отрезан", file, offset);
+        in.truncate(offset);
+        in.force(true);
+        return count;
+    }
+}
@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmSaved;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmsCleared;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserSaved;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UsersCleared;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Двоичное представление записей журнала: байт типа и поля фиксированной длины,
+ * строки - длина в байтах (-1 для null) и UTF-8
+ */
+final class JournalCodec {
+
+    private static final byte FILM_SAVED = 1;
+    private static final byte LIKE_ADDED = 2;
+    private static final byte LIKE_DELETED = 3;
+    private static final byte FILMS_CLEARED = 4;
+    private static final byte USER_SAVED = 5;
+    private static final byte FRIEND_ADDED = 6;
+    private static final byte FRIEND_DELETED = 7;
+    private static final byte USERS_CLEARED = 8;
+    private static final byte FILM_DELETED = 9;
+    private static final byte USER_DELETED = 10;
+
+    private JournalCodec() {
+    }
+
+    static byte[] encode(JournalRecord record) {
+        return switch (record) {
+            case FilmSaved film -> {
+                byte[] name = utf8(film.name());
+                byte[] description = utf8(film.description());
+                ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + size(name) + size(description) + 8 + 8)
+                        .put(FILM_SAVED)
+                        .putInt(film.id());
+                putString(buffer, name);
+                putString(buffer, description);
+                yield buffer.putLong(film.releaseDate().toEpochDay())
+                        .putLong(film.duration())
+                        .array();
+            }
+            case UserSaved user -> {
+                byte[] name = utf8(user.name());
+                byte[] login = utf8(user.login());
+                byte[] email = utf8(user.email());
+                ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + size(name) + 8 + size(login) + size(email))
+                        .put(USER_SAVED)
+                        .putInt(user.id());
+                putString(buffer, name);
+                buffer.putLong(user.birthday().toEpochDay());
+                putString(buffer, login);
+                putString(buffer, email);
+                yield buffer.array();
+            }
+            case LikeAdded like -> pair(LIKE_ADDED, like.filmId(), like.userId());
+            case LikeDeleted like -> pair(LIKE_DELETED, like.filmId(), like.userId());
+            case FriendAdded friendship -> pair(FRIEND_ADDED, friendship.userId(), friendship.friendId());
+            case FriendDeleted friendship -> pair(FRIEND_DELETED, friendship.userId(), friendship.friendId());
+            case FilmsCleared ignored -> new byte[]{FILMS_CLEARED};
+            case UsersCleared ignored -> new byte[]{USERS_CLEARED};
+            case FilmDeleted film -> id(FILM_DELETED, film.filmId());
+            case UserDeleted user -> id(USER_DELETED, user.userId());
+        };
+    }
+
+    // Разбор записи с текущей позиции буфера; буфер должен быть в куче
+    static JournalRecord decode(ByteBuffer payload) {
+        byte type = payload.get();
+        return switch (type) {
+            case FILM_SAVED -> new FilmSaved(payload.getInt(), getString(payload), getString(payload),
+                    LocalDate.ofEpochDay(payload.getLong()), payload.getLong());
+            case USER_SAVED -> new UserSaved(payload.getInt(), getString(payload),
+                    LocalDate.ofEpochDay(payload.getLong()), getString(payload), getString(payload));
+            case LIKE_ADDED -> new LikeAdded(payload.getInt(), payload.getInt());
+            case LIKE_DELETED -> new LikeDeleted(payload.getInt(), payload.getInt());
+            case FRIEND_ADDED -> new FriendAdded(payload.getInt(), payload.getInt());
+            case FRIEND_DELETED -> new FriendDeleted(payload.getInt(), payload.getInt());
+            case FILMS_CLEARED -> new FilmsCleared();
+            case USERS_CLEARED -> new UsersCleared();
+            case FILM_DELETED -> new FilmDeleted(payload.getInt());
+            case USER_DELETED -> new UserDeleted(payload.getInt());
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        };
+    }
+
+    private static byte[] id(byte type, int id) {
+        return ByteBuffer.allocate(1 + 4)
+                .put(type)
+                .putInt(id)
+                .array();
+    }
+
+    private static byte[] pair(byte type, int first, int second) {
+        return ByteBuffer.allocate(1 + 4 + 4)
+                .put(type)
+                .putInt(first)
+                .putInt(second)
+                .array();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] string) {
+        return 4 + (string == null ? 0 : string.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        if (string == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(string.length).put(string);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Включение журнала для хранилищ приложения.
+ * При старте состояние хранилищ восстанавливается из каталога filmorate.journal.dir,
+ * затем снимки пишутся периодически и при остановке приложения
+ */
+@Component
+@Slf4j
+public class JournalManager {
+
+    private final List<JournaledStorage> storages;
+    private final boolean enabled;
+    private final Path dir;
+    private final FsyncPolicy fsync;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+    private final List<DurableStore> stores = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    // При хранении в БД журналируемых хранилищ нет
+    public JournalManager(ObjectProvider<JournaledStorage> storages,
+                          @Value("${filmorate.journal.enabled:false}") boolean enabled,
+                          @Value("${filmorate.journal.dir:data}") Path dir,
+                          @Value("${filmorate.journal.fsync:interval}") FsyncPolicy fsync,
+                          @Value("${filmorate.journal.fsync-interval:100ms}") Duration fsyncInterval,
+                          @Value("${filmorate.journal.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.storages = storages.orderedStream().toList();
+        this.enabled = enabled;
+        this.dir = dir;
+        this.fsync = fsync;
+        this.fsyncInterval = fsyncInterval;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        for (JournaledStorage storage : storages) {
+            stores.add(DurableStore.open(dir, storage, fsync, fsyncInterval));
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshot, snapshotInterval.toMillis(), snapshotInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Журнал хранилищ включен: каталог {}, политика сброса {}", dir.toAbsolutePath(), fsync);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot();
+        for (DurableStore store : stores) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                log.error("Ошибка закрытия журнала", e);
+            }
+        }
+        stores.clear();
+    }
+
+    private void snapshot() {
+        for (DurableStore store : stores) {
+            try {
+                store.snapshotIfChanged();
+            } catch (IOException | RuntimeException e) {
+                log.error("Ошибка записи снимка", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Запись журнала изменений.
+ * Каждая запись задает итоговое состояние одного элемента (поля сущности, наличие лайка или дружбы),
+ * поэтому повторное применение уже учтенной в снимке записи не меняет результат восстановления
+ */
+public sealed interface JournalRecord {
+
+    record FilmSaved(int id, String name, String description, LocalDate releaseDate, long duration)
+            implements JournalRecord {
+
+        public static FilmSaved of(Film film) {
+            return new FilmSaved(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration());
+        }
+
+        public Film toFilm() {
+            Film film = new Film(name, description, releaseDate, duration);
+            film.setId(id);
+            return film;
+        }
+    }
+
+    record LikeAdded(int filmId, int userId) implements JournalRecord {
+    }
+
+    record LikeDeleted(int filmId, int userId) implements JournalRecord {
+    }
+
+    record FilmsCleared() implements JournalRecord {
+    }
+
+    // Фильм удален вместе с его лайками
+    record FilmDeleted(int filmId) implements JournalRecord {
+    }
+
+    record UserSaved(int id, String name, LocalDate birthday, String login, String email)
+            implements JournalRecord {
+
+        public static UserSaved of(User user) {
+            return new UserSaved(user.getId(), user.getName(), user.getBirthday(), user.getLogin(), user.getEmail());
+        }
+
+        public User toUser() {
+            User user = new User(name, birthday, login, email);
+            user.setId(id);
+            return user;
+        }
+    }
+
+    record FriendAdded(int userId, int friendId) implements JournalRecord {
+    }
+
+    record FriendDeleted(int userId, int friendId) implements JournalRecord {
+    }
+
+    record UsersCleared() implements JournalRecord {
+    }
+
+    // Пользователь удален вместе с его дружбами; лайки пользователя журналируются отдельно как LikeDeleted
+    record UserDeleted(int userId) implements JournalRecord {
+    }
+}
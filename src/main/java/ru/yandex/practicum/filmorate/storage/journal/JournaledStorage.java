@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Хранилище, состояние которого восстанавливается из снимка и журнала изменений
+ */
+public interface JournaledStorage {
+
+    /**
+     * Имя хранилища, используется в именах файлов журнала и снимков
+     */
+    String getJournalName();
+
+    /**
+     * Подключение журнала: после него каждое изменение сначала записывается в журнал
+     *
+     * @param journal - журнал
+     */
+    void attachJournal(MutationLog journal);
+
+    /**
+     * Применение записи журнала при восстановлении. Записи о несуществующих сущностях пропускаются
+     *
+     * @param record - запись журнала
+     */
+    void apply(JournalRecord record);
+
+    /**
+     * Завершение восстановления: перестроение производных индексов
+     */
+    void recovered();
+
+    /**
+     * Выполнение действия, когда ни одно изменение не находится в процессе записи в журнал
+     *
+     * @param action - действие
+     * @return T результат действия
+     */
+    <T> T quiesce(Supplier<T> action);
+
+    void writeSnapshot(SnapshotOutput out) throws IOException;
+
+    void readSnapshot(SnapshotInput in) throws IOException;
+}
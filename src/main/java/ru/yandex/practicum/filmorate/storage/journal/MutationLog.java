@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+/**
+ * Журнал изменений хранилища.
+ * Запись добавляется под блокировкой изменяемой сущности до изменения состояния в памяти,
+ * поэтому порядок записей совпадает с порядком изменений каждой сущности.
+ * Ожидание сброса на диск выполняется уже после снятия блокировки
+ */
+public interface MutationLog {
+
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public long append(JournalRecord record) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    /**
+     * Добавление записи в журнал
+     *
+     * @param record - запись
+     * @return long позиция записи, по которой ожидается ее сброс на диск
+     */
+    long append(JournalRecord record);
+
+    /**
+     * Ожидание сброса записи на диск согласно политике журнала
+     *
+     * @param position - позиция записи
+     */
+    void awaitDurable(long position);
+}
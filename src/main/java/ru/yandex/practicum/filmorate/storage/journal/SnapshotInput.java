@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Чтение снимка, записанного {@link SnapshotOutput}.
+ * Числа разбираются прямо из собственного буфера, контрольная сумма считается по прочитанным блокам
+ */
+public class SnapshotInput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    SnapshotInput(InputStream in) {
+        this.in = in;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public int readInt() throws IOException {
+        return (readByte() & 0xFF) << 24 | (readByte() & 0xFF) << 16 | (readByte() & 0xFF) << 8 | readByte() & 0xFF;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Некорректное число в снимке");
+    }
+
+    public long readVarLong() throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Некорректное число в снимке");
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            if (position == limit) {
+                fill();
+            }
+            int chunk = Math.min(length - offset, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, chunk);
+            position += chunk;
+            offset += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public LocalDate readDate() throws IOException {
+        return LocalDate.ofEpochDay(readVarLong());
+    }
+
+    public int[] readIds() throws IOException {
+        int[] ids = new int[readVarInt()];
+        int previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += readVarInt();
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    // Сверка контрольной суммы прочитанных данных с записанной после них
+    boolean verifyChecksum() throws IOException {
+        crc.update(buffer, 0, position);
+        int expected = (int) crc.getValue();
+        crc.reset();
+        return readInt() == expected;
+    }
+
+    private byte readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        return buffer[position++];
+    }
+
+    private void fill() throws IOException {
+        crc.update(buffer, 0, limit);
+        position = 0;
+        limit = in.read(buffer);
+        if (limit <= 0) {
+            limit = 0;
+            throw new EOFException("Снимок оборван");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Компактная запись снимка: целые числа в формате varint,
+ * множества id - количество и разности соседних элементов.
+ * Данные копятся в собственном буфере, контрольная сумма считается по буферу целиком
+ */
+public class SnapshotOutput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    SnapshotOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) (value ? 1 : 0);
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensure(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarInt(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarLong(long value) throws IOException {
+        ensure(10);
+        // Зигзаг-кодирование: небольшие по модулю отрицательные числа тоже занимают мало байт
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[position++] = (byte) zigzag;
+    }
+
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            int length = Math.min(bytes.length - offset, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+            offset += length;
+        }
+    }
+
+    public void writeDate(LocalDate date) throws IOException {
+        writeVarLong(date.toEpochDay());
+    }
+
+    /**
+     * Запись отсортированных по возрастанию id
+     *
+     * @param ids - id по возрастанию
+     */
+    public void writeIds(int[] ids) throws IOException {
+        writeVarInt(ids.length);
+        int previous = 0;
+        for (int id : ids) {
+            writeVarInt(id - previous);
+            previous = id;
+        }
+    }
+
+    // Дописывает контрольную сумму всего записанного и сбрасывает буфер в поток
+    void finish() throws IOException {
+        drain();
+        int checksum = (int) crc.getValue();
+        writeInt(checksum);
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        crc.update(buffer, 0, position);
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
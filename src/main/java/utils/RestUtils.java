@@ -4,24 +4,98 @@ import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.config.HttpClientConfig;
 import io.restassured.config.RestAssuredConfig;
+import io.restassured.filter.Filter;
 import io.restassured.http.ContentType;
 import io.restassured.http.Cookies;
 import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 import static io.restassured.RestAssured.given;
 import static org.apache.http.HttpHeaders.CONNECTION;
+import static org.apache.http.params.CoreConnectionPNames.CONNECTION_TIMEOUT;
+import static org.apache.http.params.CoreConnectionPNames.SO_TIMEOUT;
 import static org.apache.http.protocol.HTTP.CONN_KEEP_ALIVE;
 
 /**
  * Класс, содержащий базовые методы для отправки rest запросов
  */
+@Slf4j
 public class RestUtils {
 
+    // Спецификации с одним заголовком Content-Type не меняются, поэтому создаются один раз
+    // Ожидание соединения из пула и ответа сервера в пуловом режиме ограничено, чтобы зависший запрос
+    // завершался ошибкой, а не держал поток нагрузки бесконечно
+    private static final int POOLED_TIMEOUT_MS = 30_000;
+    private static final Map<String, RequestSpecification> CONTENT_TYPE_SPECS = new ConcurrentHashMap<>();
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Filter LOG_ON_FAILURE = (requestSpec, responseSpec, context) -> {
+        Response response = context.next(requestSpec, responseSpec);
+        if (response.statusCode() >= 400) {
+            log.warn("{} {} -> {}: {}", requestSpec.getMethod(), requestSpec.getURI(), response.statusCode(),
+                    response.asString());
+        }
+        return response;
+    };
+
+    // Логирование каждого запроса и ответа полезно в функциональных тестах, но под нагрузкой
+    // вывод в консоль становится узким местом и его нужно отключать
+    private static volatile LogMode logMode = LogMode.ALL;
+    private static DefaultHttpClient pooledClient;
+    // Разрешения на запросы через async: не больше, чем соединений в пуле
+    private static volatile Semaphore asyncPermits = new Semaphore(Integer.MAX_VALUE);
+
+    /**
+     * Режим логирования запросов: ALL - запрос и ответ целиком, ON_FAILURE - только запросы
+     * с ответом 4xx/5xx, NONE - без логирования
+     */
+    public enum LogMode {
+        ALL, ON_FAILURE, NONE
+    }
+
+    public static LogMode getLogMode() {
+        return logMode;
+    }
+
+    public static void setLogMode(LogMode mode) {
+        logMode = mode;
+    }
+
+    public static void setLogging(boolean enabled) {
+        setLogMode(enabled ? LogMode.ALL : LogMode.NONE);
+    }
+
+    private static RequestSpecification request() {
+        RequestSpecification request = given();
+        return switch (logMode) {
+            case ALL -> request.log().all();
+            case ON_FAILURE -> request.filter(LOG_ON_FAILURE);
+            case NONE -> request;
+        };
+    }
+
+    private static Response extract(Response response) {
+        if (logMode == LogMode.ALL) {
+            return response.then().log().all().extract().response();
+        }
+        // Тело читается лениво, а соединение возвращается в пул только после его прочтения
+        response.asByteArray();
+        return response;
+    }
+
     /**
      * Отправка get запроса с параметрами без указания спецификации запросов
      *
@@ -35,15 +109,11 @@ public class RestUtils {
         final Map<String, String> queryParameters = Optional.ofNullable(params).orElseGet(HashMap::new);
         final Cookies cookies = Optional.ofNullable(cookie).orElseGet(Cookies::new);
         final Map<String, String> headersMap = getHeaders(headers);
-        return given()
+        return extract(request()
                 .headers(headersMap)
                 .cookies(cookies)
                 .params(queryParameters)
-                .log().all()
-                .get(url)
-                .then()
-                .log().all()
-                .extract().response();
+                .get(url));
     }
 
     /**
@@ -63,16 +133,12 @@ public class RestUtils {
         final Cookies cookies = Optional.ofNullable(cookie).orElseGet(Cookies::new);
         final Map<String, String> headersMap = getHeaders(headers);
 
-        return given()
+        return extract(request()
                 .spec(requestSpecification)
                 .headers(headersMap)
                 .params(queryParameters)
                 .cookies(cookies)
-                .log().all()
-                .get(url)
-                .then()
-                .log().all()
-                .extract().response();
+                .get(url));
     }
 
     /**
@@ -83,7 +149,8 @@ public class RestUtils {
      * @return Response - ответ запроса
      */
     public static Response get(final String url, String contentType) {
-        return getWithSpec(url, null, null, null, buildReqSpecificationWithContentType(contentType));
+        return getWithSpec(url, null, null, null,
+                CONTENT_TYPE_SPECS.computeIfAbsent(contentType, RestUtils::buildReqSpecificationWithContentType));
     }
 
     /**
@@ -96,14 +163,10 @@ public class RestUtils {
      */
     public static Response post(String url, Object body, Map<String, String> headers) {
         Map<String, String> headersMap = getHeaders(headers);
-        return given()
+        return extract(request()
                 .headers(headersMap)
                 .body(body)
-                .log().all()
-                .post(url)
-                .then()
-                .log().all()
-                .extract().response();
+                .post(url));
     }
 
     /**
@@ -116,14 +179,10 @@ public class RestUtils {
      */
     public static Response put(String url, Object body, Map<String, String> headers) {
         Map<String, String> headersMap = getHeaders(headers);
-        return given()
+        return extract(request()
                 .headers(headersMap)
                 .body(body)
-                .log().all()
-                .put(url)
-                .then()
-                .log().all()
-                .extract().response();
+                .put(url));
     }
 
     /**
@@ -135,14 +194,10 @@ public class RestUtils {
      */
     public static Response put(String url, ContentType contentType, Map<String, String> headers) {
         Map<String, String> headersMap = getHeaders(headers);
-        return given()
+        return extract(request()
                 .headers(headersMap)
                 .contentType(contentType)
-                .log().all()
-                .put(url)
-                .then()
-                .log().all()
-                .extract().response();
+                .put(url));
     }
 
     /**
@@ -174,8 +229,66 @@ public class RestUtils {
                 .build();
     }
 
-    public static void setRestAssuredConfigHttp() {
+    public static synchronized void setRestAssuredConfigHttp() {
         RestAssured.config = RestAssuredConfig.newConfig().httpClient(HttpClientConfig.httpClientConfig());
+        closePooledClient();
+        asyncPermits = new Semaphore(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Режим высокой пропускной способности: вместо нового http-клиента на каждый запрос
+     * используется один общий клиент с пулом keep-alive соединений, логируются только неуспешные запросы.
+     * Ожидание соединения из пула и ответа ограничено POOLED_TIMEOUT_MS. Виртуальный поток, ждущий соединение
+     * внутри RestAssured, не отпускает поток-носитель, поэтому вызывающий код должен сам ограничивать число
+     * одновременных запросов числом соединений, как это делают async и LoadGenerator
+     *
+     * @param maxConnections - максимальное количество одновременных соединений
+     */
+    @SuppressWarnings("deprecation")
+    public static synchronized void setRestAssuredConfigPooled(int maxConnections) {
+        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        // RestAssured настраивает клиент через AbstractHttpClient, поэтому используется DefaultHttpClient
+        DefaultHttpClient client = new DefaultHttpClient(connectionManager);
+        RestAssured.config = RestAssuredConfig.newConfig().httpClient(HttpClientConfig.httpClientConfig()
+                .setParam(ClientPNames.CONN_MANAGER_TIMEOUT, (long) POOLED_TIMEOUT_MS)
+                .setParam(CONNECTION_TIMEOUT, POOLED_TIMEOUT_MS)
+                .setParam(SO_TIMEOUT, POOLED_TIMEOUT_MS)
+                .reuseHttpClientInstance()
+                .httpClientFactory(() -> client));
+        closePooledClient();
+        pooledClient = client;
+        asyncPermits = new Semaphore(maxConnections);
+        setLogMode(LogMode.ON_FAILURE);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static synchronized void closePooledClient() {
+        if (pooledClient != null) {
+            pooledClient.getConnectionManager().shutdown();
+            pooledClient = null;
+        }
+    }
+
+    /**
+     * Асинхронное выполнение запроса в виртуальном потоке.
+     * Одновременно выполняется не больше запросов, чем соединений в пуле из setRestAssuredConfigPooled,
+     * остальные ждут разрешения до входа в RestAssured
+     *
+     * @param request - запрос, например () -> RestUtils.get(url, contentType)
+     * @return CompletableFuture<Response> ответ запроса
+     */
+    public static CompletableFuture<Response> async(Supplier<Response> request) {
+        Semaphore permits = asyncPermits;
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return request.get();
+            } finally {
+                permits.release();
+            }
+        }, ASYNC_EXECUTOR);
     }
 
     public static void setRestAssuredConfigHttps() {
@@ -189,13 +302,9 @@ public class RestUtils {
      * @return Response - ответ запроса
      */
     public static Response delete(String url, ContentType contentType, Map<String, String> headers) {
-        return given()
+        return extract(request()
                 .headers(headers)
                 .contentType(contentType)
-                .log().all()
-                .delete(url)
-                .then()
-                .log().all()
-                .extract().response();
+                .delete(url));
     }
 }
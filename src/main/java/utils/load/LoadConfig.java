@@ -0,0 +1,92 @@
+package utils.load;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного теста. Из командной строки задаются в виде --ключ=значение:
+ * --url, --rate, --duration, --warmup, --workers, --virtual-threads, --connections, --mix, --users, --films,
+ * --friends-per-user, --popular-count
+ */
+@Getter
+@Builder(toBuilder = true)
+@ToString
+public class LoadConfig {
+
+    // Без --url приложение запускается в том же процессе
+    private final String baseUrl;
+    // Открытая модель: запросы отправляются с этой частотой независимо от времени ответа
+    @Builder.Default
+    private final double rate = 200;
+    @Builder.Default
+    private final Duration duration = Duration.ofSeconds(30);
+    // Результаты прогрева не попадают в отчет
+    @Builder.Default
+    private final Duration warmup = Duration.ofSeconds(5);
+    @Builder.Default
+    private final int workers = 64;
+    // Поток на каждый запрос вместо пула workers: параллельность ограничивает только пул соединений
+    @Builder.Default
+    private final boolean virtualThreads = false;
+    @Builder.Default
+    private final int connections = 64;
+    // Вес операции в смеси, например --mix=like:6,popular:2,common-friends:1,create-user:1
+    @Builder.Default
+    private final Map<Operation, Integer> mix = defaultMix();
+    @Builder.Default
+    private final int users = 1000;
+    @Builder.Default
+    private final int films = 200;
+    @Builder.Default
+    private final int friendsPerUser = 20;
+    @Builder.Default
+    private final int popularCount = 10;
+
+    public static LoadConfig fromArgs(String[] args) {
+        LoadConfigBuilder builder = LoadConfig.builder();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                continue;
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (key) {
+                case "url" -> builder.baseUrl(value);
+                case "rate" -> builder.rate(Double.parseDouble(value));
+                case "duration" -> builder.duration(DurationStyle.detectAndParse(value));
+                case "warmup" -> builder.warmup(DurationStyle.detectAndParse(value));
+                case "workers" -> builder.workers(Integer.parseInt(value));
+                case "virtual-threads" -> builder.virtualThreads(Boolean.parseBoolean(value));
+                case "connections" -> builder.connections(Integer.parseInt(value));
+                case "mix" -> builder.mix(parseMix(value));
+                case "users" -> builder.users(Integer.parseInt(value));
+                case "films" -> builder.films(Integer.parseInt(value));
+                case "friends-per-user" -> builder.friendsPerUser(Integer.parseInt(value));
+                case "popular-count" -> builder.popularCount(Integer.parseInt(value));
+                default -> {
+                    // Остальные аргументы предназначены приложению, например --filmorate.storage=jdbc
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] weight = part.trim().split(":");
+            mix.put(Operation.byKey(weight[0]), weight.length > 1 ? Integer.parseInt(weight[1]) : 1);
+        }
+        return mix;
+    }
+
+    private static Map<Operation, Integer> defaultMix() {
+        return parseMix("create-user:1,like:6,popular:2,common-friends:1");
+    }
+}
@@ -0,0 +1,230 @@
+package utils.load;
+
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import utils.RestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Многопоточный нагрузочный тест поверх RestUtils.
+ * Запросы отправляются по расписанию с заданной частотой (открытая модель): если сервис не успевает,
+ * запросы копятся в очереди пула потоков или ждут одно из --connections соединений, и это ожидание входит в задержку.
+ * Разрешение на соединение берется до вызова RestUtils: виртуальный поток, ждущий соединение внутри
+ * RestAssured, занимает поток-носитель, и при нескольких ядрах такие потоки вытесняли бы владельцев соединений.
+ * Запуск: mvn -Pload compile exec:exec -Dload.args="--rate=500 --duration=60s --filmorate.storage=jdbc"
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final Map<String, String> HEADERS = Map.of("Content-Type", "application/json; charset=UTF-8");
+
+    private final LoadConfig config;
+    private final Operation[] weightedOperations;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    // Email должен быть уникальным и между запусками против одного сервера
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicInteger createdUsers = new AtomicInteger();
+    private final Semaphore connections;
+    private int[] userIds;
+    private int[] filmIds;
+
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.connections = new Semaphore(config.getConnections());
+        List<Operation> weighted = new ArrayList<>();
+        config.getMix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        });
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Смесь операций пуста");
+        }
+        this.weightedOperations = weighted.toArray(Operation[]::new);
+    }
+
+    public static void main(String[] args) {
+        LoadConfig config = LoadConfig.fromArgs(args);
+        ConfigurableApplicationContext context = null;
+        if (config.getBaseUrl() == null) {
+            List<String> applicationArgs = new ArrayList<>(Arrays.asList(args));
+            // Журнал каждого добавления в консоль искажает результаты сильнее, чем сама нагрузка
+            if (applicationArgs.stream().noneMatch(arg -> arg.startsWith("--logging.level."))) {
+                applicationArgs.add("--logging.level.ru.yandex.practicum=WARN");
+            }
+            context = SpringApplication.run(FilmorateApplication.class, applicationArgs.toArray(String[]::new));
+            config = config.toBuilder().baseUrl("http://localhost:8080").build();
+        }
+        try {
+            System.out.println(new LoadGenerator(config).run().format());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    public LoadReport run() {
+        RestUtils.LogMode logMode = RestUtils.getLogMode();
+        RestUtils.setRestAssuredConfigPooled(config.getConnections());
+        RestUtils.setLogMode(RestUtils.LogMode.NONE);
+        try {
+            seed();
+            log.info("Прогрев {}", config.getWarmup());
+            drive(config.getWarmup());
+            recorders.values().forEach(Recorder::reset);
+            errors.values().forEach(LongAdder::reset);
+            log.info("Нагрузка {} запросов/с в течение {}", config.getRate(), config.getDuration());
+            long start = System.nanoTime();
+            drive(config.getDuration());
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+            Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+            recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+            errors.forEach((operation, count) -> errorCounts.put(operation, count.sum()));
+            return new LoadReport(elapsed, histograms, errorCounts);
+        } finally {
+            RestUtils.setRestAssuredConfigHttp();
+            RestUtils.setLogMode(logMode);
+        }
+    }
+
+    // Возвращается после завершения всех отправленных запросов
+    private void drive(Duration length) {
+        if (length.isZero()) {
+            return;
+        }
+        double intervalNanos = 1e9 / config.getRate();
+        try (ExecutorService workers = config.isVirtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(config.getWorkers())) {
+            long start = System.nanoTime();
+            long end = start + length.toNanos();
+            for (long i = 0; ; i++) {
+                long intendedStart = start + (long) (i * intervalNanos);
+                if (intendedStart >= end) {
+                    break;
+                }
+                long delay = intendedStart - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+                workers.execute(() -> execute(operation, intendedStart));
+            }
+        }
+    }
+
+    private void execute(Operation operation, long intendedStart) {
+        boolean success;
+        connections.acquireUninterruptibly();
+        try {
+            success = call(operation).statusCode() < 400;
+        } catch (RuntimeException e) {
+            log.debug("Ошибка запроса {}", operation, e);
+            success = false;
+        } finally {
+            connections.release();
+        }
+        recorders.get(operation).recordValue(System.nanoTime() - intendedStart);
+        if (!success) {
+            errors.get(operation).increment();
+        }
+    }
+
+    private Response call(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case CREATE_USER -> RestUtils.post(url("/users"), user("user-" + createdUsers.incrementAndGet()), HEADERS);
+            // Шторм лайков: большая часть приходится на несколько первых фильмов
+            case LIKE -> RestUtils.put(url("/films/" + filmIds[(int) (filmIds.length * Math.pow(random.nextDouble(), 3))]
+                    + "/like/" + userIds[random.nextInt(userIds.length)]), ContentType.JSON, HEADERS);
+            case POPULAR -> RestUtils.get(url("/films/popular?count=" + config.getPopularCount()),
+                    ContentType.JSON.toString());
+            case COMMON_FRIENDS -> {
+                int first = random.nextInt(userIds.length);
+                int second = (first + 1 + random.nextInt(userIds.length - 1)) % userIds.length;
+                yield RestUtils.get(url("/users/" + userIds[first] + "/friends/common/" + userIds[second]),
+                        ContentType.JSON.toString());
+            }
+        };
+    }
+
+    private void seed() {
+        if (config.getUsers() < 2 || config.getFilms() < 1) {
+            throw new IllegalArgumentException("Нужно не меньше двух пользователей и одного фильма");
+        }
+        log.info("Создание {} пользователей и {} фильмов", config.getUsers(), config.getFilms());
+        userIds = createInBatches("/users/batch", config.getUsers(), i -> user("seed-" + i));
+        filmIds = createInBatches("/films/batch", config.getFilms(), i -> Film.builder().name("Фильм " + i)
+                .description("Нагрузочный тест").releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Friendship> friendships = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int userId : userIds) {
+            for (int i = 0; i < config.getFriendsPerUser(); i++) {
+                int friendId = userIds[random.nextInt(userIds.length)];
+                if (friendId != userId) {
+                    friendships.add(new Friendship(userId, friendId));
+                }
+                if (friendships.size() == SEED_BATCH_SIZE) {
+                    RestUtils.put(url("/users/friends/batch"), friendships, HEADERS);
+                    friendships.clear();
+                }
+            }
+        }
+        if (!friendships.isEmpty()) {
+            RestUtils.put(url("/users/friends/batch"), friendships, HEADERS);
+        }
+    }
+
+    private int[] createInBatches(String endpoint, int count, Function<Integer, Object> factory) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += SEED_BATCH_SIZE) {
+            List<Object> batch = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = from; i < Math.min(count, from + SEED_BATCH_SIZE); i++) {
+                batch.add(factory.apply(i));
+            }
+            ids.addAll(RestUtils.post(url(endpoint), batch, HEADERS).jsonPath().getList("id", Integer.class));
+        }
+        return ids.stream().filter(Objects::nonNull).mapToInt(Integer::intValue).toArray();
+    }
+
+    private User user(String login) {
+        return User.builder().login(login).email(login + "-" + runId + "@load.test")
+                .birthday(LocalDate.of(1990, 1, 1)).build();
+    }
+
+    private String url(String endpoint) {
+        return config.getBaseUrl() + endpoint;
+    }
+}
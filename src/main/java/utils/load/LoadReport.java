@@ -0,0 +1,65 @@
+package utils.load;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Итоги нагрузочного теста: пропускная способность и перцентили задержек по каждой операции.
+ * Задержка считается от запланированного момента отправки, поэтому включает ожидание свободного потока
+ */
+@Getter
+public class LoadReport {
+
+    private final Duration elapsed;
+    private final Map<Operation, OperationStats> operations;
+    private final OperationStats total;
+
+    LoadReport(Duration elapsed, Map<Operation, Histogram> histograms, Map<Operation, Long> errors) {
+        this.elapsed = elapsed;
+        Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            long operationErrors = errors.getOrDefault(entry.getKey(), 0L);
+            operations.put(entry.getKey(), OperationStats.of(entry.getValue(), operationErrors, elapsed));
+            all.add(entry.getValue());
+            allErrors += operationErrors;
+        }
+        this.operations = Collections.unmodifiableMap(operations);
+        this.total = OperationStats.of(all, allErrors, elapsed);
+    }
+
+    public String format() {
+        StringBuilder report = new StringBuilder(String.format("Длительность: %.1f с%n", elapsed.toMillis() / 1000.0));
+        report.append(String.format("%-16s %10s %8s %10s %10s %10s %10s %10s%n",
+                "операция", "запросов", "ошибок", "зап/с", "p50, мс", "p99, мс", "p999, мс", "max, мс"));
+        operations.forEach((operation, stats) -> report.append(stats.format(operation.getKey())));
+        report.append(total.format("всего"));
+        return report.toString();
+    }
+
+    public record OperationStats(long count, long errors, double throughput,
+                                 double p50, double p99, double p999, double max) {
+
+        private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+        static OperationStats of(Histogram histogram, long errors, Duration elapsed) {
+            return new OperationStats(histogram.getTotalCount(), errors,
+                    histogram.getTotalCount() / Math.max(elapsed.toNanos() / 1e9, 1e-9),
+                    histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                    histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                    histogram.getMaxValue() / NANOS_PER_MILLI);
+        }
+
+        String format(String name) {
+            return String.format("%-16s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    name, count, errors, throughput, p50, p99, p999, max);
+        }
+    }
+}
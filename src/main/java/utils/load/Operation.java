@@ -0,0 +1,30 @@
+package utils.load;
+
+import java.util.Arrays;
+
+/**
+ * Виды запросов нагрузочного теста. key - имя операции в параметре --mix
+ */
+public enum Operation {
+    CREATE_USER("create-user"),
+    LIKE("like"),
+    POPULAR("popular"),
+    COMMON_FRIENDS("common-friends");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static Operation byKey(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестная операция: " + key));
+    }
+}
@@ -0,0 +1,48 @@
+-- Схема хранилища в БД (filmorate.storage=jdbc). Лайки и дружба хранятся в отдельных таблицах связей
+CREATE SEQUENCE IF NOT EXISTS film_ids;
+CREATE SEQUENCE IF NOT EXISTS user_ids;
+
+CREATE TABLE IF NOT EXISTS films (
+    id           INTEGER PRIMARY KEY,
+    name         VARCHAR NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE    NOT NULL,
+    duration     BIGINT  NOT NULL,
+    -- Число строк film_likes фильма, меняется в той же транзакции, что и сами лайки
+    likes_count  INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id          INTEGER PRIMARY KEY,
+    name        VARCHAR,
+    birthday    DATE    NOT NULL,
+    login       VARCHAR NOT NULL,
+    email       VARCHAR NOT NULL,
+    -- День рождения без года для поиска именинников: месяц * 100 + день
+    birthday_md INTEGER GENERATED ALWAYS AS (EXTRACT(MONTH FROM birthday) * 100 + EXTRACT(DAY FROM birthday)),
+    CONSTRAINT users_email_uq UNIQUE (email)
+);
+
+-- Вторичные индексы для выборок GET /films и GET /users по диапазонам
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration);
+-- Рейтинг GET /films/popular читается по индексу без агрегации film_likes
+CREATE INDEX IF NOT EXISTS films_popular_idx ON films (likes_count DESC, id);
+CREATE INDEX IF NOT EXISTS users_birthday_idx ON users (birthday);
+CREATE INDEX IF NOT EXISTS users_birthday_md_idx ON users (birthday_md);
+
+-- Первичный ключ (film_id, user_id) служит индексом для подсчета лайков фильма,
+-- обратный индекс - для выборки фильмов, понравившихся пользователю
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id INTEGER NOT NULL REFERENCES films (id),
+    user_id INTEGER NOT NULL REFERENCES users (id),
+    PRIMARY KEY (film_id, user_id)
+);
+CREATE INDEX IF NOT EXISTS film_likes_user_idx ON film_likes (user_id, film_id);
+
+-- Дружба взаимна и хранится двумя строками, поэтому друзья пользователя - префикс первичного ключа
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   INTEGER NOT NULL REFERENCES users (id),
+    friend_id INTEGER NOT NULL REFERENCES users (id),
+    PRIMARY KEY (user_id, friend_id)
+);
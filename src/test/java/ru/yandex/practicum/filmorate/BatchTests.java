@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate;
+
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import utils.RestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class BatchTests extends BaseTest {
+
+    @Test
+    public void addUsersBatchTest() {
+        List<User> users = List.of(
+                User.builder().email("eva1@gmail.com").login("Eva1").birthday(LocalDate.of(1987, 4, 1)).build(),
+                User.builder().email("eva1@gmail.com").login("Eva2").birthday(LocalDate.of(1987, 4, 1)).build(),
+                User.builder().email("eva3@gmail.com").login("Eva 3").birthday(LocalDate.of(1987, 4, 1)).build(),
+                User.builder().email("eva4@gmail.com").login("Eva4").birthday(LocalDate.of(1987, 4, 1)).build());
+        Response resp = RestUtils.post(getUrl("/users/batch"), users, headers);
+        Assert.assertEquals(resp.statusCode(), 200, "Статус POST /users/batch должен быть 200");
+        Assert.assertEquals(resp.jsonPath().getList("status", Integer.class), List.of(201, 400, 400, 201));
+        Assert.assertEquals(resp.jsonPath().getString("[1].errors.error"), "Email должен быть уникальным");
+        Assert.assertEquals(resp.jsonPath().getString("[2].errors.login"), "Логин не может содержать пробелы");
+        Assert.assertEquals(RestUtils.get(getUrl("/users"), ContentType.JSON.toString()).jsonPath().getList("id").size(), 2);
+    }
+
+    @Test
+    public void addFilmsLikesFriendsBatchTest() {
+        RestUtils.post(getUrl("/users/batch"), List.of(
+                User.builder().email("eva1@gmail.com").login("Eva1").birthday(LocalDate.of(1987, 4, 1)).build(),
+                User.builder().email("eva2@gmail.com").login("Eva2").birthday(LocalDate.of(1987, 4, 1)).build()), headers);
+        Response films = RestUtils.post(getUrl("/films/batch"), List.of(
+                Film.builder().name("1").description("1").releaseDate(LocalDate.of(2000, 1, 1)).duration(1).build(),
+                Film.builder().name("2").description("2").releaseDate(LocalDate.of(2000, 1, 1)).duration(1).build()), headers);
+        Assert.assertEquals(films.jsonPath().getList("id", Integer.class), List.of(1, 2));
+
+        Response likes = RestUtils.put(getUrl("/films/likes/batch"),
+                List.of(new FilmLike(2, 1), new FilmLike(2, 2), new FilmLike(1, 3)), headers);
+        Assert.assertEquals(likes.jsonPath().getList("status", Integer.class), List.of(200, 200, 404));
+        Response popular = RestUtils.get(getUrl("/films/popular?count=1"), ContentType.JSON.toString());
+        Assert.assertEquals(popular.jsonPath().getList("likesCount", Integer.class), List.of(2));
+
+        Response friends = RestUtils.put(getUrl("/users/friends/batch"),
+                List.of(new Friendship(1, 2), new Friendship(1, 1)), headers);
+        Assert.assertEquals(friends.jsonPath().getList("status", Integer.class), List.of(200, 400));
+        Response userFriends = RestUtils.get(getUrl("/users/2/friends"), ContentType.JSON.toString());
+        Assert.assertEquals(userFriends.jsonPath().getList("id", Integer.class), List.of(1));
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate;
+
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import utils.RestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CacheTests {
+
+    private static final String BASE_URL = "http://localhost:8080";
+    private static final Map<String, String> HEADERS = new HashMap<>();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeClass
+    public static void setUp() {
+        RestUtils.setRestAssuredConfigHttp();
+        HEADERS.put("Content-Type", "application/json; charset=UTF-8");
+        // Кэш проверяется поверх БД: в памяти хранилище возвращает те же объекты, и устаревание незаметно
+        context = SpringApplication.run(FilmorateApplication.class,
+                "--filmorate.storage=jdbc",
+                "--filmorate.cache.enabled=true");
+        RestUtils.post(BASE_URL + "/users", User.builder().email("eva1@gmail.com").login("Eva1")
+                .birthday(LocalDate.of(1987, 4, 1)).build(), HEADERS);
+        RestUtils.post(BASE_URL + "/users", User.builder().email("eva2@gmail.com").login("Eva2")
+                .birthday(LocalDate.of(1987, 4, 1)).build(), HEADERS);
+        RestUtils.post(BASE_URL + "/films", film(), HEADERS);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void likeInvalidatesCachedFilmTest() {
+        Assert.assertEquals(likesCount(), 0);
+        Assert.assertEquals(RestUtils.put(BASE_URL + "/films/1/like/2", ContentType.JSON, HEADERS).statusCode(), 200);
+        Assert.assertEquals(likesCount(), 1, "Фильм в кэше не обновлен после лайка");
+        RestUtils.delete(BASE_URL + "/films/1/like/2", ContentType.JSON, HEADERS);
+        Assert.assertEquals(likesCount(), 0, "Фильм в кэше не обновлен после удаления лайка");
+    }
+
+    @Test
+    public void friendshipInvalidatesCachedUsersTest() {
+        Assert.assertEquals(friends(2), List.of());
+        RestUtils.put(BASE_URL + "/users/1/friends/2", ContentType.JSON, HEADERS);
+        Assert.assertEquals(friends(1), List.of(2));
+        Assert.assertEquals(friends(2), List.of(1), "Друзья второй стороны не обновлены в кэше");
+    }
+
+    @Test
+    public void missingIdIsCachedUntilCreatedTest() {
+        Response missing = RestUtils.put(BASE_URL + "/films/2/like/1", ContentType.JSON, HEADERS);
+        Assert.assertEquals(missing.statusCode(), 404, "Статус PUT /films/2/like/1 должен быть 404");
+        Response created = RestUtils.post(BASE_URL + "/films", film(), HEADERS);
+        Assert.assertEquals(created.jsonPath().getInt("id"), 2);
+        Response like = RestUtils.put(BASE_URL + "/films/2/like/1", ContentType.JSON, HEADERS);
+        Assert.assertEquals(like.statusCode(), 200, "Отсутствие фильма осталось в кэше после его создания");
+    }
+
+    @Test
+    public void updateMissingIdTest() {
+        Response film = RestUtils.put(BASE_URL + "/films/99", film(), HEADERS);
+        Assert.assertEquals(film.statusCode(), 404, "Статус PUT /films/99 должен быть 404");
+        Response user = RestUtils.put(BASE_URL + "/users/99", User.builder().email("eva99@gmail.com").login("Eva99")
+                .birthday(LocalDate.of(1987, 4, 1)).build(), HEADERS);
+        Assert.assertEquals(user.statusCode(), 404, "Статус PUT /users/99 должен быть 404");
+    }
+
+    @Test(dependsOnMethods = {"likeInvalidatesCachedFilmTest", "friendshipInvalidatesCachedUsersTest",
+            "missingIdIsCachedUntilCreatedTest"})
+    public void statsTest() {
+        Response stats = RestUtils.get(BASE_URL + "/cache/stats", ContentType.JSON.toString());
+        Assert.assertEquals(stats.statusCode(), 200);
+        Assert.assertTrue(stats.jsonPath().getLong("films.hits") > 0, "Нет попаданий в кэш фильмов");
+        Assert.assertTrue(stats.jsonPath().getLong("films.misses") > 0, "Нет промахов кэша фильмов");
+        Assert.assertTrue(stats.jsonPath().getLong("users.hits") > 0, "Нет попаданий в кэш пользователей");
+    }
+
+    @Test
+    public void updateDuringBulkLoadIsNotOverwrittenTest() throws Exception {
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+        AtomicBoolean pause = new AtomicBoolean();
+        // Загрузка пачкой прочитала старый фильм и ждет, пока его изменят
+        InMemoryFilmStorage delegate = new InMemoryFilmStorage() {
+            @Override
+            public List<Film> getMany(Collection<Integer> ids) {
+                List<Film> films = super.getMany(ids);
+                if (pause.getAndSet(false)) {
+                    loaded.countDown();
+                    try {
+                        updated.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return films;
+            }
+        };
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 100, Duration.ofMinutes(5),
+                Duration.ofSeconds(5));
+        storage.addFilm(film());
+        pause.set(true);
+        Thread reader = new Thread(() -> storage.getMany(List.of(1)));
+        reader.start();
+        loaded.await();
+        storage.updateFilm(1, Film.builder().name("Новое название").description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        updated.countDown();
+        reader.join();
+        Assert.assertEquals(storage.getMany(List.of(1)).getFirst().getName(), "Новое название",
+                "Загрузка пачкой вернула в кэш фильм, измененный во время загрузки");
+    }
+
+    private int likesCount() {
+        return RestUtils.get(BASE_URL + "/films?ids=1", ContentType.JSON.toString())
+                .jsonPath().getInt("[0].likesCount");
+    }
+
+    private List<Integer> friends(int id) {
+        return RestUtils.get(BASE_URL + "/users?ids=" + id, ContentType.JSON.toString())
+                .jsonPath().getList("[0].friends", Integer.class);
+    }
+
+    private static Film film() {
+        return Film.builder().name("Фильм").description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build();
+    }
+}
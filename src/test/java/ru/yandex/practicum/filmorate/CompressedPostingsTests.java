@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.collections.CompressedPostings;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+public class CompressedPostingsTests {
+
+    @Test
+    public void largeGapsRoundTripTest() {
+        // Разности до 2^14 и больше занимают три и больше байт varint
+        int[] ids = {1, 128, 16_511, 16_512, 2_113_664, 2_113_665, 270_549_121, Integer.MAX_VALUE};
+        CompressedPostings postings = new CompressedPostings();
+        for (int i = 0; i < ids.length; i++) {
+            postings.put(ids[i], i * 40);
+        }
+        CompressedPostings.Cursor cursor = postings.cursor();
+        for (int i = 0; i < ids.length; i++) {
+            Assert.assertTrue(cursor.next(), "Список оборвался на позиции " + i);
+            Assert.assertEquals(cursor.id(), ids[i]);
+            Assert.assertEquals(cursor.weight(), Math.min(i * 40, 255), "Вес ограничивается значением 255");
+        }
+        Assert.assertFalse(cursor.next());
+        Assert.assertEquals(postings.size(), ids.length);
+    }
+
+    @Test
+    public void randomGapsMatchTreeMapTest() {
+        Random random = new Random(7);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        CompressedPostings postings = new CompressedPostings();
+        int id = 0;
+        for (int i = 0; i < 5000; i++) {
+            id += 1 + (random.nextBoolean() ? random.nextInt(100) : random.nextInt(1 << 20));
+            int weight = random.nextInt(256);
+            expected.put(id, weight);
+            postings.put(id, weight);
+        }
+        // Вставка в середину и удаление перекодируют список
+        for (int i = 0; i < 200; i++) {
+            Integer existing = expected.ceilingKey(1 + random.nextInt(id));
+            if (existing == null) {
+                existing = expected.lastKey();
+            }
+            expected.remove(existing);
+            Assert.assertTrue(postings.remove(existing));
+            int inserted = 1 + random.nextInt(id);
+            expected.put(inserted, 1);
+            postings.put(inserted, 1);
+        }
+        CompressedPostings.Cursor cursor = postings.cursor();
+        expected.forEach((expectedId, weight) -> {
+            Assert.assertTrue(cursor.next());
+            Assert.assertEquals(cursor.id(), (int) expectedId);
+            Assert.assertEquals(cursor.weight(), (int) weight);
+        });
+        Assert.assertFalse(cursor.next());
+        Assert.assertEquals(postings.size(), expected.size());
+    }
+
+    @Test
+    public void advanceAcrossSkipBlocksTest() {
+        // 1000 id через 3: смещения запоминаются каждые 64 id, то есть в 15 блоках
+        CompressedPostings postings = new CompressedPostings();
+        for (int i = 1; i <= 1000; i++) {
+            postings.put(i * 3, i % 256);
+        }
+        // Цели на границах блоков, внутри блоков, между id и через несколько блоков сразу
+        int[] targets = {1, 3, 192, 193, 194, 195, 384, 385, 1000, 1152, 1153, 2500, 2998, 3000};
+        CompressedPostings.Cursor cursor = postings.cursor();
+        for (int target : targets) {
+            int expected = (target + 2) / 3 * 3;
+            Assert.assertTrue(cursor.advance(target), "Не найден id для цели " + target);
+            Assert.assertEquals(cursor.id(), expected, "Некорректный id для цели " + target);
+            Assert.assertEquals(cursor.weight(), expected / 3 % 256);
+        }
+        Assert.assertFalse(cursor.advance(3001), "За последним id курсор должен закончиться");
+
+        for (int target = 1; target <= 3000; target += 61) {
+            CompressedPostings.Cursor fresh = postings.cursor();
+            Assert.assertTrue(fresh.advance(target));
+            Assert.assertEquals(fresh.id(), (target + 2) / 3 * 3, "Некорректный переход с начала к " + target);
+            if (fresh.next()) {
+                Assert.assertEquals(fresh.id(), (target + 2) / 3 * 3 + 3, "После перехода next должен идти подряд");
+            }
+        }
+    }
+
+    @Test
+    public void advanceDoesNotMoveBackTest() {
+        CompressedPostings postings = new CompressedPostings();
+        for (int i = 1; i <= 300; i++) {
+            postings.put(i * 10, 1);
+        }
+        CompressedPostings.Cursor cursor = postings.cursor();
+        Assert.assertTrue(cursor.advance(2000));
+        Assert.assertEquals(cursor.id(), 2000);
+        Assert.assertTrue(cursor.advance(5));
+        Assert.assertEquals(cursor.id(), 2000, "Курсор движется только вперед");
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.collections.ConcurrentIntSet;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentIntSetTests {
+
+    @Test
+    public void splitsKeepAllIdsTest() {
+        // 200 000 id через 2 удваивают полосы до предела
+        ConcurrentIntSet set = new ConcurrentIntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            int id = 2 * (1 + random.nextInt(300_000));
+            Assert.assertEquals(set.add(id), expected.add(id), "Некорректный результат добавления " + id);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            int id = 1 + random.nextInt(600_000);
+            Assert.assertEquals(set.remove(id), expected.remove(id), "Некорректный результат удаления " + id);
+        }
+        Assert.assertEquals(set.toArray(), expected.stream().mapToInt(Integer::intValue).toArray());
+        for (int id = 1; id <= 1000; id++) {
+            Assert.assertEquals(set.contains(id), expected.contains(id));
+        }
+        int[] count = new int[1];
+        set.forEach(id -> count[0]++);
+        Assert.assertEquals(count[0], expected.size());
+    }
+
+    @Test
+    public void concurrentAddsAndRemovesTest() throws Exception {
+        // Каждый поток добавляет свои id, удаляет каждый третий, и полосы удваиваются во время записи
+        int threads = 8;
+        int perThread = 20_000;
+        ConcurrentIntSet set = new ConcurrentIntSet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        int id = i * threads + thread;
+                        Assert.assertTrue(set.add(id));
+                        if (i % 3 == 0) {
+                            Assert.assertTrue(set.remove(id));
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                if (i % 3 != 0) {
+                    expected.add(i * threads + t);
+                }
+            }
+        }
+        Assert.assertEquals(set.toArray(), expected.stream().mapToInt(Integer::intValue).toArray());
+        Assert.assertFalse(set.isEmpty());
+    }
+
+    @Test
+    public void emptySetTest() {
+        ConcurrentIntSet set = new ConcurrentIntSet();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(set.toArray(), new int[0]);
+        Assert.assertFalse(set.remove(1));
+        Assert.assertEquals(set, new ConcurrentIntSet());
+    }
+}
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FilmRecommenderTests {
+
+    private static final int USERS = 40;
+    private static final int FILMS = 30;
+
+    @DataProvider
+    public Object[][] neighbors() {
+        // При маленьком числе соседей часть связей отсекается, и важен порядок отбора
+        return new Object[][]{{20}, {3}};
+    }
+
+    @Test(dataProvider = "neighbors")
+    public void incrementalUpdatesMatchFullRebuildTest(int neighbors) {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            userStorage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            filmStorage.addFilm(Film.builder().name("film" + i).description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        }
+        FilmRecommender recommender = new FilmRecommender(filmStorage, userStorage, neighbors);
+        recommender.rebuild();
+        Random random = new Random(42);
+        for (int step = 0; step < 2000; step++) {
+            int filmId = 1 + random.nextInt(FILMS);
+            int userId = 1 + random.nextInt(USERS);
+            if (random.nextInt(3) == 0 ? filmStorage.deleteLike(filmId, userId) : filmStorage.addLike(filmId, userId)) {
+                recommender.likesChanged(userId);
+            }
+            if (step % 100 == 0) {
+                int user = 1 + random.nextInt(USERS);
+                Assert.assertEquals(recommender.recommend(user, 5), expected(filmStorage, userStorage, neighbors, user),
+                        "Рекомендации пользователю " + user + " на шаге " + step);
+            }
+        }
+        for (int user = 1; user <= USERS; user++) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(filmStorage, userStorage, neighbors, user),
+                    "Рекомендации пользователю " + user);
+        }
+    }
+
+    @Test(dataProvider = "neighbors")
+    public void deletesMatchFullRebuildTest(int neighbors) {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            userStorage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            filmStorage.addFilm(Film.builder().name("film" + i).description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 400; i++) {
+            filmStorage.addLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+        }
+        FilmRecommender recommender = new FilmRecommender(filmStorage, userStorage, neighbors);
+        recommender.rebuild();
+        for (int step = 0; step < 10; step++) {
+            int userId = 1 + random.nextInt(USERS);
+            if (userStorage.getUsers().containsKey(userId)) {
+                filmStorage.deleteUserLikes(userId);
+                userStorage.deleteUser(userId);
+                recommender.likesChanged(userId);
+            }
+            int filmId = 1 + random.nextInt(FILMS);
+            if (filmStorage.deleteFilm(filmId)) {
+                recommender.filmDeleted(filmId);
+            }
+        }
+        for (int user : userStorage.getUsers().keySet()) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(filmStorage, userStorage, neighbors, user),
+                    "Рекомендации пользователю " + user);
+        }
+    }
+
+    @Test(dataProvider = "neighbors")
+    public void batchLikesMatchFullRebuildTest(int neighbors) {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            userStorage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            filmStorage.addFilm(Film.builder().name("film" + i).description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        }
+        FilmRecommender recommender = new FilmRecommender(filmStorage, userStorage, neighbors);
+        recommender.rebuild();
+        Random random = new Random(11);
+        for (int batch = 0; batch < 10; batch++) {
+            List<FilmLike> likes = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                likes.add(new FilmLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS)));
+            }
+            recommender.likesChanged(filmStorage.addLikes(likes).stream().map(FilmLike::getUserId).toList());
+        }
+        for (int user = 1; user <= USERS; user++) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(filmStorage, userStorage, neighbors, user),
+                    "Рекомендации пользователю " + user);
+        }
+    }
+
+    @Test
+    public void concurrentUpdatesMatchFullRebuildTest() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            userStorage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            filmStorage.addFilm(Film.builder().name("film" + i).description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        }
+        FilmRecommender recommender = new FilmRecommender(filmStorage, userStorage, 20);
+        recommender.rebuild();
+        // Лайки одного пользователя меняются из разных потоков, и уведомления о них приходят в любом порядке,
+        // а рекомендации читаются параллельно с ними
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int seed = thread;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int step = 0; step < 3000; step++) {
+                    int filmId = 1 + random.nextInt(FILMS);
+                    int userId = 1 + random.nextInt(USERS);
+                    if (step % 50 == 0) {
+                        recommender.recommend(userId, 5);
+                    } else if (random.nextInt(3) == 0 ? filmStorage.deleteLike(filmId, userId)
+                            : filmStorage.addLike(filmId, userId)) {
+                        recommender.likesChanged(userId);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        for (int user = 1; user <= USERS; user++) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(filmStorage, userStorage, 20, user),
+                    "Рекомендации пользователю " + user);
+        }
+    }
+
+    @Test
+    public void notificationsBeforeBuildAreNotLostTest() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 3; i++) {
+            userStorage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+            filmStorage.addFilm(Film.builder().name("film" + i).description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        }
+        FilmRecommender recommender = new FilmRecommender(filmStorage, userStorage, 20);
+        // Модель не построена: уведомления копятся и переполняют очередь, а построение читает хранилище
+        for (int i = 0; i < 10_000; i++) {
+            filmStorage.addLike(1 + i % 2, 1);
+            recommender.likesChanged(1);
+            filmStorage.deleteLike(1 + i % 2, 1);
+            recommender.likesChanged(1);
+        }
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(2, 1);
+        filmStorage.addLike(1, 2);
+        recommender.likesChanged(List.of(1, 2));
+        Assert.assertEquals(recommender.recommend(2, 5), new int[]{2});
+        filmStorage.deleteLike(2, 1);
+        filmStorage.addLike(3, 1);
+        recommender.likesChanged(1);
+        recommender.likesChanged(1);
+        Assert.assertEquals(recommender.recommend(2, 5), new int[]{3},
+                "Повторное уведомление не должно удваивать лайк");
+    }
+
+    private static int[] expected(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                                  int neighbors, int userId) {
+        FilmRecommender rebuilt = new FilmRecommender(filmStorage, userStorage, neighbors);
+        rebuilt.rebuild();
+        return rebuilt.recommend(userId, 5);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class FilmSearchIndexTests {
+
+    private static final String[] WORDS = {"кот", "кошка", "котенок", "пес", "песня", "море", "морж", "лес", "лето",
+            "ночь", "нож", "город", "горы", "гора", "дом"};
+
+    @Test
+    public void searchMatchesFullScanTest() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        FilmSearchIndex index = new FilmSearchIndex(storage);
+        Random random = new Random(42);
+        for (int i = 0; i < 3000; i++) {
+            index.filmChanged(storage.addFilm(film(text(random, 1 + random.nextInt(3)),
+                    text(random, 3 + random.nextInt(10)))).getId());
+            if (i == 100) {
+                // Дальше индекс обновляется инкрементально
+                index.search("кот", 1, false);
+            }
+        }
+        // Уведомления приходят пачками и в обратном порядке, один фильм может меняться несколько раз подряд
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int id = 1 + random.nextInt(3000);
+            if (!storage.getFilms().containsKey(id)) {
+                continue;
+            }
+            if (i % 50 == 7) {
+                storage.deleteFilm(id);
+            } else {
+                storage.updateFilm(id, film(text(random, 2), text(random, 5)));
+            }
+            changed.add(id);
+            if (changed.size() == 10) {
+                index.filmsChanged(changed.reversed());
+                changed.clear();
+            }
+        }
+        for (String query : List.of("кот", "кош", "кошка кот", "пес мор", "город гор", "лес лето ночь", "дом нож",
+                "ко", "кит")) {
+            Assert.assertEquals(new HashSet<>(index.search(query, 5000, false)), fullScan(storage, query),
+                    "Результат поиска \"" + query + "\"");
+        }
+    }
+
+    @Test
+    public void nameMatchesRankHigherTest() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        FilmSearchIndex index = new FilmSearchIndex(storage);
+        storage.addFilm(film("Лето", "Фильм о море"));
+        storage.addFilm(film("Море", "Фильм о лете"));
+        storage.addFilm(film("Город", "Море, море, море"));
+        Assert.assertEquals(index.search("море", 10, false), List.of(2, 3, 1));
+        Assert.assertEquals(index.search("море", 1, false), List.of(2));
+        for (int user = 1; user <= 20; user++) {
+            storage.addLike(1, user);
+        }
+        Assert.assertEquals(index.search("море", 10, true).getFirst(), 1, "Лайки должны поднимать фильм в выдаче");
+    }
+
+    private static Set<Integer> fullScan(InMemoryFilmStorage storage, String query) {
+        String[] tokens = query.toLowerCase(Locale.ROOT).split(" ");
+        return storage.getAllFilms().stream()
+                .filter(film -> {
+                    Set<String> words = Arrays.stream((film.getName() + " " + film.getDescription())
+                            .toLowerCase(Locale.ROOT).split(" ")).collect(Collectors.toSet());
+                    for (int i = 0; i < tokens.length; i++) {
+                        String token = tokens[i];
+                        boolean prefix = i == tokens.length - 1 && token.length() >= 3;
+                        if (words.stream().noneMatch(word -> prefix ? word.startsWith(token) : word.equals(token))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                })
+                .map(Film::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static Film film(String name, String description) {
+        return Film.builder().name(name).description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build();
+    }
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FriendRecommenderTests {
+
+    private static final int USERS = 60;
+
+    @DataProvider
+    public Object[][] maxCandidates() {
+        // При маленьком ограничении кандидаты отбрасываются и карта пересчитывается при чтении
+        return new Object[][]{{500}, {8}};
+    }
+
+    @Test(dataProvider = "maxCandidates")
+    public void incrementalUpdatesMatchFullRecomputeTest(int maxCandidates) {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            storage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        FriendRecommender recommender = new FriendRecommender(storage, maxCandidates);
+        Random random = new Random(42);
+        for (int step = 0; step < 2000; step++) {
+            int id = 1 + random.nextInt(USERS);
+            int friendId = 1 + random.nextInt(USERS);
+            if (id == friendId) {
+                continue;
+            }
+            if (random.nextInt(3) == 0) {
+                recommender.deleteFriend(id, friendId);
+            } else {
+                recommender.addFriend(id, friendId);
+            }
+            if (step % 100 == 0) {
+                int user = 1 + random.nextInt(USERS);
+                Assert.assertEquals(recommender.recommend(user, 5), expected(storage, user, 5),
+                        "Рекомендации пользователю " + user + " на шаге " + step);
+            }
+        }
+        for (int user = 1; user <= USERS; user++) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(storage, user, 5),
+                    "Рекомендации пользователю " + user);
+        }
+    }
+
+    @Test(dataProvider = "maxCandidates")
+    public void batchAddsMatchFullRecomputeTest(int maxCandidates) {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            storage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        FriendRecommender recommender = new FriendRecommender(storage, maxCandidates);
+        recommender.recommend(1, 5);
+        Random random = new Random(7);
+        for (int batch = 0; batch < 20; batch++) {
+            // Дружбы внутри пакета делят пользователей и повторяются, в том числе в обратном порядке
+            List<Friendship> friendships = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                int id = 1 + random.nextInt(USERS);
+                int friendId = 1 + random.nextInt(USERS);
+                if (id != friendId) {
+                    friendships.add(new Friendship(id, friendId));
+                    if (i % 10 == 0) {
+                        friendships.add(new Friendship(friendId, id));
+                    }
+                }
+            }
+            recommender.addFriends(friendships);
+            for (int i = 0; i < 10; i++) {
+                int id = 1 + random.nextInt(USERS);
+                int friendId = 1 + random.nextInt(USERS);
+                if (id != friendId) {
+                    recommender.deleteFriend(id, friendId);
+                }
+            }
+        }
+        for (int user = 1; user <= USERS; user++) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(storage, user, 5),
+                    "Рекомендации пользователю " + user);
+        }
+        recommender.clearUsers();
+        Assert.assertTrue(storage.getUsers().isEmpty());
+        Assert.assertEquals(recommender.recommend(1, 5), new int[0], "После очистки кандидатов не остается");
+    }
+
+    @Test(dataProvider = "maxCandidates")
+    public void concurrentUpdatesMatchFullRecomputeTest(int maxCandidates) throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            storage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        FriendRecommender recommender = new FriendRecommender(storage, maxCandidates);
+        recommender.recommend(1, 5);
+        // Дружбы с общими пользователями меняются из разных потоков, а рекомендации читаются параллельно с ними
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int seed = thread;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int step = 0; step < 3000; step++) {
+                    int id = 1 + random.nextInt(USERS);
+                    int friendId = 1 + random.nextInt(USERS);
+                    if (step % 50 == 0) {
+                        recommender.recommend(id, 5);
+                    } else if (id == friendId) {
+                        continue;
+                    } else if (random.nextInt(3) == 0) {
+                        recommender.deleteFriend(id, friendId);
+                    } else {
+                        recommender.addFriend(id, friendId);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        for (int user = 1; user <= USERS; user++) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(storage, user, 5),
+                    "Рекомендации пользователю " + user);
+        }
+    }
+
+    @Test(dataProvider = "maxCandidates")
+    public void deleteUserMatchesFullRecomputeTest(int maxCandidates) {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= USERS; i++) {
+            storage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            int id = 1 + random.nextInt(USERS);
+            int friendId = 1 + random.nextInt(USERS);
+            if (id != friendId) {
+                storage.addFriend(id, friendId);
+            }
+        }
+        FriendRecommender recommender = new FriendRecommender(storage, maxCandidates);
+        recommender.recommend(1, 5);
+        for (int step = 0; step < 10; step++) {
+            int id = 1 + random.nextInt(USERS);
+            if (storage.getUsers().containsKey(id)) {
+                recommender.deleteUser(id);
+            }
+        }
+        for (int user : storage.getUsers().keySet()) {
+            Assert.assertEquals(recommender.recommend(user, 5), expected(storage, user, 5),
+                    "Рекомендации пользователю " + user);
+        }
+    }
+
+    private static int[] expected(InMemoryUserStorage storage, int id, int count) {
+        int[] friends = storage.getFriendIds(id);
+        Map<Integer, Integer> common = new HashMap<>();
+        for (int friend : friends) {
+            for (int candidate : storage.getFriendIds(friend)) {
+                if (candidate != id && Arrays.binarySearch(friends, candidate) < 0) {
+                    common.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return common.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(count)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+}
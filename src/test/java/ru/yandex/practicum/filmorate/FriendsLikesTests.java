@@ -179,6 +179,21 @@ public class FriendsLikesTests extends BaseTest {
         //Assert.assertTrue(user2.get("id").equals(""));
     }
 
+    @Test
+    public void getCommonFriendsCount() {
+        fillUsersFilms();
+        RestUtils.put(getUrl("/users/1/friends/6"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/users/1/friends/5"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/users/1/friends/2"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/users/3/friends/2"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/users/3/friends/5"), ContentType.JSON, headers);
+        Response resp = RestUtils.get(getUrl("/users/1/friends/common/3/count"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /users/1/friends/common/3/count должен быть 200");
+        Assert.assertEquals(resp.jsonPath().getInt("count"), 2);
+        Response common = RestUtils.get(getUrl("/users/1/friends/common/3"), ContentType.JSON.toString());
+        Assert.assertEquals(common.jsonPath().getList("id", Integer.class), List.of(2, 5));
+    }
+
     @Test
     public void getPopularFilmsTest() {
         fillUsersFilms();
@@ -198,6 +213,27 @@ public class FriendsLikesTests extends BaseTest {
         //Assert.assertTrue(ids.get(2).equals(2));
     }
 
+    @Test
+    public void getPopularFilmsOrderTest() {
+        fillUsersFilms();
+        for (int i = 1; i <= 3; i++) {
+            RestUtils.put(getUrl(String.format("/films/7/like/%d", i)), ContentType.JSON, headers);
+            RestUtils.put(getUrl(String.format("/films/3/like/%d", i)), ContentType.JSON, headers);
+        }
+        RestUtils.put(getUrl("/films/5/like/1"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/5/like/2"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/5/like/3"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/5/like/4"), ContentType.JSON, headers);
+        RestUtils.delete(getUrl("/films/5/like/4"), ContentType.JSON, headers);
+        RestUtils.delete(getUrl("/films/5/like/3"), ContentType.JSON, headers);
+        Response resp = RestUtils.get(getUrl("/films/popular?count=4"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET films/popular должен быть 200");
+        List<Integer> ids = resp.jsonPath().getList("id", Integer.class);
+        Assert.assertEquals(ids, List.of(3, 7, 5, 1), "Некорректный порядок популярных фильмов");
+        List<Integer> likesCounts = resp.jsonPath().getList("likesCount", Integer.class);
+        Assert.assertEquals(likesCounts, List.of(3, 3, 2, 0), "Некорректное количество лайков");
+    }
+
     @Test
     public void getCommonFriendsListUserNotFoundTest() {
         fillUsersFilms();
@@ -219,4 +255,145 @@ public class FriendsLikesTests extends BaseTest {
         Assert.assertEquals(resp2.statusCode(), 500, "Статус DELETE /users/1/friends/aaa должен быть 500");
         Assert.assertTrue(resp2.as(Map.class).get("error").toString().contains("Произошла непредвиденная ошибка"));
     }
+
+    @Test
+    public void getRecommendationsTest() {
+        fillUsersFilms();
+        for (String pair : List.of("1/2", "1/3", "2/4", "3/4", "2/5")) {
+            RestUtils.put(getUrl("/users/" + pair.replace("/", "/friends/")), ContentType.JSON, headers);
+        }
+        Assert.assertEquals(recommendations(1), List.of(4, 5), "Некорректные рекомендации");
+        // После первого запроса рекомендации обновляются инкрементально
+        RestUtils.delete(getUrl("/users/3/friends/4"), ContentType.JSON, headers);
+        Assert.assertEquals(recommendations(1), List.of(4, 5), "При равенстве общих друзей порядок по id");
+        RestUtils.put(getUrl("/users/3/friends/5"), ContentType.JSON, headers);
+        Assert.assertEquals(recommendations(1), List.of(5, 4), "Рекомендации не обновлены после добавления друга");
+        RestUtils.put(getUrl("/users/1/friends/5"), ContentType.JSON, headers);
+        Assert.assertEquals(recommendations(1), List.of(4), "Друзья не должны попадать в рекомендации");
+        Assert.assertEquals(recommendations(4), List.of(1, 5), "Некорректные рекомендации второму пользователю");
+    }
+
+    @Test
+    public void getRecommendationsAfterBatchTest() {
+        fillUsersFilms();
+        RestUtils.put(getUrl("/users/1/friends/2"), ContentType.JSON, headers);
+        Assert.assertEquals(recommendations(1), List.of());
+        RestUtils.put(getUrl("/users/friends/batch"), List.of(Map.of("userId", 2, "friendId", 7)), headers);
+        Assert.assertEquals(recommendations(1), List.of(7), "Рекомендации не обновлены после пакетного добавления");
+    }
+
+    @Test
+    public void getRecommendationsUserNotFoundTest() {
+        Response resp = RestUtils.get(getUrl("/users/21/recommendations"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 404, "Статус GET /users/21/recommendations должен быть 404");
+    }
+
+    @Test
+    public void getRecommendedFilmsTest() {
+        fillUsersFilms();
+        for (String like : List.of("1/1", "1/2", "2/2", "3/2", "1/3", "2/3", "4/4")) {
+            RestUtils.put(getUrl("/films/" + like.replace("/", "/like/")), ContentType.JSON, headers);
+        }
+        Assert.assertEquals(recommendedFilms(1), List.of(2, 3), "Некорректные рекомендации фильмов");
+        // После первого запроса модель обновляется инкрементально
+        RestUtils.put(getUrl("/films/1/like/5"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/3/like/5"), ContentType.JSON, headers);
+        RestUtils.delete(getUrl("/films/2/like/3"), ContentType.JSON, headers);
+        Assert.assertEquals(recommendedFilms(1), List.of(3, 2), "Рекомендации не обновлены после изменения лайков");
+        RestUtils.put(getUrl("/films/3/like/1"), ContentType.JSON, headers);
+        Assert.assertEquals(recommendedFilms(1), List.of(2), "Лайкнутые фильмы не должны попадать в рекомендации");
+        Assert.assertEquals(recommendedFilms(6), List.of(), "Пользователю без лайков нечего рекомендовать");
+    }
+
+    @Test
+    public void getRecommendedFilmsTooLargeCountTest() {
+        fillUsersFilms();
+        Response resp = RestUtils.get(getUrl("/users/1/recommended-films?count=2000000000"),
+                ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 400, "Слишком большой count должен отклоняться");
+    }
+
+    @Test
+    public void getRecommendedFilmsUserNotFoundTest() {
+        Response resp = RestUtils.get(getUrl("/users/21/recommended-films"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 404, "Статус GET /users/21/recommended-films должен быть 404");
+    }
+
+    @Test
+    public void getTrendingFilmsTest() {
+        fillUsersFilms();
+        for (String like : List.of("3/1", "3/2", "5/1", "3/3")) {
+            RestUtils.put(getUrl("/films/" + like.replace("/", "/like/")), ContentType.JSON, headers);
+        }
+        RestUtils.delete(getUrl("/films/3/like/3"), ContentType.JSON, headers);
+        Response resp = RestUtils.get(getUrl("/films/trending?period=hour&count=5"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /films/trending должен быть 200");
+        Assert.assertEquals(resp.jsonPath().getList("id", Integer.class), List.of(3, 5), "Некорректный рейтинг за час");
+        Response badPeriod = RestUtils.get(getUrl("/films/trending?period=month"), ContentType.JSON.toString());
+        Assert.assertEquals(badPeriod.statusCode(), 400, "Статус GET /films/trending?period=month должен быть 400");
+    }
+
+    @Test
+    public void deleteUserTest() {
+        fillUsersFilms();
+        RestUtils.put(getUrl("/users/1/friends/6"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/users/6/friends/7"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/2/like/6"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/2/like/7"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/3/like/6"), ContentType.JSON, headers);
+        Response resp = RestUtils.delete(getUrl("/users/6"), ContentType.JSON, headers);
+        Assert.assertEquals(resp.statusCode(), 200, "Статус DELETE /users/6 должен быть 200");
+        Assert.assertEquals(resp.as(Map.class).get("message"), "Пользователь 6 удален");
+        Assert.assertEquals(RestUtils.get(getUrl("/users/6"), ContentType.JSON.toString()).statusCode(), 404,
+                "Удаленный пользователь не должен находиться");
+        Assert.assertEquals(friendIds(1), List.of(), "Удаленный пользователь должен пропасть из друзей");
+        Assert.assertEquals(friendIds(7), List.of(), "Удаленный пользователь должен пропасть из друзей");
+        Response popular = RestUtils.get(getUrl("/films/popular?count=2"), ContentType.JSON.toString());
+        Assert.assertEquals(popular.jsonPath().getList("id", Integer.class), List.of(2, 1));
+        Assert.assertEquals(popular.jsonPath().getList("likesCount", Integer.class), List.of(1, 0),
+                "Лайки удаленного пользователя должны быть сняты");
+        Response again = RestUtils.delete(getUrl("/users/6"), ContentType.JSON, headers);
+        Assert.assertEquals(again.statusCode(), 404, "Статус повторного DELETE /users/6 должен быть 404");
+    }
+
+    @Test
+    public void deleteFilmTest() {
+        fillUsersFilms();
+        RestUtils.put(getUrl("/films/4/like/1"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/4/like/2"), ContentType.JSON, headers);
+        RestUtils.put(getUrl("/films/5/like/1"), ContentType.JSON, headers);
+        Response resp = RestUtils.delete(getUrl("/films/4"), ContentType.JSON, headers);
+        Assert.assertEquals(resp.statusCode(), 200, "Статус DELETE /films/4 должен быть 200");
+        Assert.assertEquals(resp.as(Map.class).get("message"), "Фильм 4 удален");
+        Response films = RestUtils.get(getUrl("/films?limit=5"), ContentType.JSON.toString());
+        Assert.assertEquals(films.jsonPath().getList("id", Integer.class), List.of(1, 2, 3, 5, 6),
+                "Удаленный фильм не должен попадать в список");
+        Response popular = RestUtils.get(getUrl("/films/popular?count=1"), ContentType.JSON.toString());
+        Assert.assertEquals(popular.jsonPath().getList("id", Integer.class), List.of(5));
+        Response trending = RestUtils.get(getUrl("/films/trending?period=hour&count=5"), ContentType.JSON.toString());
+        Assert.assertEquals(trending.jsonPath().getList("id", Integer.class), List.of(5),
+                "Удаленный фильм должен пропасть из рейтинга за час");
+        Response like = RestUtils.put(getUrl("/films/4/like/3"), ContentType.JSON, headers);
+        Assert.assertEquals(like.statusCode(), 404, "Статус PUT /films/4/like/3 должен быть 404");
+        Response again = RestUtils.delete(getUrl("/films/4"), ContentType.JSON, headers);
+        Assert.assertEquals(again.statusCode(), 404, "Статус повторного DELETE /films/4 должен быть 404");
+    }
+
+    private List<Integer> friendIds(int id) {
+        Response resp = RestUtils.get(getUrl("/users/" + id + "/friends"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /users/" + id + "/friends должен быть 200");
+        return resp.jsonPath().getList("id", Integer.class);
+    }
+
+    private List<Integer> recommendedFilms(int id) {
+        Response resp = RestUtils.get(getUrl("/users/" + id + "/recommended-films"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /users/" + id + "/recommended-films должен быть 200");
+        return resp.jsonPath().getList("id", Integer.class);
+    }
+
+    private List<Integer> recommendations(int id) {
+        Response resp = RestUtils.get(getUrl("/users/" + id + "/recommendations"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /users/" + id + "/recommendations должен быть 200");
+        return resp.jsonPath().getList("id", Integer.class);
+    }
 }
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityValidator;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.TrendingFilms.Period;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class HotFilmLikesTests {
+
+    private static final int THREADS = 32;
+    private static final int USERS = 3200;
+
+    @Test
+    public void concurrentLikesOfOneFilmTest() throws InterruptedException {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 1; i <= 3; i++) {
+            storage.addFilm(film("film" + i));
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 1; t <= THREADS; t++) {
+            int first = t;
+            threads.add(new Thread(() -> {
+                for (int userId = first; userId <= USERS; userId += THREADS) {
+                    storage.addLike(1, userId);
+                    if (userId % 5 != 0) {
+                        storage.addLike(2, userId);
+                    }
+                    if (userId % 3 == 0) {
+                        storage.deleteLike(1, userId);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        // Замена фильма во время лайков не должна терять их
+        for (int i = 0; i < 20; i++) {
+            storage.updateFilm(1, film("film1 v" + i));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int[] expectedFirst = IntStream.rangeClosed(1, USERS).filter(userId -> userId % 3 != 0).toArray();
+        int[] expectedSecond = IntStream.rangeClosed(1, USERS).filter(userId -> userId % 5 != 0).toArray();
+        Film first = storage.getFilms().get(1);
+        Assert.assertEquals(first.getLikes().toArray(), expectedFirst, "Лайки первого фильма");
+        Assert.assertEquals(first.getLikesCount(), expectedFirst.length, "Счетчик лайков первого фильма");
+        Assert.assertEquals(storage.getFilms().get(2).getLikesCount(), expectedSecond.length,
+                "Счетчик лайков второго фильма");
+        Assert.assertEquals(storage.getPopularFilmIds(3), List.of(2, 1, 3), "Рейтинг должен учесть все лайки");
+        for (int userId = 1; userId <= USERS; userId++) {
+            List<Integer> liked = new ArrayList<>();
+            if (userId % 3 != 0) {
+                liked.add(1);
+            }
+            if (userId % 5 != 0) {
+                liked.add(2);
+            }
+            Assert.assertEquals(storage.getLikedFilmIds(userId), liked, "Фильмы пользователя " + userId);
+        }
+    }
+
+    @Test
+    public void concurrentLikesThroughServiceTest() throws InterruptedException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 3; i++) {
+            filmStorage.addFilm(film("film" + i));
+        }
+        for (int i = 1; i <= USERS; i++) {
+            userStorage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1)).build());
+        }
+        FilmRecommender recommender = new FilmRecommender(filmStorage, userStorage, 20);
+        TrendingFilms trending = new TrendingFilms(filmStorage, Duration.ofDays(1));
+        FilmService service = new FilmService(filmStorage, userStorage,
+                new EntityValidator(Validation.buildDefaultValidatorFactory().getValidator(), new SimpleMeterRegistry()),
+                recommender, trending, new FilmSearchIndex(filmStorage));
+        recommender.rebuild();
+        // Тот же путь, что у PUT/DELETE /films/{id}/like/{userId}: хранилище, рекомендации и популярное
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 1; t <= THREADS; t++) {
+            int first = t;
+            threads.add(new Thread(() -> {
+                for (int userId = first; userId <= USERS; userId += THREADS) {
+                    service.addLike(1, userId);
+                    if (userId % 5 != 0) {
+                        service.addLike(2, userId);
+                    }
+                    if (userId % 7 == 0) {
+                        service.addLike(3, userId);
+                    }
+                    if (userId % 3 == 0) {
+                        service.deleteLike(1, userId);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(filmStorage.getFilms().get(1).getLikesCount(), USERS - USERS / 3, "Лайки первого фильма");
+        Assert.assertEquals(trending.top(Period.HOUR, 3), List.of(2, 1, 3), "Популярное за час");
+        FilmRecommender rebuilt = new FilmRecommender(filmStorage, userStorage, 20);
+        rebuilt.rebuild();
+        for (int userId = 1; userId <= 100; userId++) {
+            Assert.assertEquals(recommender.recommend(userId, 3), rebuilt.recommend(userId, 3),
+                    "Рекомендации пользователю " + userId);
+        }
+    }
+
+    private static Film film(String name) {
+        return Film.builder().name(name).description("")
+                .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build();
+    }
+}
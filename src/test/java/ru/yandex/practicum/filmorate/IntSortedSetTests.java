@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.collections.IntSortedSet;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+public class IntSortedSetTests {
+
+    @DataProvider
+    public Object[][] sizes() {
+        // Пустые, равные по размеру (слияние) и сильно различающиеся (поиск галопом) множества
+        return new Object[][]{
+                {0, 0, 100}, {0, 50, 100}, {50, 0, 100},
+                {1, 1, 10}, {40, 60, 100}, {500, 500, 100_000},
+                {3, 5000, 10_000}, {5000, 3, 10_000}, {20, 100_000, 1_000_000}, {1, 100_000, 200_000}
+        };
+    }
+
+    @Test(dataProvider = "sizes")
+    public void intersectMatchesRetainAllTest(int firstSize, int secondSize, int range) {
+        Random random = new Random(firstSize * 31L + secondSize);
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Integer> first = randomSet(random, firstSize, range);
+            TreeSet<Integer> second = randomSet(random, secondSize, range);
+            TreeSet<Integer> expected = new TreeSet<>(first);
+            expected.retainAll(second);
+            int[] expectedIds = expected.stream().mapToInt(Integer::intValue).toArray();
+            IntSortedSet firstSet = of(first);
+            IntSortedSet secondSet = of(second);
+            Assert.assertEquals(IntSortedSet.intersect(firstSet, secondSet), expectedIds,
+                    "Пересечение множеств размеров " + firstSize + " и " + secondSize);
+            Assert.assertEquals(IntSortedSet.intersectionSize(firstSet, secondSet), expectedIds.length,
+                    "Размер пересечения множеств размеров " + firstSize + " и " + secondSize);
+        }
+    }
+
+    @Test
+    public void intersectDisjointSetsTest() {
+        IntSortedSet even = IntSortedSet.of(2, 4, 6, 8, 10);
+        IntSortedSet odd = new IntSortedSet();
+        for (int i = 1; i < 2000; i += 2) {
+            odd.add(i);
+        }
+        Assert.assertEquals(IntSortedSet.intersect(even, odd), new int[0], "Пересечение непересекающихся множеств");
+        Assert.assertEquals(IntSortedSet.intersectionSize(odd, even), 0, "Пересечение непересекающихся множеств");
+        // Все элементы меньшего множества за пределами большего
+        IntSortedSet beyond = IntSortedSet.of(5000, 6000);
+        Assert.assertEquals(IntSortedSet.intersect(beyond, odd), new int[0], "Элементы за концом большего множества");
+    }
+
+    private static TreeSet<Integer> randomSet(Random random, int size, int range) {
+        TreeSet<Integer> set = new TreeSet<>();
+        while (set.size() < size) {
+            set.add(1 + random.nextInt(range));
+        }
+        return set;
+    }
+
+    private static IntSortedSet of(TreeSet<Integer> set) {
+        return IntSortedSet.ofSorted(set.stream().mapToInt(Integer::intValue).toArray());
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate;
+
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.journal.DurableStore;
+import ru.yandex.practicum.filmorate.storage.journal.FsyncPolicy;
+import utils.RestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class JournalTests {
+
+    private static final String BASE_URL = "http://localhost:8080";
+    private static final Map<String, String> HEADERS = new HashMap<>();
+
+    @BeforeClass
+    public static void setUp() {
+        RestUtils.setRestAssuredConfigHttp();
+        HEADERS.put("Content-Type", "application/json; charset=UTF-8");
+    }
+
+    @Test
+    public void restartRestoresStateTest() throws IOException {
+        Path dir = Files.createTempDirectory("filmorate-journal");
+        try (ConfigurableApplicationContext ignored = start(dir)) {
+            RestUtils.post(BASE_URL + "/users", User.builder().email("eva1@gmail.com").login("Eva1")
+                    .birthday(LocalDate.of(1987, 4, 1)).build(), HEADERS);
+            RestUtils.post(BASE_URL + "/users", User.builder().email("eva2@gmail.com").login("Eva2")
+                    .birthday(LocalDate.of(1987, 4, 1)).build(), HEADERS);
+            RestUtils.post(BASE_URL + "/films", Film.builder().name("Фильм").description("Описание")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build(), HEADERS);
+            RestUtils.put(BASE_URL + "/films/1/like/2", ContentType.JSON, HEADERS);
+            RestUtils.put(BASE_URL + "/users/1/friends/2", ContentType.JSON, HEADERS);
+            RestUtils.put(BASE_URL + "/users/2", User.builder().email("eva3@gmail.com").login("Eva3")
+                    .birthday(LocalDate.of(1987, 4, 1)).build(), HEADERS);
+        }
+        try (ConfigurableApplicationContext ignored = start(dir)) {
+            Response users = RestUtils.get(BASE_URL + "/users", ContentType.JSON.toString());
+            Assert.assertEquals(users.jsonPath().getList("email"), List.of("eva1@gmail.com", "eva3@gmail.com"),
+                    "Пользователи не восстановлены после перезапуска");
+            Response friends = RestUtils.get(BASE_URL + "/users/2/friends", ContentType.JSON.toString());
+            Assert.assertEquals(friends.jsonPath().getList("id", Integer.class), List.of(1));
+            Response popular = RestUtils.get(BASE_URL + "/films/popular?count=10", ContentType.JSON.toString());
+            Assert.assertEquals(popular.jsonPath().getList("likesCount", Integer.class), List.of(1));
+
+            Response user = RestUtils.post(BASE_URL + "/users", User.builder().email("eva2@gmail.com").login("Eva2")
+                    .birthday(LocalDate.of(1987, 4, 1)).build(), HEADERS);
+            Assert.assertEquals(user.jsonPath().getInt("id"), 3, "Нумерация id должна продолжиться");
+        }
+    }
+
+    @Test
+    public void replayJournalWithTornTailTest() throws IOException {
+        Path dir = Files.createTempDirectory("filmorate-journal");
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        try (DurableStore store = DurableStore.open(dir, storage, FsyncPolicy.ALWAYS, Duration.ZERO)) {
+            for (int i = 0; i < 3; i++) {
+                storage.addFilm(Film.builder().name("Фильм " + i).description("")
+                        .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+            }
+            storage.addLike(1, 10);
+            storage.addLike(2, 10);
+            store.snapshot();
+            storage.addLike(2, 11);
+            storage.deleteLike(1, 10);
+        }
+        // Сбой во время дозаписи оставляет в конце журнала оборванную запись
+        try (Stream<Path> files = Files.list(dir)) {
+            Path segment = files.filter(file -> file.toString().endsWith(".log")).sorted().toList().getLast();
+            Files.write(segment, new byte[]{0, 0, 0, 9, 1, 2}, StandardOpenOption.APPEND);
+        }
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage();
+        try (DurableStore ignored = DurableStore.open(dir, restored, FsyncPolicy.ALWAYS, Duration.ZERO)) {
+            Assert.assertEquals(restored.getFilms().size(), 3);
+            Assert.assertEquals(restored.getPopularFilmIds(3), List.of(2, 1, 3));
+            Assert.assertEquals(restored.getFilms().get(2).getLikesCount(), 2);
+            Assert.assertEquals(restored.getLikedFilmIds(10), List.of(2));
+            Assert.assertEquals(restored.addFilm(Film.builder().name("Фильм").description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build()).getId(), 4);
+        }
+    }
+
+    @Test
+    public void replayJournalWithDeletesTest() throws IOException {
+        Path dir = Files.createTempDirectory("filmorate-journal");
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        // Журналы хранилищ различаются по имени и лежат в одном каталоге
+        try (DurableStore ignoredUsers = DurableStore.open(dir, users, FsyncPolicy.ALWAYS, Duration.ZERO);
+             DurableStore ignoredFilms = DurableStore.open(dir, films, FsyncPolicy.ALWAYS, Duration.ZERO)) {
+            for (int i = 1; i <= 3; i++) {
+                users.addUser(User.builder().email("eva" + i + "@gmail.com").login("Eva" + i)
+                        .birthday(LocalDate.of(1987, 4, 1)).build());
+                films.addFilm(Film.builder().name("Фильм " + i).description("")
+                        .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+            }
+            users.addFriend(1, 2);
+            users.addFriend(2, 3);
+            films.addLike(1, 2);
+            films.addLike(2, 2);
+            films.addLike(2, 3);
+            films.deleteFilm(1);
+            films.deleteUserLikes(2);
+            users.deleteUser(2);
+        }
+
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        try (DurableStore ignoredUsers = DurableStore.open(dir, restoredUsers, FsyncPolicy.ALWAYS, Duration.ZERO);
+             DurableStore ignoredFilms = DurableStore.open(dir, restoredFilms, FsyncPolicy.ALWAYS, Duration.ZERO)) {
+            Assert.assertEquals(restoredUsers.getUsers().keySet(), Set.of(1, 3));
+            Assert.assertEquals(restoredUsers.getFriendIds(1), new int[0], "Удаленный друг должен исчезнуть");
+            Assert.assertEquals(restoredUsers.getFriendIds(3), new int[0], "Удаленный друг должен исчезнуть");
+            Assert.assertEquals(restoredFilms.getFilms().keySet(), Set.of(2, 3));
+            Assert.assertEquals(restoredFilms.getFilms().get(2).getLikesCount(), 1);
+            Assert.assertEquals(restoredFilms.getLikedFilmIds(2), List.of());
+            Assert.assertEquals(restoredFilms.getLikedFilmIds(3), List.of(2));
+        }
+    }
+
+    private ConfigurableApplicationContext start(Path dir) {
+        return SpringApplication.run(FilmorateApplication.class,
+                "--filmorate.storage=memory",
+                "--filmorate.journal.enabled=true",
+                "--filmorate.journal.dir=" + dir,
+                "--filmorate.journal.fsync=always");
+    }
+}
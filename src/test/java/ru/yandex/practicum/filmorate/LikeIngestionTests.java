@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.collections.MpscArrayQueue;
+import ru.yandex.practicum.filmorate.exceptions.QueueFullException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityValidator;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.TrendingFilms.Period;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class LikeIngestionTests {
+
+    private static final int USERS = 60;
+    private static final int FILMS = 30;
+    private static final int THREADS = 4;
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    public void asyncLikesMatchSyncLikesTest() throws InterruptedException {
+        Setup sync = new Setup(1024);
+        Setup async = new Setup(64);
+        sync.recommender.rebuild();
+        async.recommender.rebuild();
+        Random random = new Random(42);
+        List<int[]> likes = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            // Популярные фильмы получают большую часть лайков, есть и повторные лайки
+            int filmId = random.nextInt(4) == 0 ? 1 + random.nextInt(FILMS) : 1 + random.nextInt(3);
+            likes.add(new int[]{filmId, 1 + random.nextInt(USERS)});
+        }
+        for (int[] like : likes) {
+            sync.service.storeLike(like[0], like[1]);
+        }
+        async.ingestion.start();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int first = t;
+            threads.add(new Thread(() -> {
+                for (int i = first; i < likes.size(); i += THREADS) {
+                    while (true) {
+                        try {
+                            async.ingestion.submit(likes.get(i)[0], likes.get(i)[1]);
+                            break;
+                        } catch (QueueFullException e) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        async.ingestion.flush();
+        async.ingestion.stop();
+
+        Assert.assertEquals(async.ingestion.getApplied(), likes.size(), "Применены не все принятые лайки");
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            Assert.assertEquals(async.filmStorage.getFilms().get(filmId).getLikes(),
+                    sync.filmStorage.getFilms().get(filmId).getLikes(), "Лайки фильма " + filmId);
+        }
+        Assert.assertEquals(async.filmStorage.getPopularFilmIds(10), sync.filmStorage.getPopularFilmIds(10),
+                "Популярные фильмы");
+        Assert.assertEquals(async.trending.top(Period.HOUR, 10), sync.trending.top(Period.HOUR, 10),
+                "Популярное за час");
+        for (int userId = 1; userId <= USERS; userId++) {
+            Assert.assertEquals(async.recommender.recommend(userId, 5), sync.recommender.recommend(userId, 5),
+                    "Рекомендации пользователю " + userId);
+        }
+    }
+
+    @Test
+    public void fullQueueRejectsLikesTest() throws InterruptedException {
+        Setup setup = new Setup(4);
+        for (int userId = 1; userId <= 4; userId++) {
+            setup.ingestion.submit(1, userId);
+        }
+        Assert.assertThrows(QueueFullException.class, () -> setup.ingestion.submit(1, 5));
+        Assert.assertEquals(setup.ingestion.getRejected(), 1, "Отклоненный лайк не учтен");
+        setup.ingestion.start();
+        setup.ingestion.flush();
+        Assert.assertEquals(setup.filmStorage.getFilms().get(1).getLikesCount(), 4,
+                "Должны примениться только принятые лайки");
+        setup.ingestion.submit(1, 5);
+        setup.ingestion.stop();
+        Assert.assertEquals(setup.filmStorage.getFilms().get(1).getLikesCount(), 5,
+                "Остановка должна применить лайки из очереди");
+    }
+
+    @Test
+    public void failedBatchIsAppliedLikeByLikeTest() throws InterruptedException {
+        // Пачка с лайком фильму 2 не применяется целиком, а сам этот лайк - и по одному
+        InMemoryFilmStorage failing = new InMemoryFilmStorage() {
+            @Override
+            public List<FilmLike> addLikes(List<FilmLike> likes) {
+                throw new IllegalStateException("Пачка не применена");
+            }
+
+            @Override
+            public boolean addLike(int filmId, int userId) {
+                if (filmId == 2) {
+                    throw new IllegalStateException("Лайк не применен");
+                }
+                return super.addLike(filmId, userId);
+            }
+        };
+        Setup setup = new Setup(16, failing);
+        setup.recommender.rebuild();
+        setup.ingestion.submit(1, 1);
+        setup.ingestion.submit(2, 2);
+        setup.ingestion.submit(1, 3);
+        setup.ingestion.submit(3, 3);
+        setup.ingestion.start();
+        setup.ingestion.flush();
+        setup.ingestion.stop();
+        Assert.assertEquals(setup.ingestion.getApplied(), 3, "Лайки пачки должны примениться по одному");
+        Assert.assertEquals(setup.ingestion.getFailed(), 1, "Не примененный лайк не учтен");
+        Assert.assertEquals(setup.filmStorage.getFilms().get(1).getLikesCount(), 2);
+        Assert.assertEquals(setup.filmStorage.getFilms().get(2).getLikesCount(), 0);
+        Assert.assertEquals(setup.trending.top(Period.HOUR, 10), List.of(1, 3), "Популярное за час");
+        Assert.assertEquals(setup.recommender.recommend(1, 5), new int[]{3}, "Рекомендации по лайкам из пачки");
+    }
+
+    @Test
+    public void mpscQueueKeepsEveryProducerOrderTest() throws InterruptedException {
+        MpscArrayQueue<int[]> queue = new MpscArrayQueue<>(256);
+        int perProducer = 50_000;
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < THREADS; p++) {
+            int producer = p;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(new int[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        int[] next = new int[THREADS];
+        int received = 0;
+        while (received < THREADS * perProducer) {
+            received += queue.drain(element -> {
+                Assert.assertEquals(element[1], next[element[0]], "Нарушен порядок производителя " + element[0]);
+                next[element[0]]++;
+            }, 100);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertTrue(queue.isEmpty(), "Лишние элементы в очереди");
+    }
+
+    private static class Setup {
+
+        private final InMemoryFilmStorage filmStorage;
+        private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        private final FilmRecommender recommender;
+        private final TrendingFilms trending;
+        private final FilmService service;
+        private final LikeIngestion ingestion;
+
+        private Setup(int queueCapacity) {
+            this(queueCapacity, new InMemoryFilmStorage());
+        }
+
+        private Setup(int queueCapacity, InMemoryFilmStorage filmStorage) {
+            this.filmStorage = filmStorage;
+            this.recommender = new FilmRecommender(filmStorage, userStorage, 3);
+            this.trending = new TrendingFilms(filmStorage, Duration.ofDays(1), CLOCK);
+            for (int i = 1; i <= USERS; i++) {
+                userStorage.addUser(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                        .birthday(LocalDate.of(1990, 1, 1)).build());
+            }
+            for (int i = 1; i <= FILMS; i++) {
+                filmStorage.addFilm(Film.builder().name("film" + i).description("")
+                        .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+            }
+            EntityValidator validator = new EntityValidator(Validation.buildDefaultValidatorFactory().getValidator(),
+                    new SimpleMeterRegistry());
+            service = new FilmService(filmStorage, userStorage, validator,
+                    recommender, trending, new FilmSearchIndex(filmStorage));
+            ingestion = new LikeIngestion(filmStorage, userStorage, service, true, queueCapacity, 16);
+        }
+    }
+}
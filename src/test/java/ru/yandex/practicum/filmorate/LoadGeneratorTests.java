@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.load.LoadConfig;
+import utils.load.LoadGenerator;
+import utils.load.LoadReport;
+import utils.load.Operation;
+
+import java.time.Duration;
+
+public class LoadGeneratorTests extends BaseTest {
+
+    // Секунда нагрузки и засев; зависание пула соединений должно ронять тест, а не весь прогон
+    private static final long TIMEOUT_MS = 60_000;
+
+    @Test(timeOut = TIMEOUT_MS)
+    public void shortRunTest() {
+        assertRun(config().workers(4).build());
+    }
+
+    @Test(timeOut = TIMEOUT_MS)
+    public void virtualThreadsRunTest() {
+        assertRun(config().virtualThreads(true).connections(4).build());
+    }
+
+    private LoadConfig.LoadConfigBuilder config() {
+        return LoadConfig.builder()
+                .baseUrl(baseUrl)
+                .rate(50)
+                .duration(Duration.ofSeconds(1))
+                .warmup(Duration.ZERO)
+                .users(20)
+                .films(5)
+                .friendsPerUser(3);
+    }
+
+    private void assertRun(LoadConfig config) {
+        LoadReport report = new LoadGenerator(config).run();
+        Assert.assertEquals(report.getTotal().count(), 50, "Отправлено не то количество запросов");
+        Assert.assertEquals(report.getTotal().errors(), 0, "Запросы завершились ошибками");
+        for (Operation operation : Operation.values()) {
+            Assert.assertTrue(report.getOperations().containsKey(operation), "Нет статистики " + operation.getKey());
+        }
+        Assert.assertTrue(report.getTotal().p99() >= report.getTotal().p50());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.collections.LongLongMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongLongMapTests {
+
+    @Test
+    public void matchesHashMapTest() {
+        // Ключи в духе id фильма в старших битах и id пользователя в младших
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 200_000; i++) {
+            long key = (long) (1 + random.nextInt(500)) << 32 | (1 + random.nextInt(500));
+            long value = random.nextLong();
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                case 1 -> Assert.assertEquals(map.remove(key), expected.remove(key) != null,
+                        "Некорректный результат удаления " + key);
+                default -> {
+                    long current = expected.getOrDefault(key, value);
+                    Assert.assertEquals(map.remove(key, current), expected.remove(key, current),
+                            "Некорректный результат удаления по значению " + key);
+                }
+            }
+        }
+        Assert.assertEquals(map.size(), expected.size());
+        expected.forEach((key, value) -> Assert.assertEquals(map.getOrDefault(key, -1), (long) value));
+        for (int i = 0; i < 10_000; i++) {
+            long key = (long) (1 + random.nextInt(500)) << 32 | (1 + random.nextInt(500));
+            Assert.assertEquals(map.containsKey(key), expected.containsKey(key));
+        }
+    }
+
+    @Test
+    public void removeKeepsValueThatChangedTest() {
+        LongLongMap map = new LongLongMap();
+        map.put(7, 1);
+        map.put(7, 2);
+        Assert.assertFalse(map.remove(7, 1), "Ключ с новым значением не должен удаляться по старому");
+        Assert.assertEquals(map.getOrDefault(7, 0), 2);
+        Assert.assertTrue(map.remove(7, 2));
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+    }
+}
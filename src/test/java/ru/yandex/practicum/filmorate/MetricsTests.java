@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate;
+
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import utils.RestUtils;
+
+import java.time.LocalDate;
+
+public class MetricsTests extends BaseTest {
+
+    @Test
+    public void prometheusEndpointTest() {
+        Film film = Film.builder().name("Фильм").description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build();
+        RestUtils.post(getUrl("/films"), film, headers);
+        RestUtils.put(getUrl("/films/1/like/100"), ContentType.JSON, headers);
+        RestUtils.post(getUrl("/films"), film.toBuilder().duration(-1).build(), headers);
+
+        Response response = RestUtils.get(getUrl("/actuator/prometheus"), ContentType.TEXT.toString());
+        Assert.assertEquals(response.statusCode(), 200, "Статус GET /actuator/prometheus должен быть 200");
+        String metrics = response.body().asString();
+        for (String name : new String[]{"http_server_requests_seconds_bucket", "filmorate_service_seconds_bucket",
+                "filmorate_storage_seconds_count", "filmorate_films 1.0", "filmorate_users 0.0", "filmorate_likes",
+                "filmorate_friendships", "filmorate_film_likes_size_buckets{le=\"0\",}",
+                "filmorate_user_friends_size_max", "filmorate_coalescing_executions_total",
+                "filmorate_not_found_total 1.0", "filmorate_validation_failures_total{source=\"request\",} 1.0"}) {
+            Assert.assertTrue(metrics.contains(name), "Нет метрики " + name);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.collections.MpscArrayQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MpscArrayQueueTests {
+
+    // Застрявшая голова делает очередь вечно непустой, поэтому тест ограничен по времени
+    @Test(timeOut = 10_000)
+    public void drainContinuesAfterConsumerThrowsTest() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        // Несколько кругов по кольцу: исключение на каждом третьем элементе не должно сбивать голову
+        for (int round = 0; round < 10; round++) {
+            while (queue.offer(next)) {
+                next++;
+            }
+            Assert.assertEquals(queue.size(), 4, "Очередь должна заполниться полностью");
+            while (!queue.isEmpty()) {
+                try {
+                    queue.drain(element -> {
+                        if (element % 3 == 2) {
+                            throw new IllegalStateException("Ошибка обработки " + element);
+                        }
+                        drained.add(element);
+                    }, Integer.MAX_VALUE);
+                } catch (IllegalStateException e) {
+                    // Элемент, на котором упал обработчик, считается извлеченным
+                }
+            }
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < next; i++) {
+            if (i % 3 != 2) {
+                expected.add(i);
+            }
+        }
+        Assert.assertEquals(drained, expected, "Элементы потеряны или извлечены повторно");
+        Assert.assertTrue(queue.offer(-1));
+        Assert.assertEquals(queue.drain(drained::add, 1), 1);
+        Assert.assertEquals(drained.getLast(), -1);
+    }
+
+    @Test
+    public void offerFailsWhenFullTest() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(2);
+        Assert.assertTrue(queue.offer(1));
+        Assert.assertTrue(queue.offer(2));
+        Assert.assertFalse(queue.offer(3), "Заполненная очередь должна отказывать");
+        List<Integer> drained = new ArrayList<>();
+        Assert.assertEquals(queue.drain(drained::add, 1), 1);
+        Assert.assertTrue(queue.offer(3));
+        Assert.assertEquals(queue.drain(drained::add, 10), 2);
+        Assert.assertEquals(drained, List.of(1, 2, 3));
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.KeyRange;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+public class SecondaryIndexTests {
+
+    @Test
+    public void findFilmsMatchesFullScanTest() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            storage.addFilm(film(random));
+        }
+        for (int i = 0; i < 500; i++) {
+            storage.updateFilm(1 + random.nextInt(2000), film(random));
+        }
+        for (int i = 0; i < 200; i++) {
+            KeyRange<LocalDate> releaseDate = random.nextInt(4) == 0 ? KeyRange.all()
+                    : KeyRange.of(date(random), random.nextBoolean() ? null : date(random));
+            KeyRange<Long> duration = random.nextInt(4) == 0 ? KeyRange.all()
+                    : KeyRange.of(random.nextBoolean() ? null : 60L + random.nextInt(120), 60L + random.nextInt(120));
+            int afterId = random.nextInt(1000);
+            int limit = 1 + random.nextInt(300);
+            List<Film> expected = storage.getAllFilms().stream()
+                    .filter(film -> film.getId() > afterId && releaseDate.contains(film.getReleaseDate())
+                            && duration.contains(film.getDuration()))
+                    .limit(limit)
+                    .toList();
+            Assert.assertEquals(storage.findFilms(releaseDate, duration, afterId, limit), expected,
+                    "Выборка по индексам " + releaseDate + ", " + duration);
+        }
+    }
+
+    @Test
+    public void clearFilmsClearsIndexesTest() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        storage.addFilm(film(new Random(1)));
+        storage.clearFilms();
+        Assert.assertEquals(storage.findFilms(KeyRange.all(), KeyRange.of(0L, null), 0, 10), List.of());
+    }
+
+    private static Film film(Random random) {
+        return Film.builder().name("Фильм").description("")
+                .releaseDate(date(random)).duration(60 + random.nextInt(120)).build();
+    }
+
+    private static LocalDate date(Random random) {
+        return LocalDate.of(1950, 1, 1).plusDays(random.nextInt(365 * 70));
+    }
+}
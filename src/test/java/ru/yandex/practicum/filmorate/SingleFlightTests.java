@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.exceptions.IdNotFoundException;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    public void concurrentCallsShareOneComputationTest() throws Exception {
+        SingleFlight<Integer, List<Integer>> flight = new SingleFlight<>("test");
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<List<Integer>> leader = executor.submit(() -> flight.execute(10, () -> {
+                computations.incrementAndGet();
+                started.countDown();
+                await(release);
+                return List.of(1, 2, 3);
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            List<Future<List<Integer>>> waiters = new ArrayList<>();
+            for (int i = 1; i < CALLERS; i++) {
+                waiters.add(executor.submit(() -> flight.execute(10, () -> {
+                    computations.incrementAndGet();
+                    return List.of();
+                })));
+            }
+            // Ожидающие должны успеть присоединиться до завершения вычисления
+            while (flight.getWaiting() < CALLERS - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            Assert.assertEquals(leader.get(5, TimeUnit.SECONDS), List.of(1, 2, 3));
+            for (Future<List<Integer>> waiter : waiters) {
+                Assert.assertSame(waiter.get(5, TimeUnit.SECONDS), leader.get(), "Ожидающий получил другой результат");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(computations.get(), 1, "Вычисление должно выполниться один раз");
+        Assert.assertEquals(flight.getStats().get("coalesced"), (long) CALLERS - 1);
+        Assert.assertEquals(flight.getStats().get("maxWaiters"), CALLERS - 1);
+
+        Assert.assertEquals(flight.execute(10, () -> List.of(4)), List.of(4), "Результат не должен запоминаться");
+    }
+
+    @Test
+    public void waitersReceiveComputationExceptionTest() throws Exception {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = executor.submit(() -> flight.execute(1, () -> {
+                started.countDown();
+                await(release);
+                throw new IdNotFoundException("Пользователь с id=1 не найден");
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<Integer> waiter = executor.submit(() -> flight.execute(1, () -> 0));
+            while (flight.getWaiting() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (Future<Integer> future : List.of(leader, waiter)) {
+                ExecutionException e = Assert.expectThrows(ExecutionException.class, future::get);
+                Assert.assertTrue(e.getCause() instanceof IdNotFoundException, "Исключение должно дойти до всех");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
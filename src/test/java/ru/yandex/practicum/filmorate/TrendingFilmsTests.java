@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import ru.yandex.practicum.filmorate.exceptions.CustomValidationExpression;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.TrendingFilms.Period;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+public class TrendingFilmsTests {
+
+    private MutableClock clock;
+    private TrendingFilms trending;
+
+    @BeforeMethod
+    public void setUp() {
+        clock = new MutableClock();
+        trending = new TrendingFilms(Duration.ofDays(1), clock);
+    }
+
+    @Test
+    public void windowsForgetOldLikesTest() {
+        like(1, 1, 2, 3);
+        clock.advance(Duration.ofHours(2));
+        like(2, 1, 2);
+        like(3, 1);
+        Assert.assertEquals(trending.top(Period.HOUR, 10), List.of(2, 3), "Старые лайки не должны попадать в час");
+        Assert.assertEquals(trending.top(Period.DAY, 10), List.of(1, 2, 3), "Некорректный рейтинг за сутки");
+        clock.advance(Duration.ofDays(2));
+        Assert.assertEquals(trending.top(Period.DAY, 10), List.of(), "Лайки двухдневной давности не входят в сутки");
+        Assert.assertEquals(trending.top(Period.WEEK, 2), List.of(1, 2), "Некорректный рейтинг за неделю");
+        clock.advance(Duration.ofDays(8));
+        Assert.assertEquals(trending.top(Period.WEEK, 10), List.of(), "Окно недели должно опустеть");
+    }
+
+    @Test
+    public void deleteLikeSubtractsFromItsBucketTest() {
+        like(1, 1, 2);
+        clock.advance(Duration.ofHours(3));
+        like(2, 1);
+        trending.likeDeleted(1, 1);
+        trending.likeDeleted(1, 2);
+        Assert.assertEquals(trending.top(Period.DAY, 10), List.of(2), "Удаленные лайки должны вычитаться");
+        clock.advance(Duration.ofHours(23));
+        // Лайк на фильм 2 еще в окне суток, а удаления не должны увести счетчики в минус
+        Assert.assertEquals(trending.top(Period.DAY, 10), List.of(2));
+    }
+
+    @Test
+    public void decayPrefersRecentLikesTest() {
+        like(1, 1, 2, 3, 4);
+        clock.advance(Duration.ofDays(3));
+        like(2, 1);
+        like(3, 1, 2);
+        // Четыре лайка трехдневной давности весят как половина свежего
+        Assert.assertEquals(trending.top(Period.DECAY, 10), List.of(3, 2, 1), "Некорректная затухающая оценка");
+        trending.likeDeleted(3, 1);
+        trending.likeDeleted(3, 2);
+        Assert.assertEquals(trending.top(Period.DECAY, 10), List.of(2, 1), "Удаленные лайки должны вычитаться");
+        // Веса пересчитываются от нового начала отсчета без переполнения, забытые лайки отбрасываются
+        clock.advance(Duration.ofDays(300));
+        like(4, 1);
+        Assert.assertEquals(trending.top(Period.DECAY, 1), List.of(4));
+    }
+
+    @Test
+    public void concurrentAddAndDeleteLeaveNoPhantomLikesTest() throws InterruptedException {
+        // Потоки ставят и снимают одни и те же лайки; удаление не должно опередить учет своего добавления
+        int films = 8;
+        int users = 2;
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int i = 1; i <= films; i++) {
+            filmStorage.addFilm(Film.builder().name("film" + i).description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).build());
+        }
+        trending = new TrendingFilms(filmStorage, Duration.ofDays(1), clock);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    int filmId = 1 + random.nextInt(films);
+                    int userId = 1 + random.nextInt(users);
+                    if (random.nextBoolean()) {
+                        filmStorage.addLike(filmId, userId);
+                    } else {
+                        filmStorage.deleteLike(filmId, userId);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int filmId = 1; filmId <= films; filmId++) {
+            filmStorage.deleteLike(filmId, 1);
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int filmId = 1; filmId <= films; filmId++) {
+            if (filmStorage.getFilms().get(filmId).getLikesCount() > 0) {
+                expected.add(filmId);
+            }
+        }
+        List<Integer> actual = new ArrayList<>(trending.top(Period.DAY, films));
+        actual.sort(null);
+        Assert.assertEquals(actual, expected, "Популярное должно совпадать с лайками в хранилище");
+    }
+
+    @Test
+    public void parsePeriodTest() {
+        Assert.assertEquals(Period.parse("week"), Period.WEEK);
+        Assert.assertThrows(CustomValidationExpression.class, () -> Period.parse("month"));
+    }
+
+    private void like(int filmId, int... userIds) {
+        for (int userId : userIds) {
+            trending.likeAdded(filmId, userId);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -7,11 +7,13 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 import ru.yandex.practicum.filmorate.BaseTest;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
 import utils.JsonUtils;
 import utils.RestUtils;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -46,4 +48,161 @@ public class FilmControllerTests extends BaseTest {
         Assert.assertEquals(resp.statusCode(), 200, "Статус GET /films должен быть 200");
         Assert.assertEquals(films.size(), 0, "Некорректный размер списка фильмов");
     }
+
+    @Test
+    public void getFilmsPageTest() {
+        for (int i = 1; i <= 5; i++) {
+            Film film = Film.builder()
+                    .name(Integer.toString(i))
+                    .releaseDate(LocalDate.of(1895, 12, 28))
+                    .description("11")
+                    .duration(1)
+                    .build();
+            RestUtils.post(getUrl("/films"), film, headers);
+        }
+        Response resp1 = RestUtils.get(getUrl("/films?limit=2&cursor=0"), ContentType.JSON.toString());
+        Assert.assertEquals(resp1.statusCode(), 200, "Статус GET /films должен быть 200");
+        Assert.assertEquals(resp1.jsonPath().getList("id", Integer.class), List.of(1, 2), "Некорректная страница фильмов");
+        Assert.assertEquals(resp1.getHeader("X-Next-Cursor"), "2", "Некорректный курсор следующей страницы");
+
+        Response resp2 = RestUtils.get(getUrl("/films?limit=4&cursor=2"), ContentType.JSON.toString());
+        Assert.assertEquals(resp2.jsonPath().getList("id", Integer.class), List.of(3, 4, 5), "Некорректная страница фильмов");
+        Assert.assertNull(resp2.getHeader("X-Next-Cursor"), "Последняя страница не должна содержать курсор");
+    }
+
+    @Test
+    public void getFilmsPageTooLargeLimitTest() {
+        Response resp = RestUtils.get(getUrl("/films?limit=2000000000"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 400, "Слишком большой limit должен отклоняться");
+        Response users = RestUtils.get(getUrl("/users?limit=2000000000"), ContentType.JSON.toString());
+        Assert.assertEquals(users.statusCode(), 400, "Слишком большой limit должен отклоняться");
+    }
+
+    @Test
+    public void streamFilmsTest() {
+        for (int i = 1; i <= 3; i++) {
+            Film film = Film.builder()
+                    .name(Integer.toString(i))
+                    .releaseDate(LocalDate.of(1895, 12, 28))
+                    .description("11")
+                    .duration(1)
+                    .build();
+            RestUtils.post(getUrl("/films"), film, headers);
+        }
+        Response resp = RestUtils.get(getUrl("/films/stream"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /films/stream должен быть 200");
+        Assert.assertEquals(resp.jsonPath().getList("id", Integer.class), List.of(1, 2, 3), "Некорректный список фильмов");
+    }
+
+    @Test
+    public void getPopularFilmsNotModifiedTest() {
+        Film film = Film.builder()
+                .name("1")
+                .releaseDate(LocalDate.of(1895, 12, 28))
+                .description("11")
+                .duration(1)
+                .build();
+        RestUtils.post(getUrl("/films"), film, headers);
+        RestUtils.post(getUrl("/users"), User.builder().email("eva@gmail.com").login("Eva")
+                .birthday(LocalDate.of(1987, 4, 26)).build(), headers);
+        Response resp1 = RestUtils.get(getUrl("/films/popular?count=10"), ContentType.JSON.toString());
+        String etag = resp1.getHeader("ETag");
+        Assert.assertNotNull(etag, "Ответ GET /films/popular должен содержать ETag");
+
+        Response resp2 = RestUtils.get(getUrl("/films/popular?count=10"), null, Map.of("If-None-Match", etag), null);
+        Assert.assertEquals(resp2.statusCode(), 304, "Неизменившийся рейтинг должен возвращать 304");
+
+        RestUtils.put(getUrl("/films/1/like/1"), ContentType.JSON, headers);
+        Response resp3 = RestUtils.get(getUrl("/films/popular?count=10"), null, Map.of("If-None-Match", etag), null);
+        Assert.assertEquals(resp3.statusCode(), 200, "После лайка рейтинг должен вернуться заново");
+        Assert.assertNotEquals(resp3.getHeader("ETag"), etag, "После лайка ETag должен измениться");
+        Assert.assertEquals(resp3.jsonPath().getList("likesCount", Integer.class), List.of(1));
+    }
+
+    @Test
+    public void getAllFilmsNotModifiedTest() {
+        Response resp1 = RestUtils.get(getUrl("/films"), ContentType.JSON.toString());
+        String etag = resp1.getHeader("ETag");
+        Response resp2 = RestUtils.get(getUrl("/films"), null, Map.of("If-None-Match", etag), null);
+        Assert.assertEquals(resp2.statusCode(), 304, "Неизменившийся список фильмов должен возвращать 304");
+
+        RestUtils.post(getUrl("/films"), Film.builder()
+                .name("1")
+                .releaseDate(LocalDate.of(1895, 12, 28))
+                .description("11")
+                .duration(1)
+                .build(), headers);
+        Response resp3 = RestUtils.get(getUrl("/films"), null, Map.of("If-None-Match", etag), null);
+        Assert.assertEquals(resp3.statusCode(), 200, "После добавления фильма список должен вернуться заново");
+        Assert.assertEquals(resp3.jsonPath().getList("id", Integer.class), List.of(1));
+    }
+
+    @Test
+    public void searchFilmsTest() {
+        for (String[] text : new String[][]{{"Матрица", "Хакер узнает правду"}, {"Хакеры", "Подростки против корпорации"},
+                {"Ёлки", "Новогодняя комедия"}}) {
+            RestUtils.post(getUrl("/films"), Film.builder().name(text[0]).description(text[1])
+                    .releaseDate(LocalDate.of(1999, 3, 31)).duration(120).build(), headers);
+        }
+        Assert.assertEquals(searchIds("хакер"), List.of(2, 1), "Совпадение в названии должно быть выше");
+        Assert.assertEquals(searchIds("елки"), List.of(3), "Ё и е не должны различаться");
+        Film update = Film.builder().name("Начало").description("Сон во сне")
+                .releaseDate(LocalDate.of(2010, 7, 8)).duration(148).build();
+        RestUtils.put(getUrl("/films/1"), update, headers);
+        Assert.assertEquals(searchIds("хакер"), List.of(2), "Индекс не обновлен после изменения фильма");
+        Assert.assertEquals(searchIds("сон"), List.of(1));
+        for (String query : new String[]{"", " ", "?!"}) {
+            Response resp = RestUtils.get(getUrl("/films/search?query=" + query), ContentType.JSON.toString());
+            Assert.assertEquals(resp.statusCode(), 400, "Статус GET /films/search с пустым запросом должен быть 400");
+        }
+        Response resp = RestUtils.get(getUrl("/films/search?query=хакер&count=2000000000"),
+                ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 400, "Слишком большой count должен отклоняться");
+    }
+
+    @Test
+    public void getFilmsByRangeTest() {
+        int[][] films = {{1999, 136}, {2010, 148}, {1985, 116}, {2010, 90}, {1972, 175}};
+        for (int[] film : films) {
+            RestUtils.post(getUrl("/films"), Film.builder().name("Фильм").description("")
+                    .releaseDate(LocalDate.of(film[0], 1, 1)).duration(film[1]).build(), headers);
+        }
+        Assert.assertEquals(filmIds("releasedFrom=1990-01-01&releasedTo=2010-01-01"), List.of(1, 2, 4));
+        Assert.assertEquals(filmIds("maxDuration=120"), List.of(3, 4), "Некорректная выборка по продолжительности");
+        Assert.assertEquals(filmIds("releasedFrom=2000-01-01&minDuration=100"), List.of(2));
+        RestUtils.put(getUrl("/films/4"), Film.builder().name("Фильм").description("")
+                .releaseDate(LocalDate.of(1960, 1, 1)).duration(90).build(), headers);
+        Assert.assertEquals(filmIds("releasedFrom=1990-01-01"), List.of(1, 2), "Индекс не обновлен после изменения");
+
+        Response resp = RestUtils.get(getUrl("/films?releasedTo=2000-01-01&limit=2"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.jsonPath().getList("id", Integer.class), List.of(1, 3));
+        Assert.assertEquals(resp.getHeader("X-Next-Cursor"), "3", "Некорректный курсор следующей страницы");
+        Assert.assertEquals(filmIds("releasedTo=2000-01-01&limit=2&cursor=3"), List.of(4, 5));
+    }
+
+    @Test
+    public void getFilmsByRangeWithoutLimitTest() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i <= 10_000; i++) {
+            films.add(Film.builder().name("Фильм").description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(100).build());
+        }
+        RestUtils.post(getUrl("/films/batch"), films, headers);
+        Response resp = RestUtils.get(getUrl("/films?releasedFrom=1990-01-01"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.jsonPath().getList("id").size(), 10_000, "Выборка без limit должна ограничиваться");
+        Assert.assertEquals(resp.getHeader("X-Next-Cursor"), "10000", "Некорректный курсор следующей страницы");
+        Assert.assertEquals(filmIds("releasedFrom=1990-01-01&cursor=10000"), List.of(10_001));
+    }
+
+    private List<Integer> filmIds(String filter) {
+        Response resp = RestUtils.get(getUrl("/films?" + filter), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /films должен быть 200");
+        return resp.jsonPath().getList("id", Integer.class);
+    }
+
+    private List<Integer> searchIds(String query) {
+        Response resp = RestUtils.get(getUrl("/films/search?query=" + query), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /films/search должен быть 200");
+        return resp.jsonPath().getList("id", Integer.class);
+    }
 }
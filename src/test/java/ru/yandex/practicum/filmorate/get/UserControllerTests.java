@@ -79,4 +79,93 @@ public class UserControllerTests extends BaseTest {
         Map<String, String> errors = resp.as(Map.class);
         Assert.assertTrue(errors.get("error").contains("Произошла непредвиденная ошибка"));
     }
+
+    @Test
+    public void getUserByEmailValid() {
+        User userToAdd = User.builder()
+                .name("Eva")
+                .email("eva@gmail.com")
+                .login("Eva")
+                .birthday(LocalDate.of(1987, 4, 26))
+                .build();
+
+        User addedUser = RestUtils.post(getUrl("/users"), userToAdd, headers).as(User.class);
+        Response resp = RestUtils.get(getUrl("/users/by-email?email=eva@gmail.com"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /users/by-email должен быть 200");
+        Assert.assertTrue(addedUser.equals(resp.as(User.class)), "Пользователь получен некорректно");
+    }
+
+    @Test
+    public void getUserByEmailNotFound() {
+        Response resp = RestUtils.get(getUrl("/users/by-email?email=eva@gmail.com"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 404, "Статус GET /users/by-email должен быть 404");
+        Map<String, String> errors = resp.as(Map.class);
+        Assert.assertTrue(errors.get("error").equals("Пользователь с email=eva@gmail.com не найден"));
+    }
+
+    @Test
+    public void getUsersByIdsTest() {
+        for (int i = 1; i <= 3; i++) {
+            User user = User.builder()
+                    .email(String.format("eva%d@gmail.com", i))
+                    .login(String.format("Eva%d", i))
+                    .birthday(LocalDate.of(1987, 4, 26))
+                    .build();
+            RestUtils.post(getUrl("/users"), user, headers);
+        }
+        Response resp = RestUtils.get(getUrl("/users?ids=3,7,1"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /users должен быть 200");
+        Assert.assertEquals(resp.jsonPath().getList("id", Integer.class), List.of(3, 1),
+                "Отсутствующие id должны пропускаться, порядок - сохраняться");
+    }
+
+    @Test
+    public void getUserByIdNotModifiedTest() {
+        for (int i = 1; i <= 2; i++) {
+            RestUtils.post(getUrl("/users"), User.builder()
+                    .email(String.format("eva%d@gmail.com", i))
+                    .login(String.format("Eva%d", i))
+                    .birthday(LocalDate.of(1987, 4, 26))
+                    .build(), headers);
+        }
+        String etag = RestUtils.get(getUrl("/users/1"), ContentType.JSON.toString()).getHeader("ETag");
+        Response resp1 = RestUtils.get(getUrl("/users/1"), null, Map.of("If-None-Match", etag), null);
+        Assert.assertEquals(resp1.statusCode(), 304, "Неизменившийся пользователь должен возвращать 304");
+
+        RestUtils.put(getUrl("/users/2/friends/1"), ContentType.JSON, headers);
+        Response resp2 = RestUtils.get(getUrl("/users/1"), null, Map.of("If-None-Match", etag), null);
+        Assert.assertEquals(resp2.statusCode(), 200, "После добавления друга пользователь должен вернуться заново");
+        Assert.assertEquals(resp2.jsonPath().getList("friends", Integer.class), List.of(2));
+
+        Response missing = RestUtils.get(getUrl("/users/100"), null, Map.of("If-None-Match", "*"), null);
+        Assert.assertEquals(missing.statusCode(), 404, "Отсутствующий пользователь не должен возвращать 304");
+        RestUtils.delete(getUrl("/users/2"), ContentType.JSON, headers);
+        Response deleted = RestUtils.get(getUrl("/users/2"), null, Map.of("If-None-Match", "*"), null);
+        Assert.assertEquals(deleted.statusCode(), 404, "Удаленный пользователь не должен возвращать 304");
+    }
+
+    @Test
+    public void getUsersByBirthdayTest() {
+        LocalDate[] birthdays = {LocalDate.of(1987, 4, 26), LocalDate.of(1990, 12, 31), LocalDate.of(2000, 4, 26),
+                LocalDate.of(1975, 1, 1)};
+        for (int i = 0; i < birthdays.length; i++) {
+            RestUtils.post(getUrl("/users"), User.builder()
+                    .email(String.format("eva%d@gmail.com", i))
+                    .login(String.format("Eva%d", i))
+                    .birthday(birthdays[i])
+                    .build(), headers);
+        }
+        Assert.assertEquals(userIds("birthday=04-26"), List.of(1, 3), "Некорректная выборка именинников");
+        Assert.assertEquals(userIds("bornFrom=1980-01-01&bornTo=1999-12-31"), List.of(1, 2));
+        Assert.assertEquals(userIds("bornFrom=1980-01-01&birthday=04-26"), List.of(1, 3));
+        Assert.assertEquals(userIds("bornTo=1999-12-31&birthday=04-26"), List.of(1));
+        Response resp = RestUtils.get(getUrl("/users?birthday=26.04"), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 400, "Статус GET /users с некорректной датой должен быть 400");
+    }
+
+    private List<Integer> userIds(String filter) {
+        Response resp = RestUtils.get(getUrl("/users?" + filter), ContentType.JSON.toString());
+        Assert.assertEquals(resp.statusCode(), 200, "Статус GET /users должен быть 200");
+        return resp.jsonPath().getList("id", Integer.class);
+    }
 }
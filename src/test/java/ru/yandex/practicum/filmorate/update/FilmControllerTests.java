@@ -45,6 +45,18 @@ public class FilmControllerTests extends BaseTest {
         Assert.assertTrue(filmToUpdate.equals(updatedFilm), "Фильм изменен некорректно");
     }
 
+    @Test
+    public void updateMissingFilmTest() {
+        Film film = Film.builder()
+                .name("1")
+                .description("1")
+                .releaseDate(LocalDate.of(1895, 12, 28))
+                .duration(1)
+                .build();
+        Response resp = RestUtils.put(getUrl("/films/99"), film, headers);
+        Assert.assertEquals(resp.statusCode(), 404, "Статус PUT /films/99 должен быть 404");
+    }
+
     @Test
     public void updateInvalidFilmTest() {
         Film filmToAdd = Film.builder()
@@ -150,4 +150,25 @@ public class UserControllerTests extends BaseTest {
         Map<String, String> response = resp.as(Map.class);
         Assert.assertTrue(response.get("error").equals("Email должен быть уникальным"), "Валидация прошла некорректно");
     }
+
+    @Test
+    public void updateUserReleasesOldEmailTest() {
+        User userToAdd = User.builder()
+                .email("eva@gmail.com")
+                .login("Eva")
+                .birthday(LocalDate.of(1987, 4, 26))
+                .build();
+
+        User addedUser = RestUtils.post(getUrl("/users"), userToAdd, headers).as(User.class);
+        User userToUpdate = addedUser.toBuilder()
+                .email("eva_upd@gmail.com")
+                .build();
+        Response resp1 = RestUtils.put(getUrl("/users/" + addedUser.getId()), userToUpdate, headers);
+        Assert.assertEquals(resp1.statusCode(), 200, "Статус PUT /users должен быть 200");
+
+        Response resp2 = RestUtils.post(getUrl("/users"), userToAdd.toBuilder().login("Eva2").build(), headers);
+        Assert.assertEquals(resp2.statusCode(), 201, "Освобожденный email должен быть доступен");
+        Response resp3 = RestUtils.post(getUrl("/users"), userToUpdate.toBuilder().login("Eva3").build(), headers);
+        Assert.assertEquals(resp3.statusCode(), 400, "Статус POST /users должен быть 400");
+    }
 }